@@ -0,0 +1,61 @@
+package bibleReader.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bibleReader.BibleIO;
+import bibleReader.model.VerseList;
+
+/**
+ * How long BibleIO.readBible takes to read a whole Bible in each format.
+ *
+ * @author Jonathan Chaffer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BibleIOBenchmark {
+	private File atvFile;
+	private File xmvFile;
+
+	@Setup
+	public void writeFiles() throws IOException {
+		VerseList verses = SyntheticCorpus.generate("KJV", 1);
+		atvFile = File.createTempFile("bible", ".atv");
+		xmvFile = File.createTempFile("bible", ".xmv");
+		SyntheticCorpus.writeATV(atvFile, verses);
+		SyntheticCorpus.writeXMV(xmvFile, verses);
+	}
+
+	@TearDown
+	public void deleteFiles() {
+		atvFile.delete();
+		xmvFile.delete();
+	}
+
+	@Benchmark
+	public VerseList readATV() {
+		return BibleIO.readBible(atvFile);
+	}
+
+	@Benchmark
+	public VerseList readXMV() {
+		return BibleIO.readBible(xmvFile);
+	}
+}
@@ -0,0 +1,89 @@
+package bibleReader.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.Reference;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Looking up verses, passages and books in each kind of Bible. Each call uses
+ * the next of a fixed set of randomly chosen references, so the lookups don't
+ * all hit the same place.
+ *
+ * @author Jonathan Chaffer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BibleLookupBenchmark {
+	private static final int LOOKUPS = 1024;
+
+	@Param({ "ArrayListBible", "TreeMapBible", "PackedArrayBible" })
+	public String implementation;
+
+	private Bible bible;
+	private Reference[] references;
+	private int next;
+
+	@Setup
+	public void createBible() {
+		VerseList verses = SyntheticCorpus.generate("KJV", 1);
+		if (implementation.equals("ArrayListBible")) {
+			bible = new ArrayListBible(verses);
+		} else if (implementation.equals("TreeMapBible")) {
+			bible = new TreeMapBible(verses);
+		} else {
+			bible = new PackedArrayBible(verses);
+		}
+		Random random = new Random(2);
+		references = new Reference[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			references[i] = verses.get(random.nextInt(verses.size())).getReference();
+		}
+	}
+
+	private Reference nextReference() {
+		next = (next + 1) % LOOKUPS;
+		return references[next];
+	}
+
+	@Benchmark
+	public Verse getVerse() {
+		return bible.getVerse(nextReference());
+	}
+
+	@Benchmark
+	public VerseList getPassage() {
+		// The referenced verse and the nine after it in its chapter.
+		Reference ref = nextReference();
+		return bible.getPassage(ref.getBookOfBible(), ref.getChapter(), ref.getVerse(), ref.getVerse() + 9);
+	}
+
+	@Benchmark
+	public VerseList getBook() {
+		BookOfBible book = nextReference().getBookOfBible();
+		return bible.getBook(book);
+	}
+}
@@ -0,0 +1,78 @@
+package bibleReader.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bibleReader.model.Bible;
+import bibleReader.model.BibleFactory;
+import bibleReader.model.Concordance;
+import bibleReader.model.ReferenceList;
+
+/**
+ * Building a Concordance, and looking up verses with all of some words.
+ *
+ * @author Jonathan Chaffer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcordanceBenchmark {
+	private Bible bible;
+	private Concordance concordance;
+
+	@State(Scope.Benchmark)
+	public static class Query {
+		/**
+		 * The kind of query: two common words, a rare word with a common one,
+		 * or three common words.
+		 */
+		@Param({ "common", "rareAndCommon", "threeCommon" })
+		public String query;
+
+		ArrayList<String> words;
+
+		@Setup
+		public void chooseWords() {
+			if (query.equals("common")) {
+				words = new ArrayList<String>(Arrays.asList("lord", "god"));
+			} else if (query.equals("rareAndCommon")) {
+				words = new ArrayList<String>(Arrays.asList(SyntheticCorpus.word(3000), "lord"));
+			} else {
+				words = new ArrayList<String>(Arrays.asList("the", "and", "lord"));
+			}
+		}
+	}
+
+	@Setup
+	public void createConcordance() {
+		bible = BibleFactory.createBible(SyntheticCorpus.generate("KJV", 1));
+		concordance = BibleFactory.createConcordance(bible);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Concordance construct() {
+		return new Concordance(bible);
+	}
+
+	@Benchmark
+	public ReferenceList getReferencesContainingAll(Query query) {
+		return concordance.getReferencesContainingAll(query.words);
+	}
+}
@@ -0,0 +1,88 @@
+package bibleReader.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bibleReader.model.BibleFactory;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.ParallelSearch;
+import bibleReader.model.ReferenceList;
+
+/**
+ * The queries the app makes of the model, over three versions like the app
+ * loads at startup.
+ *
+ * @author Jonathan Chaffer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Model {
+		BibleReaderModel model;
+
+		@Setup
+		public void createModel() {
+			model = new BibleReaderModel();
+			model.addBible(BibleFactory.createBible(SyntheticCorpus.generate("KJV", 1)));
+			model.addBible(BibleFactory.createBible(SyntheticCorpus.generate("ASV", 2)));
+			model.addBible(BibleFactory.createBible(SyntheticCorpus.generate("ESV", 3)));
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Passage {
+		@Param({ "John 3:16", "Genesis 1-3", "Psalms 23", "Matthew 5:3-7:27", "Romans", "John 3:16, 18; 4:1-3" })
+		public String passage;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Search {
+		@Param({ "lord god", "\"the lord\" god" })
+		public String search;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Phrase {
+		@Param({ "lord", "shall not", "th" })
+		public String phrase;
+
+		@Param({ "false", "true" })
+		public boolean parallel;
+
+		@Setup
+		public void setMode() {
+			ParallelSearch.setEnabled(parallel);
+		}
+	}
+
+	@Benchmark
+	public ReferenceList getReferencesContaining(Model model, Phrase phrase) {
+		return model.model.getReferencesContaining(phrase.phrase);
+	}
+
+	@Benchmark
+	public ReferenceList getReferencesForPassage(Model model, Passage passage) {
+		return model.model.getReferencesForPassage(passage.passage);
+	}
+
+	@Benchmark
+	public ReferenceList getReferencesContainingAllWordsAndPhrases(Model model, Search search) {
+		return model.model.getReferencesContainingAllWordsAndPhrases(search.search);
+	}
+}
@@ -0,0 +1,119 @@
+package bibleReader.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bibleReader.model.Reference;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Hashing and sorting the References and Verses of a whole Bible. The
+ * ...ByString benchmarks hash the way Reference and Verse used to, by hashing
+ * toString(), for comparison. Run with -prof gc to see the allocation.
+ *
+ * @author Jonathan Chaffer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceBenchmark {
+	private Verse[] verses;
+	private Reference[] references;
+	// Equal to the references, but not the same objects, like the References
+	// a caller makes to look things up.
+	private Reference[] lookups;
+	private Reference[] shuffled;
+	private HashMap<Reference, Verse> verseMap;
+
+	@Setup
+	public void createReferences() {
+		VerseList verseList = SyntheticCorpus.generate("KJV", 1);
+		verses = verseList.toArray(new Verse[verseList.size()]);
+		references = new Reference[verses.length];
+		lookups = new Reference[verses.length];
+		verseMap = new HashMap<Reference, Verse>();
+		for (int i = 0; i < verses.length; i++) {
+			references[i] = verses[i].getReference();
+			lookups[i] = new Reference(references[i].getBookOfBible(), references[i].getChapter(),
+					references[i].getVerse());
+			verseMap.put(references[i], verses[i]);
+		}
+		shuffled = references.clone();
+		Collections.shuffle(Arrays.asList(shuffled), new Random(3));
+	}
+
+	@Benchmark
+	public int hashReferences() {
+		int hash = 0;
+		for (Reference ref : references) {
+			hash += ref.hashCode();
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public int hashReferencesByString() {
+		int hash = 0;
+		for (Reference ref : references) {
+			hash += ref.toString().hashCode();
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public int hashVerses() {
+		int hash = 0;
+		for (Verse verse : verses) {
+			hash += verse.hashCode();
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public int hashVersesByString() {
+		int hash = 0;
+		for (Verse verse : verses) {
+			hash += verse.toString().hashCode();
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public void lookUpVerses(Blackhole blackhole) {
+		for (Reference ref : lookups) {
+			blackhole.consume(verseMap.get(ref));
+		}
+	}
+
+	@Benchmark
+	public HashSet<Reference> buildReferenceSet() {
+		return new HashSet<Reference>(Arrays.asList(references));
+	}
+
+	@Benchmark
+	public Reference[] sortReferences() {
+		Reference[] sorted = shuffled.clone();
+		Arrays.sort(sorted);
+		return sorted;
+	}
+}
@@ -0,0 +1,183 @@
+package bibleReader.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import bibleReader.BibleIO;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Makes up Bibles that are shaped like the real ones, so the benchmarks can
+ * run without the kjv.atv, asv.xmv and esv.atv files. Every book has chapters
+ * and verses, and the words of the verses follow a Zipf distribution: a few
+ * words like "the" and "lord" are in a large share of the verses, and most
+ * words are rare. Some verses have commas, possessives and footnote markers
+ * like the real text does. The same seed always makes the same Bible.
+ *
+ * @author Jonathan Chaffer
+ */
+public class SyntheticCorpus {
+	// The most common words, most common first.
+	private static final String[] COMMON_WORDS = { "the", "and", "of", "to", "that", "in", "he", "shall", "unto",
+			"for", "i", "his", "a", "lord", "they", "be", "is", "him", "not", "them", "it", "with", "all", "thou",
+			"thy", "was", "god", "which", "my", "me", "said", "but", "ye", "their", "have", "will", "thee", "from",
+			"as", "are", "when", "this", "out", "were", "by", "you", "up", "there", "hath", "then" };
+	private static final String[] SYLLABLES = { "ab", "el", "ja", "mi", "ra", "sh", "on", "ze", "ki", "ah", "ul",
+			"ne", "ph", "ir", "ma", "th", "ed", "eth", "im", "or" };
+	private static final int VOCABULARY_SIZE = 12000;
+
+	private static String[] vocabulary;
+	private static double[] cumulativeWeights;
+
+	/**
+	 * @param rank
+	 *            where the word is in the vocabulary, starting at 0 for the most
+	 *            common word.
+	 * @return the word. Words past the first couple of thousand are rare.
+	 */
+	public static String word(int rank) {
+		return getVocabulary()[rank];
+	}
+
+	/**
+	 * Make up a Bible.
+	 *
+	 * @param version
+	 *            the abbreviation of the version.
+	 * @param seed
+	 *            the seed for the random numbers.
+	 * @return about 34,000 verses, in order, covering every book.
+	 */
+	public static VerseList generate(String version, long seed) {
+		Random random = new Random(seed);
+		VerseList verses = new VerseList(version, "A synthetic Bible (seed " + seed + ")");
+		for (BookOfBible book : BookOfBible.values()) {
+			if (book == BookOfBible.Dummy) {
+				continue;
+			}
+			int chapters = 1 + random.nextInt(40);
+			for (int chapter = 1; chapter <= chapters; chapter++) {
+				int verseCount = 10 + random.nextInt(30);
+				for (int verse = 1; verse <= verseCount; verse++) {
+					verses.add(new Verse(book, chapter, verse, makeText(random)));
+				}
+			}
+		}
+		return verses;
+	}
+
+	/**
+	 * Write the verses in the ATV format.
+	 *
+	 * @param file
+	 *            the file to write.
+	 * @param verses
+	 *            the verses to write.
+	 */
+	public static void writeATV(File file, VerseList verses) {
+		BibleIO.writeVersesATV(file, verses.getVersion() + ": " + verses.getDescription(), verses);
+	}
+
+	/**
+	 * Write the verses in the XMV format.
+	 *
+	 * @param file
+	 *            the file to write.
+	 * @param verses
+	 *            the verses to write, in order.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	public static void writeXMV(File file, VerseList verses) throws IOException {
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), BibleIO.DEFAULT_CHARSET));
+		try {
+			out.println("<Version " + verses.getVersion() + ": " + verses.getDescription() + ">");
+			BookOfBible book = null;
+			int chapter = 0;
+			for (Verse verse : verses) {
+				if (verse.getReference().getBookOfBible() != book) {
+					book = verse.getReference().getBookOfBible();
+					chapter = 0;
+					out.println("<Book " + book + ", The Book of " + book + ">");
+				}
+				if (verse.getReference().getChapter() != chapter) {
+					chapter = verse.getReference().getChapter();
+					out.println("<Chapter " + chapter + ">");
+				}
+				out.println("<Verse " + verse.getReference().getVerse() + ">" + verse.getText());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	private static String makeText(Random random) {
+		String[] words = getVocabulary();
+		StringBuffer text = new StringBuffer();
+		int length = 8 + random.nextInt(30);
+		for (int i = 0; i < length; i++) {
+			String word = words[nextRank(random)];
+			if (i == 0) {
+				text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+			} else {
+				text.append(' ').append(word);
+			}
+			int extra = random.nextInt(100);
+			if (extra < 8) {
+				text.append(',');
+			} else if (extra < 10) {
+				text.append("'s");
+			} else if (extra < 11) {
+				text.append("<sup>").append((char) ('a' + random.nextInt(26))).append("</sup>");
+			}
+		}
+		return text.append('.').toString();
+	}
+
+	private static int nextRank(Random random) {
+		double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+		int index = Arrays.binarySearch(cumulativeWeights, target);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private static synchronized String[] getVocabulary() {
+		if (vocabulary == null) {
+			String[] words = new String[VOCABULARY_SIZE];
+			System.arraycopy(COMMON_WORDS, 0, words, 0, COMMON_WORDS.length);
+			Random random = new Random(0);
+			HashSet<String> used = new HashSet<String>(Arrays.asList(COMMON_WORDS));
+			for (int i = COMMON_WORDS.length; i < words.length; i++) {
+				String word;
+				do {
+					StringBuffer made = new StringBuffer();
+					int syllables = 2 + random.nextInt(3);
+					for (int j = 0; j < syllables; j++) {
+						made.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+					}
+					word = made.toString();
+				} while (!used.add(word));
+				words[i] = word;
+			}
+			double[] weights = new double[words.length];
+			double total = 0;
+			for (int i = 0; i < weights.length; i++) {
+				total += 1.0 / (i + 1);
+				weights[i] = total;
+			}
+			cumulativeWeights = weights;
+			vocabulary = words;
+		}
+		return vocabulary;
+	}
+}
@@ -0,0 +1,45 @@
+package bibleReader;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a Bible file is not in the format it is supposed to be in. It
+ * remembers which line of the file was the problem, if the file has lines.
+ *
+ * @author Jonathan Chaffer
+ */
+public class BibleFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	// The Fields
+	private int lineNumber;
+
+	/**
+	 * @param lineNumber
+	 *            the number of the bad line, counting from 1.
+	 * @param message
+	 *            what was wrong with the line.
+	 */
+	public BibleFormatException(int lineNumber, String message) {
+		super("Line " + lineNumber + ": " + message);
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * For files that don't have lines (e.g. binary Bibles).
+	 *
+	 * @param message
+	 *            what was wrong with the file.
+	 */
+	public BibleFormatException(String message) {
+		super(message);
+	}
+
+	/**
+	 * @return the number of the bad line, counting from 1, or 0 if the file
+	 *         doesn't have lines.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+}
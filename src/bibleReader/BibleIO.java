@@ -1,19 +1,28 @@
 package bibleReader;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 import bibleReader.model.Bible;
 import bibleReader.model.BookOfBible;
+import bibleReader.model.MappedBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.PackedBible;
 import bibleReader.model.Reference;
 import bibleReader.model.Verse;
 import bibleReader.model.VerseList;
+import bibleReader.model.Versification;
 
 /**
  * A utility class that has useful methods to read/write Bibles and Verses.
@@ -22,169 +31,273 @@ import bibleReader.model.VerseList;
  * @author Jonathan Chaffer, 2018
  */
 public class BibleIO {
-	// pattern for the first line of .xmv file
-	public static Pattern firstLinePattern = Pattern.compile("(<Version )(.*)(: )(.*)(\\s*)");
-	// pattern for a book line of .xmv file
-	public static Pattern bookPattern = Pattern.compile("(<Book )(\\d?\\s?(\\w\\s?)*)(, )(.*)(>)(\\s*)");
-	// pattern for a chapter line of .xmv file
-	public static Pattern chapterPattern = Pattern.compile("(<Chapter )(\\d+)(>)(\\s*)");
-	// pattern for a verse line of .xmv file
-	public static Pattern versePattern = Pattern.compile("(<Verse )(\\d+)(>)(.*)(\\s*)");
-	// pattern for an unusual "CL" line of .xmv file
-	public static Pattern clPattern = Pattern.compile("(<CL>)(.*)(\\s*)");
+	/**
+	 * The character set used to read and write Bible files when one isn't
+	 * given. The files we have are all Latin-1.
+	 */
+	public static final Charset DEFAULT_CHARSET = Charset.forName("ISO-8859-1");
+
+	// No chapter or verse number has more digits than this.
+	private static final int MAX_DIGITS = 9;
+
+	// The tags that start the lines of an .xmv file.
+	private static final String VERSION_TAG = "<Version ";
+	private static final String BOOK_TAG = "<Book ";
+	private static final String CHAPTER_TAG = "<Chapter ";
+	private static final String VERSE_TAG = "<Verse ";
+
+	/**
+	 * Read in a file and create a Bible object from it and return it. The file
+	 * is decoded using DEFAULT_CHARSET.
+	 * 
+	 * @param bibleFile
+	 *            The file containing a Bible with .atv or .xmv extension.
+	 * @return A VerseList constructed from the file bibleFile, or null if the
+	 *         extension isn't recognized or there was an error reading the
+	 *         file. Use loadBible to find out what the error was.
+	 */
+	public static VerseList readBible(File bibleFile) {
+		try {
+			return loadBible(bibleFile);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Read in a file and create a Bible object from it and return it. The file
+	 * is decoded using DEFAULT_CHARSET.
+	 * 
+	 * @param bibleFile
+	 *            The file containing a Bible with .atv or .xmv extension.
+	 * @return A VerseList constructed from the file bibleFile.
+	 * @throws BibleFormatException
+	 *             if the extension isn't recognized or the file isn't in the
+	 *             format it should be. The exception gives the line number.
+	 * @throws IOException
+	 *             if the file can't be read.
+	 */
+	public static VerseList loadBible(File bibleFile) throws IOException {
+		return loadBible(bibleFile, DEFAULT_CHARSET);
+	}
 
 	/**
 	 * Read in a file and create a Bible object from it and return it.
 	 * 
 	 * @param bibleFile
-	 * @return
+	 *            The file containing a Bible with .atv or .xmv extension.
+	 * @param charset
+	 *            The character set the file is encoded with.
+	 * @return A VerseList constructed from the file bibleFile.
+	 * @throws BibleFormatException
+	 *             if the extension isn't recognized or the file isn't in the
+	 *             format it should be. The exception gives the line number.
+	 * @throws IOException
+	 *             if the file can't be read.
 	 */
-	public static VerseList readBible(File bibleFile) { // Get the extension of
-														// the file
+	public static VerseList loadBible(File bibleFile, Charset charset) throws IOException {
+		// Get the extension of the file
 		String name = bibleFile.getName();
 		String extension = name.substring(name.lastIndexOf('.') + 1, name.length());
 
+		boolean atv = "atv".equals(extension.toLowerCase());
+		if (!atv && !"xmv".equals(extension.toLowerCase())) {
+			throw new BibleFormatException(name + " is not an .atv or .xmv file");
+		}
+
 		// Call the read method based on the file type.
-		if ("atv".equals(extension.toLowerCase())) {
-			return readATV(bibleFile);
-		} else if ("xmv".equals(extension.toLowerCase())) {
-			return readXMV(bibleFile);
-		} else {
-			return null;
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(bibleFile), charset));
+		try {
+			return atv ? readATV(br) : readXMV(br);
+		} finally {
+			br.close();
 		}
 	}
 
 	/**
-	 * Read in a Bible that is saved in the "ATV" format. The format is
-	 * described below.
+	 * Read in a Bible that is saved in the "ATV" format. The first line is the
+	 * version and the title, separated by ": ". Every other line is a verse of
+	 * the form "book@chapter:verse@text", for instance
+	 * "Ge@1:1@In the beginning God created the heaven and the earth."
 	 * 
-	 * @param bibleFile
-	 *            The file containing a Bible with .atv extension.
-	 * @return A Bible object constructed from the file bibleFile, or null if
-	 *         there was an error reading the file.
+	 * Each line is scanned once, so apart from the text of the verse no
+	 * Strings are created for it.
+	 * 
+	 * @param br
+	 *            The reader to read the Bible from. It is not closed.
+	 * @return A VerseList containing the verses that were read.
+	 * @throws BibleFormatException
+	 *             if a line is not in the right format, or a chapter or verse
+	 *             number is more than Reference.MAX_PACKED_NUMBER. The
+	 *             exception gives the line number.
+	 * @throws IOException
+	 *             if the reader can't be read.
 	 */
-	private static VerseList readATV(File bibleFile) {
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(bibleFile));
-
-			String version = "unknown";
-			String title = "";
-
-			// read the first line
-			String line = br.readLine();
-			// if the first line is not empty...
-			if (!line.equals("")) {
-				// split the first line by ": "
-				String[] firstLineElements = line.split(": ");
-				version = firstLineElements[0];
-				if (firstLineElements.length == 2) {
-					title = firstLineElements[1];
-				}
+	public static VerseList readATV(BufferedReader br) throws IOException {
+		String version = "unknown";
+		String title = "";
+
+		// read the first line
+		String line = br.readLine();
+		// if the first line is not empty...
+		if (line != null && !line.equals("")) {
+			// split the first line by ": "
+			String[] firstLineElements = line.split(": ");
+			version = firstLineElements[0];
+			if (firstLineElements.length == 2) {
+				title = firstLineElements[1];
 			}
+		}
 
-			// construct the VerseList
-			VerseList verses = new VerseList(version, title);
+		// construct the VerseList
+		VerseList verses = new VerseList(version, title);
 
-			line = br.readLine();
-			while (line != null) {
-				// split the line by "@"
-				String[] lineElements = line.split("@");
-				// if it did not successfully split into 3 strings, return null
-				if (lineElements.length != 3) {
-					return null;
-				}
+		int lineNumber = 1;
+		line = br.readLine();
+		while (line != null) {
+			lineNumber++;
 
-				// split the second element of lineElements by ":"
-				String[] refElements = lineElements[1].split(":");
-				// if it did not successfully split into 2 strings, return null
-				if (refElements.length != 2) {
-					return null;
-				}
+			// the line should look like book@chapter:verse@text
+			int firstAt = line.indexOf('@');
+			if (firstAt < 0) {
+				throw new BibleFormatException(lineNumber, "missing '@' after the book");
+			}
+			int colon = line.indexOf(':', firstAt + 1);
+			int secondAt = line.indexOf('@', firstAt + 1);
+			if (secondAt < 0) {
+				throw new BibleFormatException(lineNumber, "missing '@' after the verse number");
+			}
+			if (colon < 0 || colon > secondAt) {
+				throw new BibleFormatException(lineNumber, "missing ':' between the chapter and verse");
+			}
+			if (secondAt == line.length() - 1 || line.indexOf('@', secondAt + 1) >= 0) {
+				throw new BibleFormatException(lineNumber, "the text is empty or contains '@'");
+			}
 
-				// create local variable for book
-				BookOfBible book = BookOfBible.getBookOfBible(lineElements[0]);
-				// if book was null, return null
-				if (book == null) {
-					return null;
-				}
+			BookOfBible book = BookOfBible.getBookOfBible(line, 0, firstAt);
+			if (book == null) {
+				throw new BibleFormatException(lineNumber, "unknown book \"" + line.substring(0, firstAt) + "\"");
+			}
 
-				// create local variable for chapter, verse, text
-				int chapter = Integer.parseInt(refElements[0]);
-				int verse = Integer.parseInt(refElements[1]);
-				String text = lineElements[2];
+			int chapter = parseNumber(line, firstAt + 1, colon);
+			int verse = parseNumber(line, colon + 1, secondAt);
+			if (chapter < 0 || verse < 0) {
+				throw new BibleFormatException(lineNumber, "bad chapter or verse number");
+			}
+			if (chapter > Reference.MAX_PACKED_NUMBER || verse > Reference.MAX_PACKED_NUMBER) {
+				throw new BibleFormatException(lineNumber, "chapter or verse number is too big");
+			}
+			String text = line.substring(secondAt + 1);
 
-				// add the Verse to verses
-				verses.add(new Verse(new Reference(book, chapter, verse), text));
+			// add the Verse to verses
+			verses.add(new Verse(Reference.of(book, chapter, verse), text));
 
-				// go to the next line
-				line = br.readLine();
-			}
-			br.close();
-			return verses;
-		} catch (IOException e) {
-			e.printStackTrace();
+			// go to the next line
+			line = br.readLine();
 		}
-		return null;
+		return verses;
 	}
 
 	/**
-	 * Read in the Bible that is stored in the XMV format.
+	 * Read in the Bible that is stored in the XMV format. The first line is
+	 * "&lt;Version version: title&gt;", and after that each line starts with a
+	 * tag that says what it is:
+	 * <ul>
+	 * <li>"&lt;Book name, description&gt;" starts a new book. The verses of a
+	 * book whose name isn't recognized, and any before the first book, are
+	 * skipped.</li>
+	 * <li>"&lt;Chapter number&gt;" starts a new chapter.</li>
+	 * <li>"&lt;Verse number&gt;text" is a verse of the current chapter.</li>
+	 * <li>"&lt;CL&gt;..." and any other lines (e.g. "&lt;Title&gt;...") are not
+	 * part of a verse, so they are skipped.</li>
+	 * </ul>
 	 * 
-	 * @param bibleFile
-	 *            The file containing a Bible with .xmv extension.
-	 * @return A Bible object constructed from the file bibleFile, or null if
-	 *         there was an error reading the file.
+	 * The lines are scanned by hand, one character at a time, rather than with
+	 * regular expressions.
+	 * 
+	 * @param br
+	 *            The reader to read the Bible from. It is not closed.
+	 * @return A VerseList containing the verses that were read.
+	 * @throws BibleFormatException
+	 *             if a chapter or verse number is more than
+	 *             Reference.MAX_PACKED_NUMBER. The exception gives the line
+	 *             number.
+	 * @throws IOException
+	 *             if the reader can't be read.
 	 */
-	private static VerseList readXMV(File bibleFile) {
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(bibleFile));
-
-			String version = "unknown";
-			String title = "";
+	public static VerseList readXMV(BufferedReader br) throws IOException {
+		String version = "unknown";
+		String title = "";
 
-			// read the first line
-			String line = br.readLine();
+		// read the first line, which should look like <Version version: title>
+		String line = br.readLine();
+		if (line != null && line.startsWith(VERSION_TAG)) {
+			int separator = line.lastIndexOf(": ");
+			if (separator >= VERSION_TAG.length()) {
+				version = line.substring(VERSION_TAG.length(), separator);
+				title = line.substring(separator + 2);
+			}
+		}
 
-			Matcher m = firstLinePattern.matcher(line);
+		// construct the VerseList
+		VerseList verses = new VerseList(version, title);
 
-			if (m.matches()) {
-				version = m.group(2);
-				title = m.group(4);
-			}
+		BookOfBible currentBook = null;
+		int currentChapter = 0;
 
-			// construct the VerseList
-			VerseList verses = new VerseList(version, title);
+		int lineNumber = 1;
+		line = br.readLine();
+		while (line != null) {
+			lineNumber++;
 
-			BookOfBible currentBook = null;
-			int currentChapter = 0;
-			int currentVerse = 0;
+			// Find the line without the whitespace at either end, the same way
+			// String.trim does, but without making a new String.
+			int start = 0;
+			int end = line.length();
+			while (start < end && line.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {
+				end--;
+			}
 
-			line = br.readLine();
-			while (line != null) {
-				line = line.trim();
-				if ((m = bookPattern.matcher(line)).matches()) {
-					currentBook = BookOfBible.getBookOfBible(m.group(2));
-				} else if ((m = chapterPattern.matcher(line)).matches()) {
-					currentChapter = Integer.parseInt(m.group(2));
-				} else if ((m = versePattern.matcher(line)).matches()) {
-					currentVerse = Integer.parseInt(m.group(2));
-					verses.add(new Verse(new Reference(currentBook, currentChapter, currentVerse), m.group(4)));
-				} else {
+			if (line.startsWith(VERSE_TAG, start)) {
+				int close = line.indexOf('>', start + VERSE_TAG.length());
+				int verse = close < 0 ? -1 : parseNumber(line, start + VERSE_TAG.length(), close);
+				// Verses of a book that isn't recognized are skipped.
+				if (verse >= 0 && currentBook != null) {
+					if (currentChapter > Reference.MAX_PACKED_NUMBER || verse > Reference.MAX_PACKED_NUMBER) {
+						throw new BibleFormatException(lineNumber, "chapter or verse number is too big");
+					}
+					verses.add(new Verse(Reference.of(currentBook, currentChapter, verse),
+							line.substring(close + 1, end)));
+				}
+			} else if (line.startsWith(CHAPTER_TAG, start)) {
+				// Should look like <Chapter number>
+				if (end > start && line.charAt(end - 1) == '>') {
+					int chapter = parseNumber(line, start + CHAPTER_TAG.length(), end - 1);
+					if (chapter >= 0) {
+						currentChapter = chapter;
+					}
+				}
+			} else if (line.startsWith(BOOK_TAG, start)) {
+				// Should look like <Book name, description>
+				int nameStart = start + BOOK_TAG.length();
+				int comma = line.indexOf(", ", nameStart);
+				if (comma >= 0 && line.charAt(end - 1) == '>' && isBookName(line, nameStart, comma)) {
+					currentBook = BookOfBible.getBookOfBible(line, nameStart, comma);
 				}
-
-				// go to the next line
-				line = br.readLine();
 			}
-			br.close();
-			return verses;
-		} catch (IOException e) {
-			e.printStackTrace();
+
+			// go to the next line
+			line = br.readLine();
 		}
-		return null;
+		return verses;
 	}
 
 	/**
-	 * Write out the Bible in the ATV format.
+	 * Write out the Bible in the ATV format, using DEFAULT_CHARSET so that
+	 * readBible can read it back in.
 	 * 
 	 * @param file
 	 *            The file that the Bible should be written to.
@@ -193,7 +306,7 @@ public class BibleIO {
 	 */
 	public static void writeBibleATV(File file, Bible bible) {
 		try {
-			PrintWriter pw = new PrintWriter(new FileWriter(file));
+			PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), DEFAULT_CHARSET));
 			pw.write(bible.getVersion() + ": " + bible.getTitle() + "\n");
 			for (Verse verse : bible.getAllVerses()) {
 				pw.write(verse.getReference().getBook() + "@" + verse.getReference().getChapter() + ":" + verse.getReference().getVerse() + "@" + verse.getText() + "\n");
@@ -204,6 +317,80 @@ public class BibleIO {
 		}
 	}
 
+	/**
+	 * Write out the Bible in the binary format described in MappedBible, so
+	 * that it can be opened quickly with mapBible.
+	 * 
+	 * @param file
+	 *            The file that the Bible should be written to.
+	 * @param bible
+	 *            The Bible that will be written to the file.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	public static void writeBibleBinary(File file, Bible bible) throws IOException {
+		// Write the verses in order and without duplicates.
+		PackedBible packed;
+		if (bible instanceof PackedBible) {
+			packed = (PackedBible) bible;
+		} else {
+			packed = new PackedArrayBible(bible.getAllVerses());
+		}
+		VerseList verses = packed.getAllVerses();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MappedBible.MAGIC);
+			out.writeInt(MappedBible.FORMAT_VERSION);
+			out.writeInt(verses.size());
+			writeBinaryString(out, bible.getVersion());
+			writeBinaryString(out, bible.getTitle());
+			// The versification table.
+			Versification versification = packed.getVersification();
+			for (int i = 0; i < verses.size(); i++) {
+				out.writeInt(versification.getPackedId(i));
+			}
+			// The offset index.
+			byte[][] texts = new byte[verses.size()][];
+			int offset = 0;
+			for (int i = 0; i < texts.length; i++) {
+				texts[i] = verses.get(i).getText().getBytes(MappedBible.CHARSET);
+				out.writeInt(offset);
+				offset += texts[i].length;
+			}
+			out.writeInt(offset);
+			// The text.
+			for (byte[] text : texts) {
+				out.write(text);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Open a Bible that was written with writeBibleBinary by mapping the file
+	 * into memory. The verses are read from the file as they are needed, and
+	 * the operating system can share the pages of the file between programs.
+	 * 
+	 * @param file
+	 *            The file containing the Bible.
+	 * @return The Bible.
+	 * @throws BibleFormatException
+	 *             if the file isn't in the binary format (including if it is
+	 *             truncated or corrupt).
+	 * @throws IOException
+	 *             if the file can't be read.
+	 */
+	public static Bible mapBible(File file) throws IOException {
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		try {
+			// The mapping stays valid after the channel is closed.
+			return new MappedBible(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
 	/**
 	 * Write out the given verses in the ATV format, using the description as
 	 * the first line of the file.
@@ -218,7 +405,7 @@ public class BibleIO {
 	 */
 	public static void writeVersesATV(File file, String description, VerseList verses) {
 		try {
-			PrintWriter pw = new PrintWriter(new FileWriter(file));
+			PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), DEFAULT_CHARSET));
 			pw.write(description + "\n");
 			for (Verse verse : verses) {
 				pw.write(verse.getReference().getBook() + "@" + verse.getReference().getChapter() + ":" + verse.getReference().getVerse() + "@" + verse.getText() + "\n");
@@ -230,19 +417,67 @@ public class BibleIO {
 	}
 
 	/**
-	 * Write the string out to the given file. It is presumed that the string is
-	 * an HTML rendering of some verses, but really it can be anything.
+	 * Write the string out to the given file, using DEFAULT_CHARSET like the
+	 * rest of the files. It is presumed that the string is an HTML rendering of
+	 * some verses, but really it can be anything.
 	 * 
 	 * @param file
 	 * @param text
 	 */
 	public static void writeText(File file, String text) {
 		try {
-			PrintWriter pw = new PrintWriter(new FileWriter(file));
+			PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), DEFAULT_CHARSET));
 			pw.write(text);
 			pw.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
+
+	private static void writeBinaryString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(MappedBible.CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/*
+	 * Whether the characters of line between start (inclusive) and end
+	 * (exclusive) could be a book name: ASCII letters, digits, underscores and
+	 * whitespace, like \w and \s in a regular expression.
+	 */
+	private static boolean isBookName(String line, int start, int end) {
+		if (start >= end) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			char c = line.charAt(i);
+			boolean word = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+			boolean space = c == ' ' || (c >= '\t' && c <= '\r');
+			if (!word && !space) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Parse the non-negative number in line between start (inclusive) and end
+	 * (exclusive) without creating a String. Returns -1 if there is anything
+	 * other than digits there, if there is nothing there, or if the number is
+	 * too big to be a chapter or verse number.
+	 */
+	private static int parseNumber(String line, int start, int end) {
+		if (start >= end || end - start > MAX_DIGITS) {
+			return -1;
+		}
+		int number = 0;
+		for (int i = start; i < end; i++) {
+			char c = line.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
 }
@@ -0,0 +1,206 @@
+package bibleReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import bibleReader.model.Bible;
+import bibleReader.model.BibleFactory;
+import bibleReader.model.Concordance;
+import bibleReader.model.VerseList;
+
+/**
+ * Loads Bibles in the background. Each file is read, turned into a Bible and
+ * indexed with a Concordance on one of a fixed number of worker threads, so
+ * several versions can be loaded at once. Every file gets its own Future, and
+ * an optional Listener is told about each one as soon as it is done, so the
+ * first version can be used while the others are still loading.
+ *
+ * The loader doesn't touch the model itself. Whoever receives a LoadedBible
+ * should add it with {@link bibleReader.model.BibleReaderModel#addBible(Bible, Concordance)}
+ * on the thread that owns the model (the event dispatch thread in the app).
+ *
+ * @author Jonathan Chaffer
+ */
+public class BibleLoader {
+
+	/**
+	 * Told when each Bible has finished loading. The methods are called on the
+	 * worker thread that loaded the file.
+	 */
+	public interface Listener {
+		/**
+		 * @param loaded
+		 *            the Bible that was loaded, with its concordance.
+		 */
+		public void bibleLoaded(LoadedBible loaded);
+
+		/**
+		 * @param file
+		 *            the file that couldn't be loaded.
+		 * @param cause
+		 *            what went wrong.
+		 */
+		public void bibleFailed(File file, Throwable cause);
+	}
+
+	/**
+	 * A Bible together with the Concordance that was built for it.
+	 */
+	public static class LoadedBible {
+		private File file;
+		private Bible bible;
+		private Concordance concordance;
+
+		LoadedBible(File file, Bible bible, Concordance concordance) {
+			this.file = file;
+			this.bible = bible;
+			this.concordance = concordance;
+		}
+
+		/**
+		 * @return the file the Bible was read from.
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return the Bible.
+		 */
+		public Bible getBible() {
+			return bible;
+		}
+
+		/**
+		 * @return the Concordance for the Bible.
+		 */
+		public Concordance getConcordance() {
+			return concordance;
+		}
+	}
+
+	// The Fields
+	private ExecutorService executor;
+
+	/**
+	 * Create a loader with one worker thread per processor.
+	 */
+	public BibleLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a loader that loads at most the given number of files at once.
+	 *
+	 * @param threads
+	 *            the number of worker threads (at least 1).
+	 */
+	public BibleLoader(int threads) {
+		executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "BibleLoader-" + (++count));
+				// Don't keep the application running just to finish loading.
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Start loading a Bible.
+	 *
+	 * @param file
+	 *            the file to load, in any format BibleIO.loadBible understands.
+	 * @param listener
+	 *            told when the file is done, or null.
+	 * @return a Future for the loaded Bible. If the file couldn't be read, get()
+	 *         throws an ExecutionException whose cause is an IOException.
+	 * @throws RejectedExecutionException
+	 *             if the loader has been shut down.
+	 */
+	public Future<LoadedBible> load(final File file, final Listener listener) {
+		FutureTask<LoadedBible> task = new FutureTask<LoadedBible>(new Callable<LoadedBible>() {
+			public LoadedBible call() throws IOException {
+				VerseList verses = BibleIO.loadBible(file);
+				Bible bible = BibleFactory.createBible(verses);
+				return new LoadedBible(file, bible, BibleFactory.createConcordance(bible));
+			}
+		}) {
+			@Override
+			protected void done() {
+				if (listener == null || isCancelled()) {
+					return;
+				}
+				LoadedBible loaded;
+				try {
+					loaded = get();
+				} catch (ExecutionException e) {
+					listener.bibleFailed(file, e.getCause());
+					return;
+				} catch (InterruptedException e) {
+					// Can't happen, since the task is already done.
+					return;
+				}
+				listener.bibleLoaded(loaded);
+			}
+		};
+		executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Start loading several Bibles at once.
+	 *
+	 * @param files
+	 *            the files to load.
+	 * @param listener
+	 *            told as each file is done, or null.
+	 * @return a Future for each file, in the same order as the files.
+	 */
+	public Map<File, Future<LoadedBible>> loadAll(List<File> files, Listener listener) {
+		Map<File, Future<LoadedBible>> futures = new LinkedHashMap<File, Future<LoadedBible>>();
+		for (File file : files) {
+			futures.put(file, load(file, listener));
+		}
+		return futures;
+	}
+
+	/**
+	 * Stop accepting new files. Files that have already been started still
+	 * finish loading.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Wait for the files that were started before shutdown to finish loading,
+	 * and for the worker threads to stop.
+	 *
+	 * @param timeout
+	 *            the longest time to wait.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return true if the loader has stopped, or false if the time ran out
+	 *         first.
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+}
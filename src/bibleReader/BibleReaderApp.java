@@ -6,6 +6,13 @@ import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -16,12 +23,10 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import bibleReader.model.ArrayListBible;
-import bibleReader.model.Bible;
-import bibleReader.model.BibleFactory;
 import bibleReader.model.BibleReaderModel;
-import bibleReader.model.VerseList;
 
 /**
  * The main class for the Bible Reader Application.
@@ -43,6 +48,14 @@ public class BibleReaderApp extends JFrame {
 	private JMenuBar menuBar;
 	private JFileChooser fileChooser;
 
+	// The startup versions that are loading, and a count of the ones that
+	// haven't been added to the model (or failed) yet.
+	private Map<File, Future<BibleLoader.LoadedBible>> loadingBibles;
+	private CountDownLatch biblesLeft;
+
+	// the versions loaded at startup
+	private static final File[] bibleFiles = { new File("kjv.atv"), new File("asv.xmv"), new File("esv.atv") };
+
 	/**
 	 * Start the application.
 	 * 
@@ -54,28 +67,25 @@ public class BibleReaderApp extends JFrame {
 	}
 
 	/**
-	 * Set up the bible application and create the GUI.
+	 * Set up the bible application and create the GUI. The standard versions
+	 * are loaded in the background, so they may not all be there when this
+	 * returns: use {@link #awaitBibles()} to wait for them, or
+	 * {@link #BibleReaderApp(boolean)} to have the constructor wait.
 	 */
 	public BibleReaderApp() {
-		model = new BibleReaderModel();
-
-		// add kjv
-		File kjvFile = new File("kjv.atv");
-		VerseList kjvVerses = BibleIO.readBible(kjvFile);
-		Bible kjv = BibleFactory.createBible(kjvVerses);
-		model.addBible(kjv);
-
-		// add asv
-		File asvFile = new File("asv.xmv");
-		VerseList asvVerses = BibleIO.readBible(asvFile);
-		Bible asv = BibleFactory.createBible(asvVerses);
-		model.addBible(asv);
+		this(false);
+	}
 
-		// add esv
-		File esvFile = new File("esv.atv");
-		VerseList esvVerses = BibleIO.readBible(esvFile);
-		Bible esv = BibleFactory.createBible(esvVerses);
-		model.addBible(esv);
+	/**
+	 * Set up the bible application and create the GUI.
+	 * 
+	 * @param waitForBibles
+	 *            whether to wait for the standard versions to be loaded and
+	 *            added to the model before returning, as the constructor
+	 *            always used to. If not, they are loaded in the background.
+	 */
+	public BibleReaderApp(boolean waitForBibles) {
+		model = new BibleReaderModel();
 
 		// window title
 		setTitle("Bible Reader");
@@ -115,6 +125,132 @@ public class BibleReaderApp extends JFrame {
 		// exit when you click the "x".
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		setVisible(true);
+
+		if (waitForBibles) {
+			loadBiblesNow();
+		} else {
+			loadBibles();
+		}
+	}
+
+	/**
+	 * Load the standard versions in the background. Each one is added to the
+	 * model as soon as it is ready, so the first one can be used while the
+	 * others are still loading. Use {@link #awaitBibles()} to wait for all of
+	 * them.
+	 */
+	private void loadBibles() {
+		biblesLeft = new CountDownLatch(bibleFiles.length);
+		BibleLoader loader = new BibleLoader(bibleFiles.length);
+		loadingBibles = loader.loadAll(Arrays.asList(bibleFiles), new BibleLoader.Listener() {
+			public void bibleLoaded(final BibleLoader.LoadedBible loaded) {
+				// The model is only used on the event dispatch thread.
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						try {
+							model.addBible(loaded.getBible(), loaded.getConcordance());
+						} finally {
+							biblesLeft.countDown();
+						}
+						refreshResults();
+					}
+				});
+			}
+
+			public void bibleFailed(File file, Throwable cause) {
+				// Don't make anyone waiting for the Bibles wait for the message
+				// to be closed.
+				biblesLeft.countDown();
+				showLoadError(file, cause);
+			}
+		});
+		loader.shutdown();
+	}
+
+	/**
+	 * Load the standard versions at the same time, and add them to the model
+	 * once they are all loaded, in order.
+	 */
+	private void loadBiblesNow() {
+		biblesLeft = new CountDownLatch(0);
+		BibleLoader loader = new BibleLoader(bibleFiles.length);
+		loadingBibles = loader.loadAll(Arrays.asList(bibleFiles), null);
+		loader.shutdown();
+		boolean interrupted = false;
+		for (Map.Entry<File, Future<BibleLoader.LoadedBible>> entry : loadingBibles.entrySet()) {
+			while (true) {
+				try {
+					BibleLoader.LoadedBible loaded = entry.getValue().get();
+					model.addBible(loaded.getBible(), loaded.getConcordance());
+					break;
+				} catch (InterruptedException e) {
+					// Finish loading, and leave the interrupt for the caller.
+					interrupted = true;
+				} catch (ExecutionException e) {
+					showLoadError(entry.getKey(), e.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Tell the user that a version couldn't be loaded. The message is shown on
+	 * the event dispatch thread, without waiting for it to be closed.
+	 * 
+	 * @param file
+	 *            the file of the version.
+	 * @param cause
+	 *            why it couldn't be loaded.
+	 */
+	private void showLoadError(final File file, final Throwable cause) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JOptionPane.showMessageDialog(BibleReaderApp.this, "Could not load " + file + ": " + cause.getMessage(),
+						"File Error", JOptionPane.ERROR_MESSAGE);
+			}
+		});
+	}
+
+	/**
+	 * Wait until each of the standard versions has been added to the model, or
+	 * has failed to load. Once this returns, searches use all of the versions
+	 * that could be loaded.
+	 * 
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting.
+	 * @throws IllegalStateException
+	 *             if called on the event dispatch thread, which is the thread
+	 *             that adds the versions to the model.
+	 */
+	public void awaitBibles() throws InterruptedException {
+		if (SwingUtilities.isEventDispatchThread()) {
+			throw new IllegalStateException("Can't wait for the Bibles on the event dispatch thread");
+		}
+		biblesLeft.await();
+	}
+
+	/**
+	 * @return the Future for each of the standard versions, in the order they
+	 *         are loaded in. A Future being done doesn't mean that its Bible
+	 *         has been added to the model yet; see {@link #awaitBibles()}.
+	 */
+	public Map<File, Future<BibleLoader.LoadedBible>> getLoadingBibles() {
+		return Collections.unmodifiableMap(loadingBibles);
+	}
+
+	/**
+	 * Redo the last search, e.g. after a version has been added.
+	 */
+	private void refreshResults() {
+		if (resultView.getLastSearchType() == ResultView.WORD) {
+			resultView.updateSearchResults(resultView.getLastInput());
+		} else if (resultView.getLastSearchType() == ResultView.PASSAGE) {
+			resultView.updatePassageResults(resultView.getLastInput());
+		}
 	}
 
 	/**
@@ -188,12 +324,14 @@ public class BibleReaderApp extends JFrame {
 						JOptionPane.INFORMATION_MESSAGE);
 			} else {
 				// Apparently all is well, so go ahead and read the file.
-				model.addBible(new ArrayListBible(BibleIO.readBible(file)));
-				if (resultView.getLastSearchType() == ResultView.WORD) {
-					resultView.updateSearchResults(resultView.getLastInput());
-				} else if (resultView.getLastSearchType() == ResultView.PASSAGE) {
-					resultView.updatePassageResults(resultView.getLastInput());
+				try {
+					model.addBible(new ArrayListBible(BibleIO.loadBible(file)));
+				} catch (IOException e) {
+					JOptionPane.showMessageDialog(this, "Could not load " + file + ": " + e.getMessage(), "File Error",
+							JOptionPane.ERROR_MESSAGE);
+					return;
 				}
+				refreshResults();
 			}
 		}
 	}
@@ -4,16 +4,24 @@ import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 
 import javax.swing.JButton;
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.html.HTMLDocument;
 
 import bibleReader.model.BibleReaderModel;
+import bibleReader.model.PhraseMatches;
 import bibleReader.model.Reference;
 import bibleReader.model.ReferenceList;
+import bibleReader.model.SortedIntArrays;
 
 /**
  * The display panel for the Bible Reader.
@@ -30,6 +38,13 @@ public class ResultView extends JPanel {
 	// constant for number of results per page
 	private static final int RESULTS_PER_PAGE = 20;
 
+	// The rows of search results are put on the page this many at a time, so
+	// the first ones can be seen while the rest are made.
+	private static final int ROWS_PER_CHUNK = 5;
+
+	// The id of the table the rows of search results go in.
+	private static final String RESULTS_TABLE = "results";
+
 	// GUI components
 	private BibleReaderModel bibleModel;
 	private JScrollPane scrollPane;
@@ -42,8 +57,19 @@ public class ResultView extends JPanel {
 	// other fields
 	private int currentPage = 1;
 	private ReferenceList results;
+	// The results of the last word search, with where the matches are.
+	private PhraseMatches matches;
 	private int searchType = NONE;
 	private String lastInput = "";
+	// The HTML being made, kept to be used again.
+	private final StringBuilder html = new StringBuilder();
+	// The number of renders so far, so the rows of an old one aren't added to
+	// a new one.
+	private int renderCount;
+	// The rows of search results that are still to be added: the results
+	// from pendingFrom up to (but not including) pendingTo.
+	private int pendingFrom;
+	private int pendingTo;
 
 	/**
 	 * Construct a new ResultView and set its model to myModel.
@@ -119,7 +145,8 @@ public class ResultView extends JPanel {
 	public void updateSearchResults(String input) {
 		searchType = WORD;
 		lastInput = input;
-		results = bibleModel.getReferencesContaining(input);
+		matches = bibleModel.getMatchesContaining(input);
+		results = matches.getReferences();
 		currentPage = 1;
 		renderSearch();
 	}
@@ -133,45 +160,48 @@ public class ResultView extends JPanel {
 	public void updatePassageResults(String input) {
 		searchType = PASSAGE;
 		lastInput = input;
+		matches = null;
 		results = bibleModel.getReferencesForPassage(input);
 		currentPage = 1;
 		renderPassage();
 	}
 
 	/**
-	 * Renders word search results in the results pane.
+	 * Renders word search results in the results pane. The first rows are put
+	 * on the page straight away, and the rest are added a few at a time.
 	 */
 	private void renderSearch() {
-		StringBuffer html = new StringBuffer("");
+		renderCount++;
+		pendingFrom = pendingTo;
 
 		if (results.isEmpty()) {
 			stats.setText("No results for \"" + lastInput + "\".");
 			editorPane.setText("");
 		} else {
 			// make the html
-			html.append("<div style=\"font-family:arial\"><table><tbody>");
+			int first = (currentPage - 1) * RESULTS_PER_PAGE;
+			int last = Math.min(first + RESULTS_PER_PAGE, results.size());
+			String[] versions = matches.getVersions();
+			html.setLength(0);
+			html.append("<div style=\"font-family:arial\"><table id=\"");
+			html.append(RESULTS_TABLE);
+			html.append("\"><tbody>");
 			html.append("<tr><td valign=\"top\" width=\"100\">Verse</td>");
-			for (String version : bibleModel.getVersions()) {
+			for (String version : versions) {
 				html.append("<td><center>");
 				html.append(version);
 				html.append("</center></td>");
 			}
 			html.append("</tr>");
-			for (Reference ref : getPageSublist(currentPage)) {
-				html.append("<tr><td valign=\"top\">");
-				html.append(ref.toString());
-				html.append("</td>");
-				for (String version : bibleModel.getVersions()) {
-					html.append("<td valign=\"top\">");
-					html.append(bibleModel.getText(version, ref));
-					html.append("</td>");
-				}
-				html.append("</tr>");
-			}
+			int rows = Math.min(first + ROWS_PER_CHUNK, last);
+			appendSearchRows(first, rows);
 			html.append("</tbody></table><br></div>");
-
-			String bolded = html.toString().replaceAll("(?i)" + lastInput, "<b>$0</b>");
-			editorPane.setText(bolded);
+			editorPane.setText(html.toString());
+			if (rows < last) {
+				pendingFrom = rows;
+				pendingTo = last;
+				addSearchRowsLater(renderCount);
+			}
 
 			stats.setText("There are " + results.size() + " verses containing \"" + lastInput + "\".");
 			pageDisplay.setText("Displaying page " + currentPage + " of " + getNumberOfPages() + ".");
@@ -182,11 +212,216 @@ public class ResultView extends JPanel {
 		editorPane.setCaretPosition(0);
 	}
 
+	/**
+	 * Adds the rows of search results that are still to be added to the page
+	 * now, instead of a few at a time. Anything that reads the whole page
+	 * straight after a search (e.g. a test) should call this first. It can be
+	 * called from any thread.
+	 */
+	public void finishRendering() {
+		if (SwingUtilities.isEventDispatchThread()) {
+			addPendingRows(Integer.MAX_VALUE);
+			return;
+		}
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					addPendingRows(Integer.MAX_VALUE);
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Adds the rows of search results that are still to be added on to the
+	 * page, a chunk at a time, once the events waiting to be handled have been
+	 * (so the page is drawn and the GUI responds in between).
+	 * 
+	 * @param render
+	 *            The render the rows are for. If the results have been rendered
+	 *            again since, the rows aren't added.
+	 */
+	private void addSearchRowsLater(final int render) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if (render != renderCount) {
+					return;
+				}
+				addPendingRows(ROWS_PER_CHUNK);
+				if (pendingFrom < pendingTo) {
+					addSearchRowsLater(render);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds some of the rows of search results that are still to be added on to
+	 * the page.
+	 * 
+	 * @param count
+	 *            The most rows to add.
+	 */
+	private void addPendingRows(int count) {
+		if (pendingFrom >= pendingTo) {
+			return;
+		}
+		int to = (int) Math.min((long) pendingFrom + count, pendingTo);
+		html.setLength(0);
+		appendSearchRows(pendingFrom, to);
+		pendingFrom = to;
+		HTMLDocument document = (HTMLDocument) editorPane.getDocument();
+		try {
+			document.insertBeforeEnd(document.getElement(RESULTS_TABLE), html.toString());
+		} catch (BadLocationException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Appends the rows for some of the search results to the HTML, with the
+	 * matches the search found in bold.
+	 * 
+	 * @param from
+	 *            The index in the results of the first row (inclusive).
+	 * @param to
+	 *            The index in the results of the last row (exclusive).
+	 */
+	private void appendSearchRows(int from, int to) {
+		int length = matches.getPhrase().length();
+		for (int i = from; i < to; i++) {
+			html.append("<tr><td valign=\"top\">");
+			html.append(results.get(i).toString());
+			html.append("</td>");
+			for (int version = 0; version < matches.getVersions().length; version++) {
+				html.append("<td valign=\"top\">");
+				appendText(matches.getText(i, version), matches.getMatches(i, version), length);
+				html.append("</td>");
+			}
+			html.append("</tr>");
+		}
+	}
+
+	/**
+	 * Appends a verse's text to the HTML with some matches in bold. Some
+	 * translations have markup in their text (e.g. &lt;sup&gt;a&lt;/sup&gt; for
+	 * a footnote, or &amp;#8220; for a quote), which is kept as it is. Any other
+	 * &lt;, &gt; or &amp; is escaped. A match is only put in bold if it doesn't
+	 * start or end inside the markup and has no tags in it, so the bold never
+	 * breaks the markup.
+	 * 
+	 * @param text
+	 *            The text.
+	 * @param starts
+	 *            Where each match starts in text, in order (see
+	 *            {@link PhraseMatches#getMatches(int, int)}).
+	 * @param length
+	 *            The length of each match.
+	 */
+	private void appendText(String text, int[] starts, int length) {
+		int next = 0;
+		int i = 0;
+		while (i < text.length()) {
+			while (next < starts.length && starts[next] < i) {
+				next++;
+			}
+			int end = markupEnd(text, i);
+			if (end > i) {
+				html.append(text, i, end);
+				i = end;
+			} else if (next < starts.length && starts[next] == i && canBold(text, i, i + length)) {
+				html.append("<b>");
+				appendText(text.substring(i, i + length), SortedIntArrays.EMPTY, 0);
+				html.append("</b>");
+				i += length;
+			} else {
+				char c = text.charAt(i++);
+				if (c == '<') {
+					html.append("&lt;");
+				} else if (c == '>') {
+					html.append("&gt;");
+				} else if (c == '&') {
+					html.append("&amp;");
+				} else {
+					html.append(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether part of a verse's text, which starts outside its markup,
+	 * can be put in bold: it has no tags in it, and doesn't end inside an
+	 * entity.
+	 * 
+	 * @param text
+	 *            The text.
+	 * @param start
+	 *            Where the part starts (inclusive).
+	 * @param end
+	 *            Where the part ends (exclusive).
+	 * @return Whether the part can be put in bold.
+	 */
+	private static boolean canBold(String text, int start, int end) {
+		int i = start;
+		while (i < end) {
+			if (text.charAt(i) == '<' && markupEnd(text, i) > i) {
+				return false;
+			}
+			i = Math.max(i + 1, markupEnd(text, i));
+		}
+		return i == end;
+	}
+
+	/**
+	 * Returns the end of the tag (e.g. &lt;sup&gt; or &lt;/sup&gt;) or entity
+	 * (e.g. &amp;#8220; or &amp;amp;) that starts at a given place in a verse's
+	 * text.
+	 * 
+	 * @param text
+	 *            The text.
+	 * @param start
+	 *            Where to look.
+	 * @return The index just after the tag or entity, or -1 if there isn't one
+	 *         there.
+	 */
+	private static int markupEnd(String text, int start) {
+		int length = text.length();
+		char c = text.charAt(start);
+		if (c == '<' && start + 1 < length) {
+			char next = text.charAt(start + 1);
+			if (Character.isLetter(next) || next == '/' || next == '!') {
+				int end = text.indexOf('>', start + 1);
+				return end < 0 ? -1 : end + 1;
+			}
+		} else if (c == '&') {
+			int i = start + 1;
+			if (i < length && text.charAt(i) == '#') {
+				i++;
+			}
+			int nameStart = i;
+			while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			if (i > nameStart && i < length && text.charAt(i) == ';') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Renders passage search results in the results pane.
 	 */
 	private void renderPassage() {
-		StringBuffer html = new StringBuffer("");
+		renderCount++;
+		pendingFrom = pendingTo;
 
 		if (results.isEmpty()) {
 			stats.setText("No results for \"" + lastInput + "\".");
@@ -194,9 +429,9 @@ public class ResultView extends JPanel {
 		} else {
 			// make the page title
 			String title;
-			Reference firstRef = getPageSublist(currentPage).get(0);
-			Reference lastRef = getPageSublist(currentPage).get(getPageSublist(currentPage).size() - 1);
-			// TODO make ur own
+			ReferenceList page = getPageSublist(currentPage);
+			Reference firstRef = page.get(0);
+			Reference lastRef = page.get(page.size() - 1);
 			if (firstRef.getBookOfBible().equals(lastRef.getBookOfBible())) {
 				if (firstRef.getChapter() == lastRef.getChapter()) {
 					title = firstRef.toString() + "-" + lastRef.getVerse();
@@ -208,20 +443,25 @@ public class ResultView extends JPanel {
 			}
 
 			// make the html
-			html.append("<div style=\"font-family:arial\"><br><center><b>" + title + "</b></center><br>");
+			html.setLength(0);
+			html.append("<div style=\"font-family:arial\"><br><center><b>");
+			html.append(title);
+			html.append("</b></center><br>");
 			html.append("<table><tbody>");
+			String[] versions = bibleModel.getVersions();
 			html.append("<tr>");
-			for (String version : bibleModel.getVersions()) {
+			for (String version : versions) {
 				html.append("<td><center>");
 				html.append(version);
 				html.append("</center></td>");
 			}
 			html.append("</tr>");
 			html.append("<tr>");
-			for (String version : bibleModel.getVersions()) {
+			for (String version : versions) {
 				html.append("<td valign=\"top\">");
-				for (Reference ref : getPageSublist(currentPage)) {
-					if (!bibleModel.getText(version, ref).equals("")) {
+				for (Reference ref : page) {
+					String text = bibleModel.getText(version, ref);
+					if (!text.equals("")) {
 						if (ref.getVerse() == 1) {
 							html.append("<br><b>");
 							html.append(ref.getChapter());
@@ -231,7 +471,7 @@ public class ResultView extends JPanel {
 							html.append(ref.getVerse());
 							html.append("</sup>");
 						}
-						html.append(bibleModel.getText(version, ref));
+						appendText(text, SortedIntArrays.EMPTY, 0);
 					}
 				}
 				html.append("</td>");
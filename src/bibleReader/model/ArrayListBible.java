@@ -1,6 +1,8 @@
 package bibleReader.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A class that stores a version of the Bible.
@@ -14,17 +16,46 @@ public class ArrayListBible implements Bible {
 	private String version;
 	private String title;
 	private ArrayList<Verse> verses;
+	private Versification versification;
+	private LowerCaseText lowerCaseText;
 
 	/**
 	 * Create a new Bible with the given verses.
 	 * 
 	 * @param verses
 	 *            All of the verses of this version of the Bible.
+	 * @throws IllegalArgumentException
+	 *             if one of the verses has a reference that can't be packed
+	 *             (its book is null, or its chapter or verse is negative or
+	 *             more than Reference.MAX_PACKED_NUMBER). BibleIO doesn't read
+	 *             such verses.
 	 */
 	public ArrayListBible(VerseList verses) {
 		this.verses = new ArrayList<Verse>(verses);
+		ArrayList<Reference> refs = new ArrayList<Reference>(verses.size());
+		for (Verse verse : verses) {
+			refs.add(verse.getReference());
+		}
+		this.versification = new Versification(refs);
 		this.version = verses.getVersion();
 		this.title = verses.getDescription();
+		// The verses are searched a book at a time in parallel mode.
+		int[] bookStarts = new int[refs.size()];
+		int numberOfBooks = 0;
+		for (int i = 0; i < refs.size(); i++) {
+			if (i == 0 || refs.get(i).getBookOfBible() != refs.get(i - 1).getBookOfBible()) {
+				bookStarts[numberOfBooks++] = i;
+			}
+		}
+		this.lowerCaseText = new LowerCaseText(new AbstractList<String>() {
+			public String get(int index) {
+				return ArrayListBible.this.verses.get(index).getText();
+			}
+
+			public int size() {
+				return ArrayListBible.this.verses.size();
+			}
+		}, Arrays.copyOf(bookStarts, numberOfBooks));
 	}
 
 	@Override
@@ -44,12 +75,7 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public boolean isValid(Reference ref) {
-		for (Verse verse : verses) {
-			if (verse.getReference().equals(ref)) {
-				return true;
-			}
-		}
-		return false;
+		return versification.indexOf(ref) >= 0;
 	}
 
 	@Override
@@ -78,23 +104,14 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public VerseList getAllVerses() {
-		VerseList allVerses = new VerseList(getVersion(), getTitle());
-		for (Verse verse : verses) {
-			allVerses.add(verse);
-		}
-		return allVerses;
+		return new VerseListView(getVersion(), getTitle(), verses);
 	}
 
 	@Override
 	public VerseList getVersesContaining(String phrase) {
 		VerseList versesToReturn = new VerseList(getVersion(), phrase);
-		phrase = phrase.toLowerCase();
-		if (!phrase.equals("")) {
-			for (Verse verse : verses) {
-				if (verse.getText().toLowerCase().contains(phrase)) {
-					versesToReturn.add(verse);
-				}
-			}
+		for (int index : lowerCaseText.indexesContaining(phrase)) {
+			versesToReturn.add(verses.get(index));
 		}
 		return versesToReturn;
 	}
@@ -102,13 +119,8 @@ public class ArrayListBible implements Bible {
 	@Override
 	public ReferenceList getReferencesContaining(String phrase) {
 		ReferenceList refsToReturn = new ReferenceList();
-		phrase = phrase.toLowerCase();
-		if (!phrase.equals("")) {
-			for (Verse verse : verses) {
-				if (verse.getText().toLowerCase().contains(phrase)) {
-					refsToReturn.add(verse.getReference());
-				}
-			}
+		for (int index : lowerCaseText.indexesContaining(phrase)) {
+			refsToReturn.add(verses.get(index).getReference());
 		}
 		return refsToReturn;
 	}
@@ -124,47 +136,12 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public int getLastVerseNumber(BookOfBible book, int chapter) {
-		int num = -1;
-		if (book == null) {
-			return num;
-		}
-		boolean reachedBook = false;
-		boolean reachedChapter = false;
-		for (Verse verse : verses) {
-			if (verse.getReference().getBookOfBible().equals(book)) {
-				reachedBook = true;
-				if (verse.getReference().getChapter() == chapter) {
-					reachedChapter = true;
-				}
-			}
-			if (reachedBook && reachedChapter && verse.getReference().getChapter() == chapter
-					&& verse.getReference().getBookOfBible().equals(book)) {
-				num = verse.getReference().getVerse();
-			} else if (reachedBook && reachedChapter) {
-				return num;
-			}
-		}
-		return num;
+		return versification.getLastVerseNumber(book, chapter);
 	}
 
 	@Override
 	public int getLastChapterNumber(BookOfBible book) {
-		int num = -1;
-		if (book == null) {
-			return num;
-		}
-		boolean reachedBook = false;
-		for (Verse verse : verses) {
-			if (verse.getReference().getBookOfBible().equals(book)) {
-				reachedBook = true;
-			}
-			if (reachedBook && verse.getReference().getBookOfBible().equals(book)) {
-				num = verse.getReference().getChapter();
-			} else if (reachedBook) {
-				return num;
-			}
-		}
-		return num;
+		return versification.getLastChapterNumber(book);
 	}
 
 	@Override
@@ -278,75 +255,32 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public VerseList getVersesInclusive(Reference firstVerse, Reference lastVerse) {
-		VerseList versesToReturn = new VerseList(this.getVersion(),
-				firstVerse.toString() + " to " + lastVerse.toString());
-		if (firstVerse.compareTo(lastVerse) > 0) {
-			return versesToReturn;
-		} else if (!isValid(firstVerse)) {
-			return versesToReturn;
-		} else if (!isValid(lastVerse)) {
-			return versesToReturn;
-		}
-		boolean reachedFirstVerse = false;
-		boolean reachedLastVerse = false;
-		int firstVerseIndex = -1;
-		for (int i = 0; reachedFirstVerse == false; i++) {
-			Verse verse = verses.get(i);
-			if (verse.getReference().equals(firstVerse)) {
-				reachedFirstVerse = true;
-				firstVerseIndex = i;
-			}
-		}
-		for (int i = firstVerseIndex; reachedLastVerse == false; i++) {
-			Verse verse = verses.get(i);
-			if (verse.getReference().compareTo(lastVerse) < 0) {
-				versesToReturn.add(verse);
-			} else {
-				versesToReturn.add(getVerse(lastVerse));
-				reachedLastVerse = true;
-			}
-		}
-		return versesToReturn;
+		return getVersesInclusive(firstVerse.toString() + " to " + lastVerse.toString(), firstVerse, lastVerse);
 	}
 
 	@Override
 	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
-		VerseList versesToReturn = new VerseList(this.getVersion(),
-				firstVerse.toString() + " to " + lastVerse.toString() + " excluding the final one");
+		String description = firstVerse.toString() + " to " + lastVerse.toString() + " excluding the final one";
 		if (firstVerse.compareTo(lastVerse) > 0) {
-			return versesToReturn;
-		} else if (!isValid(firstVerse)) {
-			return versesToReturn;
+			return new VerseList(this.getVersion(), description);
 		}
-		boolean reachedFirstVerse = false;
-		boolean reachedLastVerse = false;
-		int firstVerseIndex = -1;
-		for (int i = 0; reachedFirstVerse == false; i++) {
-			Verse verse = verses.get(i);
-			if (verse.getReference().equals(firstVerse)) {
-				reachedFirstVerse = true;
-				firstVerseIndex = i;
-			}
+		int firstVerseIndex = indexOf(firstVerse);
+		if (firstVerseIndex < 0) {
+			return new VerseList(this.getVersion(), description);
 		}
-		for (int i = firstVerseIndex; reachedLastVerse == false; i++) {
-			Verse verse = verses.get(i);
-			if (verse.getReference().compareTo(lastVerse) < 0) {
-				versesToReturn.add(verse);
-			} else {
-				reachedLastVerse = true;
-			}
+		int end = firstVerseIndex;
+		while (end < verses.size() && verses.get(end).getReference().compareTo(lastVerse) < 0) {
+			end++;
 		}
-		return versesToReturn;
+		return new VerseListView(this.getVersion(), description, verses.subList(firstVerseIndex, end));
 	}
 
 	@Override
 	public VerseList getBook(BookOfBible book) {
 		if (book != null) {
-			VerseList versesToReturn = new VerseList(this.getVersion(), book.toString());
 			int lastChapter = getLastChapterNumber(book);
-			versesToReturn.addAll(getVersesInclusive(new Reference(book, 1, 1),
-					new Reference(book, lastChapter, getLastVerseNumber(book, lastChapter))));
-			return versesToReturn;
+			return getVersesInclusive(book.toString(), new Reference(book, 1, 1),
+					new Reference(book, lastChapter, getLastVerseNumber(book, lastChapter)));
 		}
 		return new VerseList(this.getVersion(), "");
 	}
@@ -354,10 +288,8 @@ public class ArrayListBible implements Bible {
 	@Override
 	public VerseList getChapter(BookOfBible book, int chapter) {
 		if (book != null) {
-			VerseList versesToReturn = new VerseList(this.getVersion(), book.toString());
-			versesToReturn.addAll(getVersesInclusive(new Reference(book, chapter, 1),
-					new Reference(book, chapter, getLastVerseNumber(book, chapter))));
-			return versesToReturn;
+			return getVersesInclusive(book.toString(), new Reference(book, chapter, 1),
+					new Reference(book, chapter, getLastVerseNumber(book, chapter)));
 		}
 		return new VerseList(this.getVersion(), "");
 	}
@@ -365,10 +297,8 @@ public class ArrayListBible implements Bible {
 	@Override
 	public VerseList getChapters(BookOfBible book, int chapter1, int chapter2) {
 		if (book != null) {
-			VerseList versesToReturn = new VerseList(this.getVersion(), book.toString());
-			versesToReturn.addAll(getVersesInclusive(new Reference(book, chapter1, 1),
-					new Reference(book, chapter2, getLastVerseNumber(book, chapter2))));
-			return versesToReturn;
+			return getVersesInclusive(book.toString(), new Reference(book, chapter1, 1),
+					new Reference(book, chapter2, getLastVerseNumber(book, chapter2)));
 		}
 		return new VerseList(this.getVersion(), "");
 	}
@@ -376,10 +306,8 @@ public class ArrayListBible implements Bible {
 	@Override
 	public VerseList getPassage(BookOfBible book, int chapter, int verse1, int verse2) {
 		if (book != null) {
-			VerseList versesToReturn = new VerseList(this.getVersion(), book.toString());
-			versesToReturn.addAll(
-					getVersesInclusive(new Reference(book, chapter, verse1), new Reference(book, chapter, verse2)));
-			return versesToReturn;
+			return getVersesInclusive(book.toString(), new Reference(book, chapter, verse1),
+					new Reference(book, chapter, verse2));
 		}
 		return new VerseList(this.getVersion(), "");
 	}
@@ -387,11 +315,46 @@ public class ArrayListBible implements Bible {
 	@Override
 	public VerseList getPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
 		if (book != null) {
-			VerseList versesToReturn = new VerseList(this.getVersion(), book.toString());
-			versesToReturn.addAll(
-					getVersesInclusive(new Reference(book, chapter1, verse1), new Reference(book, chapter2, verse2)));
-			return versesToReturn;
+			return getVersesInclusive(book.toString(), new Reference(book, chapter1, verse1),
+					new Reference(book, chapter2, verse2));
 		}
 		return new VerseList(this.getVersion(), "");
 	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * The position of the first verse with the given reference, or -1.
+	 */
+	private int indexOf(Reference ref) {
+		for (int i = 0; i < verses.size(); i++) {
+			if (verses.get(i).getReference().equals(ref)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * The verses from firstVerse to lastVerse, as a view of the verses of this
+	 * Bible, or an empty list if either isn't in this Bible.
+	 */
+	private VerseList getVersesInclusive(String description, Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0 || !isValid(firstVerse) || !isValid(lastVerse)) {
+			return new VerseList(this.getVersion(), description);
+		}
+		int firstVerseIndex = indexOf(firstVerse);
+		int end = firstVerseIndex;
+		while (end < verses.size() && verses.get(end).getReference().compareTo(lastVerse) < 0) {
+			end++;
+		}
+		if (end < verses.size() && verses.get(end).getReference().equals(lastVerse)) {
+			return new VerseListView(this.getVersion(), description, verses.subList(firstVerseIndex, end + 1));
+		}
+		// The verses are out of order, so lastVerse is somewhere else.
+		VerseList versesToReturn = new VerseList(this.getVersion(), description, verses.subList(firstVerseIndex, end));
+		versesToReturn.add(getVerse(lastVerse));
+		return versesToReturn;
+	}
 }
@@ -11,7 +11,7 @@ public class BibleFactory {
 
 	public static Bible createBible(VerseList verses) {
 		// return new ArrayListBible(verses);
-		return new TreeMapBible(verses);
+		return new PackedArrayBible(verses);
 	}
 
 	public static Concordance createConcordance(Bible bible) {
@@ -3,106 +3,212 @@ package bibleReader.model;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The model of the Bible Reader. It stores the Bibles and has methods for
  * searching for verses based on words or references.
  * 
+ * It is safe to use from many threads at once. Queries don't lock: each one
+ * works with the Bibles that were in the model when it started, even if
+ * Bibles are added, removed or replaced while it runs.
+ * 
+ * The references for the most recently used passages are cached, by passage
+ * after parsing, so "Jn 3" and "John 3" are the same passage. The number kept
+ * is read from the system property <code>bibleReader.passageCacheSize</code>
+ * (0 to turn the cache off). The results of word and phrase searches are
+ * cached too, by the words and phrases searched for, up to
+ * <code>bibleReader.queryCacheBudget</code> bytes. Adding, removing or
+ * replacing a Bible empties the caches.
+ * 
  * @author cusack
  * @author Jonathan Chaffer & Jacob Lahr (2018)
  */
 public class BibleReaderModel implements MultiBibleModel {
-	private HashMap<Bible, Concordance> bibles;
-
-	// regex code for a number with/without spaces on either side
-	public static final String number = "\\s*(\\d+)\\s*";
-	// pattern for the book
-	public static Pattern bookPattern = Pattern.compile("((?:1|2|3|I|II|III)\\s*\\w+|(?:\\s*[a-zA-Z]+)+)\\s*(.*)");
-	// pattern for one chapter and one verse, e.g. "3:16"
-	public static Pattern oneChapterOneVersePattern = Pattern.compile(number + ":" + number);
-	// pattern for one chapter and multiple verses, e.g. "3:16-17"
-	public static Pattern oneChapterMultipleVersesPattern = Pattern.compile(number + ":" + number + "-" + number);
-	// pattern for one chapter, e.g. "1"
-	public static Pattern oneChapterPattern = Pattern.compile(number);
-	// pattern for multiple chapters, e.g. "1-3"
-	public static Pattern multipleChaptersPattern = Pattern.compile(number + "(?:-)" + number);
-	// pattern for multiple chapters and multiple verses, e.g. "1:5-3:4"
-	public static Pattern multipleChaptersMultipleVersesPattern = Pattern
-			.compile(number + ":" + number + "-" + number + ":" + number);
-	// pattern for weird syntax, e.g. "2-3:16"
-	public static Pattern strangeSyntaxPattern = Pattern.compile(number + "-" + number + ":" + number);
+	/**
+	 * The system property that sets the number of passages cached.
+	 */
+	public static final String PASSAGE_CACHE_PROPERTY = "bibleReader.passageCacheSize";
+	/**
+	 * The number of passages cached when the property isn't set.
+	 */
+	public static final int DEFAULT_PASSAGE_CACHE_SIZE = 256;
+	/**
+	 * The system property that sets the most memory the cached search results
+	 * may take, in bytes.
+	 */
+	public static final String QUERY_CACHE_PROPERTY = "bibleReader.queryCacheBudget";
+	/**
+	 * The most memory the cached search results take when the property isn't
+	 * set: enough for the results of hundreds of searches for common words.
+	 */
+	public static final long DEFAULT_QUERY_CACHE_BUDGET = 8L << 20;
+
+	// The Bibles, by version. Adding or removing a Bible swaps in a new
+	// registry, so a query that has got the registry sees the same Bibles
+	// until it is done, without locking.
+	private AtomicReference<Registry> registry;
+	// The references for each passage, for the registry they were found in.
+	private LruCache<CacheKey, ReferenceList> passageCache;
+	// The packed ids of the references found by each search, for the
+	// registry they were found in. They take a quarter of the memory of a
+	// ReferenceList.
+	private LruCache<CacheKey, int[]> queryCache;
 
 	/**
 	 * Default constructor. You probably need to instantiate objects and do
 	 * other assorted things to set up the model.
 	 */
 	public BibleReaderModel() {
-		bibles = new HashMap<Bible, Concordance>();
+		registry = new AtomicReference<Registry>(new Registry(new Bible[0], new Concordance[0], 0));
+		passageCache = new LruCache<CacheKey, ReferenceList>(
+				Integer.getInteger(PASSAGE_CACHE_PROPERTY, DEFAULT_PASSAGE_CACHE_SIZE));
+		queryCache = new LruCache<CacheKey, int[]>(Long.getLong(QUERY_CACHE_PROPERTY, DEFAULT_QUERY_CACHE_BUDGET)) {
+			@Override
+			protected long weigh(int[] ids) {
+				// The array and the map entry and key that hold it.
+				return 4L * ids.length + 128;
+			}
+		};
 	}
 
 	@Override
 	public String[] getVersions() {
-		String[] versionsToReturn = new String[bibles.size()];
-		for (int i = 0; i < bibles.size(); i++) {
-			versionsToReturn[i] = bibles.keySet().toArray(new Bible[bibles.size()])[i].getVersion();
-		}
-		Arrays.sort(versionsToReturn);
-		return versionsToReturn;
+		return registry.get().versions.clone();
 	}
 
 	@Override
 	public int getNumberOfVersions() {
-		return getVersions().length;
+		return registry.get().versions.length;
 	}
 
 	@Override
 	public void addBible(Bible bible) {
-		bibles.put(bible, BibleFactory.createConcordance(bible));
+		addBible(bible, BibleFactory.createConcordance(bible));
+	}
+
+	/**
+	 * Add a Bible whose Concordance has already been built, e.g. by a
+	 * BibleLoader on another thread.
+	 *
+	 * @param bible
+	 *            the Bible to add.
+	 * @param concordance
+	 *            the Concordance for that Bible.
+	 */
+	public void addBible(Bible bible, Concordance concordance) {
+		Registry current;
+		do {
+			current = registry.get();
+		} while (!registry.compareAndSet(current, current.with(bible, concordance)));
+		clearCaches();
+	}
+
+	@Override
+	public Bible removeBible(String version) {
+		Registry current;
+		do {
+			current = registry.get();
+		} while (!registry.compareAndSet(current, current.without(version)));
+		clearCaches();
+		return current.bibleMap.get(version);
+	}
+
+	@Override
+	public Bible replaceBible(Bible bible) {
+		return replaceBible(bible, BibleFactory.createConcordance(bible));
+	}
+
+	/**
+	 * Replace the Bibles with the same version as this one, e.g. when a
+	 * translation is reloaded, with a Concordance that has already been built.
+	 * Queries that have already started finish with the old Bibles.
+	 *
+	 * @param bible
+	 *            the new Bible.
+	 * @param concordance
+	 *            the Concordance for that Bible.
+	 * @return the Bible that had that version, or null if there wasn't one.
+	 */
+	public Bible replaceBible(Bible bible, Concordance concordance) {
+		Registry current;
+		do {
+			current = registry.get();
+		} while (!registry.compareAndSet(current, current.without(bible.getVersion()).with(bible, concordance)));
+		clearCaches();
+		return current.bibleMap.get(bible.getVersion());
 	}
 
 	@Override
 	public Bible getBible(String version) {
-		for (Bible bible : bibles.keySet()) {
-			if (bible.getVersion().equals(version)) {
-				return bible;
-			}
-		}
-		return null;
+		return registry.get().bibleMap.get(version);
 	}
 
 	@Override
 	public ReferenceList getReferencesContaining(String words) {
-		TreeSet<Reference> refsToReturn = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			for (Reference ref : bible.getReferencesContaining(words)) {
-				refsToReturn.add(ref);
+		return getReferencesContaining(registry.get().bibles, words);
+	}
+
+	/**
+	 * Search for a phrase, like {@link #getReferencesContaining(String)}, and
+	 * find where it is in each verse found, in each version, so that the
+	 * matches can be shown without looking for them again.
+	 *
+	 * @param phrase
+	 *            the phrase to look for, ignoring case.
+	 * @return the verses the phrase is in, and where it is in them.
+	 */
+	public PhraseMatches getMatchesContaining(String phrase) {
+		Registry current = registry.get();
+		Bible[] bibles = new Bible[current.versions.length];
+		for (int i = 0; i < bibles.length; i++) {
+			bibles[i] = current.bibleMap.get(current.versions[i]);
+		}
+		return new PhraseMatches(phrase, getReferencesContaining(current.bibles, phrase), current.versions, bibles);
+	}
+
+	/*
+	 * The references of the verses containing the words in any of the Bibles.
+	 */
+	private static ReferenceList getReferencesContaining(Bible[] bibles, final String words) {
+		if (ParallelSearch.isEnabled() && bibles.length > 1) {
+			// Search the Bibles at the same time.
+			ArrayList<Callable<ReferenceList>> searches = new ArrayList<Callable<ReferenceList>>();
+			for (final Bible bible : bibles) {
+				searches.add(new Callable<ReferenceList>() {
+					public ReferenceList call() {
+						return bible.getReferencesContaining(words);
+					}
+				});
 			}
+			return union(ParallelSearch.invokeAll(searches));
+		}
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : bibles) {
+			refs.add(bible.getReferencesContaining(words));
 		}
-		return new ReferenceList(refsToReturn);
+		return union(refs);
 	}
 
 	@Override
 	public VerseList getVerses(String version, ReferenceList references) {
-		for (Bible bible : bibles.keySet()) {
-			if (bible.getVersion().equals(version)) {
-				return bible.getVerses(references);
-			}
+		Bible bible = registry.get().bibleMap.get(version);
+		if (bible != null) {
+			return bible.getVerses(references);
 		}
 		return null;
 	}
 
 	@Override
 	public String getText(String version, Reference reference) {
-		for (Bible bible : bibles.keySet()) {
-			if (bible.getVersion().equals(version)) {
-				if (bible.getVerse(reference) != null) {
-					return bible.getVerse(reference).getText();
-				} else {
-					return "";
-				}
+		Bible bible = registry.get().bibleMap.get(version);
+		if (bible != null) {
+			String text = bible.getVerseText(reference);
+			if (text != null) {
+				return text;
 			}
 		}
 		return "";
@@ -110,193 +216,477 @@ public class BibleReaderModel implements MultiBibleModel {
 
 	@Override
 	public ReferenceList getReferencesForPassage(String reference) {
-		TreeSet<Reference> refsToReturn = new TreeSet<Reference>();
-
-		BookOfBible book;
-		int chapter1;
-		int chapter2;
-		int verse1;
-		int verse2;
-		String other = "";
-
-		Matcher m = bookPattern.matcher(reference);
-
-		if (m.matches()) {
-			// It matches. Good.
-			book = BookOfBible.getBookOfBible(m.group(1));
-			if (book == null) {
-				return new ReferenceList(refsToReturn);
-			}
-			other = m.group(2);
-			// Now we need to parse other to see what format it is.
-			try {
-				if (other.length() == 0) {
-					refsToReturn.addAll(getBookReferences(book));
-				} else if ((m = oneChapterOneVersePattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					verse1 = Integer.parseInt(m.group(2));
-					refsToReturn.addAll(getVerseReferences(book, chapter1, verse1));
-				} else if ((m = oneChapterMultipleVersesPattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					verse1 = Integer.parseInt(m.group(2));
-					verse2 = Integer.parseInt(m.group(3));
-					refsToReturn.addAll(getPassageReferences(book, chapter1, verse1, verse2));
-				} else if ((m = oneChapterPattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					refsToReturn.addAll(getChapterReferences(book, chapter1));
-				} else if ((m = multipleChaptersPattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					chapter2 = Integer.parseInt(m.group(2));
-					refsToReturn.addAll(getChapterReferences(book, chapter1, chapter2));
-				} else if ((m = multipleChaptersMultipleVersesPattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					verse1 = Integer.parseInt(m.group(2));
-					chapter2 = Integer.parseInt(m.group(3));
-					verse2 = Integer.parseInt(m.group(4));
-					refsToReturn.addAll(getPassageReferences(book, chapter1, verse1, chapter2, verse2));
-				} else if ((m = strangeSyntaxPattern.matcher(other)).matches()) {
-					chapter1 = Integer.parseInt(m.group(1));
-					verse1 = 1;
-					chapter2 = Integer.parseInt(m.group(2));
-					verse2 = Integer.parseInt(m.group(3));
-					refsToReturn.addAll(getPassageReferences(book, chapter1, verse1, chapter2, verse2));
-				} else {
-				}
-			} catch (NumberFormatException e) {
-				return new ReferenceList(refsToReturn);
+		List<Passage> passages = PassageParser.parse(reference);
+		if (passages == null) {
+			return new ReferenceList();
+		}
+		Registry current = registry.get();
+		CacheKey key = new CacheKey(current.generation, passages);
+		ReferenceList cached = passageCache.get(key);
+		if (cached == null) {
+			// Every passage is found in the same Bibles, and the lists are all
+			// merged at once.
+			ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+			for (Passage passage : passages) {
+				addReferences(current.bibles, passage, refs);
 			}
+			cached = union(refs);
+			passageCache.put(key, cached);
 		}
-		return new ReferenceList(refsToReturn);
+		// The cached list mustn't be changed by the caller.
+		return new ReferenceList(cached);
+	}
+
+	/**
+	 * @return the number of times a passage's references were found in the
+	 *         cache.
+	 */
+	public long getPassageCacheHits() {
+		return passageCache.getHits();
+	}
+
+	/**
+	 * @return the number of times a passage's references weren't in the cache
+	 *         and had to be looked up.
+	 */
+	public long getPassageCacheMisses() {
+		return passageCache.getMisses();
+	}
+
+	/**
+	 * Change the number of passages whose references are cached.
+	 *
+	 * @param size
+	 *            the number of passages. 0 turns the cache off.
+	 */
+	public void setPassageCacheSize(int size) {
+		passageCache.setCapacity(size);
 	}
 
 	@Override
 	public ReferenceList getVerseReferences(BookOfBible book, int chapter, int verse) {
 		Reference ref = new Reference(book, chapter, verse);
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
+		ReferenceList refs = new ReferenceList(1);
+		for (Bible bible : registry.get().bibles) {
 			Verse v = bible.getVerse(ref);
 			if (v != null) {
 				refs.add(v.getReference());
+				break;
 			}
 		}
-		return new ReferenceList(refs);
+		return refs;
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(Reference startVerse, Reference endVerse) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesInclusive(startVerse, endVerse));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesInclusive(startVerse, endVerse));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getBookReferences(BookOfBible book) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesForBook(book));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesForBook(book));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getChapterReferences(BookOfBible book, int chapter) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesForChapter(book, chapter));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesForChapter(book, chapter));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getChapterReferences(BookOfBible book, int chapter1, int chapter2) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesForChapters(book, chapter1, chapter2));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesForChapters(book, chapter1, chapter2));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(BookOfBible book, int chapter, int verse1, int verse2) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesForPassage(book, chapter, verse1, verse2));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesForPassage(book, chapter, verse1, verse2));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
-		TreeSet<Reference> refs = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refs.addAll(bible.getReferencesForPassage(book, chapter1, verse1, chapter2, verse2));
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Bible bible : registry.get().bibles) {
+			refs.add(bible.getReferencesForPassage(book, chapter1, verse1, chapter2, verse2));
 		}
-		return new ReferenceList(refs);
+		return union(refs);
 	}
 
 	@Override
 	public ReferenceList getReferencesContainingWord(String word) {
-		TreeSet<Reference> refsSet = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refsSet.addAll(bibles.get(bible).getReferencesContaining(word));
+		Registry current = registry.get();
+		CacheKey key = new CacheKey(current.generation, new WordsQuery(word));
+		ReferenceList refs = getCachedReferences(key);
+		if (refs == null) {
+			ArrayList<ReferenceList> refsForWord = new ArrayList<ReferenceList>();
+			for (Concordance concordance : current.concordances) {
+				refsForWord.add(concordance.getReferencesContaining(word));
+			}
+			refs = union(refsForWord);
+			cacheReferences(key, refs);
 		}
-		return new ReferenceList(refsSet);
+		return refs;
 	}
 
 	@Override
 	public ReferenceList getReferencesContainingAllWords(String words) {
 		ArrayList<String> wordsList = Concordance.extractWords(words);
-		TreeSet<Reference> refsSet = new TreeSet<Reference>();
-		for (Bible bible : bibles.keySet()) {
-			refsSet.addAll(bibles.get(bible).getReferencesContainingAll(wordsList));
+		Registry current = registry.get();
+		CacheKey key = new CacheKey(current.generation, new WordsQuery(wordsList, new ArrayList<String>()));
+		ReferenceList refs = getCachedReferences(key);
+		if (refs == null) {
+			refs = getReferencesContainingAllWords(current.concordances, wordsList);
+			cacheReferences(key, refs);
 		}
-		return new ReferenceList(refsSet);
+		return refs;
 	}
 
 	@Override
 	public ReferenceList getReferencesContainingAllWordsAndPhrases(String words) {
-		String input = words;
-		boolean thereArePhrases = false;
-
-		TreeSet<Reference> refsForPhrases = new TreeSet<Reference>();
-
+		// The phrases are the parts in pairs of quotes.
 		ArrayList<String> phrases = new ArrayList<String>();
-		Pattern quotePattern = Pattern.compile("\"([^\"]*)\"");
-		Matcher matcher = quotePattern.matcher(input);
-		if (input.matches("(.*)(\"([^\"]*)\")+(.*)")) {
-			thereArePhrases = true;
-			while (matcher.find()) {
-				phrases.add(matcher.group(1).toLowerCase());
+		int open = words.indexOf('"');
+		while (open >= 0) {
+			int close = words.indexOf('"', open + 1);
+			if (close < 0) {
+				break;
 			}
+			String phrase = words.substring(open + 1, close);
+			// A phrase with no words in it doesn't rule anything out.
+			if (!Concordance.extractWords(phrase).isEmpty()) {
+				phrases.add(phrase);
+			}
+			open = words.indexOf('"', close + 1);
 		}
 
-		ReferenceList refsForWords = getReferencesContainingAllWords(input);
-		if (!thereArePhrases) {
+		// Both halves of the search use the same Bibles, even if one is added
+		// in between.
+		ArrayList<String> wordsList = Concordance.extractWords(words);
+		Registry current = registry.get();
+		CacheKey key = new CacheKey(current.generation, new WordsQuery(wordsList, phrases));
+		ReferenceList refs = getCachedReferences(key);
+		if (refs != null) {
+			return refs;
+		}
+		ReferenceList refsForWords = getReferencesContainingAllWords(current.concordances, wordsList);
+		if (phrases.isEmpty()) {
+			cacheReferences(key, refsForWords);
 			return refsForWords;
 		}
 
-		for (Bible bible : bibles.keySet()) {
-			for (Reference ref : refsForWords) {
-				int phrasesInTheVerse = 0;
-				for (String phrase : phrases) {
-					if (bible.getVerseText(ref) != null) {
-						if (bible.getVerseText(ref).matches("(?i).*(?<!\\w)" + phrase + "(?!\\w).*")) {
-							phrasesInTheVerse++;
-						}
-					}
+		ArrayList<ReferenceList> refsForPhrases = new ArrayList<ReferenceList>();
+		for (Concordance concordance : current.concordances) {
+			refsForPhrases.add(concordance.getReferencesContainingAllPhrases(phrases));
+		}
+		refs = new ReferenceList(refsForWords.size());
+		SortedLists.intersection(refsForWords, union(refsForPhrases), refs);
+		cacheReferences(key, refs);
+		return refs;
+	}
+
+	/**
+	 * @return the number of times the results of a word or phrase search were
+	 *         found in the cache.
+	 */
+	public long getQueryCacheHits() {
+		return queryCache.getHits();
+	}
+
+	/**
+	 * @return the number of times the results of a word or phrase search
+	 *         weren't in the cache and had to be found.
+	 */
+	public long getQueryCacheMisses() {
+		return queryCache.getMisses();
+	}
+
+	/**
+	 * Change the most memory that the cached results of word and phrase
+	 * searches may take.
+	 *
+	 * @param bytes
+	 *            the budget in bytes. 0 turns the cache off.
+	 */
+	public void setQueryCacheBudget(long bytes) {
+		queryCache.setCapacity(bytes);
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * The references that are in any of the lists, in order and once each.
+	 * Each Bible's lists are already in order, so they are merged rather than
+	 * sorted again.
+	 */
+	private static ReferenceList union(List<ReferenceList> lists) {
+		ReferenceList refs = new ReferenceList(SortedLists.totalSize(lists));
+		SortedLists.union(lists, refs);
+		return refs;
+	}
+
+	/*
+	 * Add the references for the passage from each of the Bibles to refs.
+	 */
+	private static void addReferences(Bible[] bibles, Passage passage, List<ReferenceList> refs) {
+		BookOfBible book = passage.getBookOfBible();
+		int chapter1 = passage.getFirstChapter();
+		int verse1 = passage.getFirstVerse();
+		int chapter2 = passage.getLastChapter();
+		int verse2 = passage.getLastVerse();
+		if (passage.getKind() == Passage.Kind.VERSE) {
+			// It is the same verse in all of them, so the first one will do.
+			Reference ref = new Reference(book, chapter1, verse1);
+			for (Bible bible : bibles) {
+				Verse verse = bible.getVerse(ref);
+				if (verse != null) {
+					ReferenceList found = new ReferenceList(1);
+					found.add(verse.getReference());
+					refs.add(found);
+					return;
 				}
-				if (phrasesInTheVerse == phrases.size()) {
-					refsForPhrases.add(ref);
+			}
+			return;
+		}
+		for (Bible bible : bibles) {
+			switch (passage.getKind()) {
+			case BOOK:
+				refs.add(bible.getReferencesForBook(book));
+				break;
+			case CHAPTER:
+				refs.add(bible.getReferencesForChapter(book, chapter1));
+				break;
+			case CHAPTERS:
+				refs.add(bible.getReferencesForChapters(book, chapter1, chapter2));
+				break;
+			case VERSES:
+				refs.add(bible.getReferencesForPassage(book, chapter1, verse1, verse2));
+				break;
+			default:
+				refs.add(bible.getReferencesForPassage(book, chapter1, verse1, chapter2, verse2));
+				break;
+			}
+		}
+	}
+
+	private static ReferenceList getReferencesContainingAllWords(Concordance[] concordances,
+			ArrayList<String> wordsList) {
+		ArrayList<ReferenceList> refs = new ArrayList<ReferenceList>();
+		for (Concordance concordance : concordances) {
+			refs.add(concordance.getReferencesContainingAll(wordsList));
+		}
+		return union(refs);
+	}
+
+	/*
+	 * The references with the packed ids in the cache for the key, or null if
+	 * they aren't there. The shared Reference is used if there is one, but new
+	 * ones aren't shared, since the Bibles they came from may be gone.
+	 */
+	private ReferenceList getCachedReferences(CacheKey key) {
+		int[] ids = queryCache.get(key);
+		if (ids == null) {
+			return null;
+		}
+		ReferenceList refs = new ReferenceList(ids.length);
+		for (int id : ids) {
+			BookOfBible book = Reference.unpackBook(id);
+			int chapter = Reference.unpackChapter(id);
+			int verse = Reference.unpackVerse(id);
+			Reference ref = Reference.lookup(book, chapter, verse);
+			refs.add(ref != null ? ref : new Reference(book, chapter, verse));
+		}
+		return refs;
+	}
+
+	/*
+	 * Cache the packed ids of the references, unless one can't be packed.
+	 */
+	private void cacheReferences(CacheKey key, ReferenceList refs) {
+		int[] ids = new int[refs.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = refs.get(i).getPackedId();
+			if (ids[i] < 0) {
+				return;
+			}
+		}
+		queryCache.put(key, ids);
+	}
+
+	private void clearCaches() {
+		passageCache.clear();
+		queryCache.clear();
+	}
+
+	/*
+	 * What a word or phrase search was looking for, in a form that is the same
+	 * for searches that find the same verses: the words in lower case and in
+	 * order without repeats, and the same for the phrases (which are looked
+	 * for as they are, so only their case is changed).
+	 */
+	private static final class WordsQuery {
+		// Whether this is a search for a single word as it is, rather than for
+		// the words in some text.
+		final boolean oneWord;
+		final TreeSet<String> words;
+		final TreeSet<String> phrases;
+
+		WordsQuery(String word) {
+			oneWord = true;
+			words = new TreeSet<String>();
+			words.add(word.toLowerCase());
+			phrases = new TreeSet<String>();
+		}
+
+		WordsQuery(List<String> wordsList, List<String> phrasesList) {
+			oneWord = false;
+			words = new TreeSet<String>();
+			for (String word : wordsList) {
+				words.add(word.toLowerCase());
+			}
+			phrases = new TreeSet<String>();
+			for (String phrase : phrasesList) {
+				phrases.add(phrase.toLowerCase());
+			}
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof WordsQuery)) {
+				return false;
+			}
+			WordsQuery query = (WordsQuery) other;
+			return oneWord == query.oneWord && words.equals(query.words) && phrases.equals(query.phrases);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Boolean.hashCode(oneWord) + words.hashCode()) + phrases.hashCode();
+		}
+	}
+
+	/*
+	 * What a query was and which registry it was answered with, as a key for
+	 * a cache. A registry's generation is different from all of the registries
+	 * before it, so a result for other Bibles is never found.
+	 */
+	private static final class CacheKey {
+		final long generation;
+		final Object query;
+
+		CacheKey(long generation, Object query) {
+			this.generation = generation;
+			this.query = query;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey key = (CacheKey) other;
+			return generation == key.generation && query.equals(key.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(generation) + query.hashCode();
+		}
+	}
+
+	/*
+	 * The Bibles and their concordances, sorted by version, and the Bible for
+	 * each version. If two Bibles have the same version, both are searched but
+	 * the first one added is the one found by version. A registry never
+	 * changes; adding or removing a Bible makes a new one.
+	 */
+	private static class Registry {
+		final String[] versions;
+		final Bible[] bibles;
+		final Concordance[] concordances;
+		final HashMap<String, Bible> bibleMap;
+		// One more than that of the registry this was made from.
+		final long generation;
+
+		/*
+		 * The bibles must be sorted by version.
+		 */
+		Registry(Bible[] bibles, Concordance[] concordances, long generation) {
+			this.bibles = bibles;
+			this.generation = generation;
+			this.concordances = concordances;
+			versions = new String[bibles.length];
+			bibleMap = new HashMap<String, Bible>(bibles.length * 2);
+			for (int i = 0; i < bibles.length; i++) {
+				versions[i] = bibles[i].getVersion();
+				if (!bibleMap.containsKey(versions[i])) {
+					bibleMap.put(versions[i], bibles[i]);
 				}
 			}
 		}
 
-		input = input.replaceAll("\"([^\"]*)\"", "");
+		/*
+		 * A copy of this registry with another Bible added after any with the
+		 * same version.
+		 */
+		Registry with(Bible bible, Concordance concordance) {
+			int index = 0;
+			while (index < versions.length && compare(versions[index], bible.getVersion()) <= 0) {
+				index++;
+			}
+			Bible[] newBibles = new Bible[bibles.length + 1];
+			Concordance[] newConcordances = new Concordance[bibles.length + 1];
+			System.arraycopy(bibles, 0, newBibles, 0, index);
+			System.arraycopy(concordances, 0, newConcordances, 0, index);
+			newBibles[index] = bible;
+			newConcordances[index] = concordance;
+			System.arraycopy(bibles, index, newBibles, index + 1, bibles.length - index);
+			System.arraycopy(concordances, index, newConcordances, index + 1, bibles.length - index);
+			return new Registry(newBibles, newConcordances, generation + 1);
+		}
+
+		/*
+		 * A copy of this registry without the Bibles with the version.
+		 */
+		Registry without(String version) {
+			Bible[] newBibles = new Bible[bibles.length];
+			Concordance[] newConcordances = new Concordance[bibles.length];
+			int size = 0;
+			for (int i = 0; i < bibles.length; i++) {
+				if (compare(versions[i], version) != 0) {
+					newBibles[size] = bibles[i];
+					newConcordances[size++] = concordances[i];
+				}
+			}
+			return new Registry(Arrays.copyOf(newBibles, size), Arrays.copyOf(newConcordances, size),
+					generation + 1);
+		}
 
-		ArrayList<String> otherWords = Concordance.extractWords(input);
-		refsForWords.retainAll(refsForPhrases);
-		return new ReferenceList(refsForWords);
+		private static int compare(String first, String second) {
+			// A Bible without a version goes first.
+			if (first == null || second == null) {
+				return first == null ? (second == null ? 0 : -1) : 1;
+			}
+			return first.compareTo(second);
+		}
 	}
 }
@@ -0,0 +1,180 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+
+/**
+ * The names and abbreviations of the books of the Bible, in a trie so that a
+ * name can be looked up one character at a time straight from the text it is
+ * in, without making a String of it first. Upper and lower case are the same
+ * and whitespace is ignored, so "1 John", "1john" and "1 JOHN" are all the
+ * same name. When names typed by a user are looked up, a name that starts
+ * with 1, 2 or 3 can also start with I, II or III (e.g. "II Kings"), and the
+ * start of a name is enough if it is only the start of one book's names.
+ *
+ * @author Jonathan Chaffer
+ */
+class BookNameTrie {
+	// a-z and 0-9
+	private static final int ALPHABET = 36;
+
+	// The Fields
+	// The child of node n for character c is next[n * ALPHABET + c], or 0 if
+	// there isn't one. Node 0 is the root, which is nobody's child.
+	private char[] next;
+	// The book whose name ends at each node, if any.
+	private BookOfBible[] books;
+	// The book whose name ends at each node with I, II or III instead of 1, 2
+	// or 3, if any.
+	private BookOfBible[] romanBooks;
+	// The book of all of the names that go through each node, if they are all
+	// the same book.
+	private BookOfBible[] prefixBooks;
+	// Whether the names through each node are for more than one book.
+	private boolean[] ambiguous;
+	private int size;
+
+	BookNameTrie() {
+		next = new char[64 * ALPHABET];
+		books = new BookOfBible[64];
+		romanBooks = new BookOfBible[64];
+		prefixBooks = new BookOfBible[64];
+		ambiguous = new boolean[64];
+		size = 1;
+	}
+
+	/**
+	 * Add a name, and if it starts with 1, 2 or 3, the same name starting with
+	 * I, II or III instead.
+	 *
+	 * @param name
+	 *            the name, in lower case letters and digits.
+	 * @param book
+	 *            the book with that name.
+	 */
+	void put(String name, BookOfBible book) {
+		// add can grow the arrays, so it has to be called first.
+		int node = add(name, book);
+		books[node] = book;
+		String roman = null;
+		if (name.startsWith("1")) {
+			roman = "i";
+		} else if (name.startsWith("2")) {
+			roman = "ii";
+		} else if (name.startsWith("3")) {
+			roman = "iii";
+		}
+		if (roman != null) {
+			node = add(roman + name.substring(1), book);
+			romanBooks[node] = book;
+		}
+	}
+
+	/**
+	 * Look up the name between start (inclusive) and end (exclusive) of text.
+	 *
+	 * @param text
+	 *            the text the name is in.
+	 * @param start
+	 *            where the name starts.
+	 * @param end
+	 *            where the name ends.
+	 * @param lenient
+	 *            whether the name can also start with I, II or III instead of
+	 *            1, 2 or 3, or be the start of the names of just one book, e.g.
+	 *            "Phile" for Philemon.
+	 * @return the book, or null if there isn't a book with that name.
+	 */
+	BookOfBible get(CharSequence text, int start, int end, boolean lenient) {
+		int node = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (isSpace(c)) {
+				continue;
+			}
+			int index = indexOf(c);
+			if (index < 0) {
+				return null;
+			}
+			node = next[node * ALPHABET + index];
+			if (node == 0) {
+				return null;
+			}
+		}
+		if (books[node] != null || !lenient || node == 0) {
+			return books[node];
+		}
+		if (romanBooks[node] != null) {
+			return romanBooks[node];
+		}
+		return ambiguous[node] ? null : prefixBooks[node];
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * Add the nodes for a name, and return the one it ends at.
+	 */
+	private int add(String name, BookOfBible book) {
+		int node = 0;
+		for (int i = 0; i < name.length(); i++) {
+			int index = indexOf(name.charAt(i));
+			if (index < 0) {
+				throw new IllegalArgumentException("Book names can only have letters and digits: " + name);
+			}
+			int child = next[node * ALPHABET + index];
+			if (child == 0) {
+				child = newNode();
+				next[node * ALPHABET + index] = (char) child;
+			}
+			node = child;
+			if (prefixBooks[node] == null) {
+				prefixBooks[node] = book;
+			} else if (prefixBooks[node] != book) {
+				ambiguous[node] = true;
+			}
+		}
+		return node;
+	}
+
+	private int newNode() {
+		if (size == books.length) {
+			int capacity = size * 2;
+			next = Arrays.copyOf(next, capacity * ALPHABET);
+			books = Arrays.copyOf(books, capacity);
+			romanBooks = Arrays.copyOf(romanBooks, capacity);
+			prefixBooks = Arrays.copyOf(prefixBooks, capacity);
+			ambiguous = Arrays.copyOf(ambiguous, capacity);
+		}
+		return size++;
+	}
+
+	/*
+	 * The position of c in the alphabet, ignoring case, or -1 if it isn't a
+	 * letter or digit.
+	 */
+	private static int indexOf(char c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a';
+		} else if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		} else if (c >= '0' && c <= '9') {
+			return 26 + c - '0';
+		} else if (c >= 128) {
+			// Some other letters are the same as a-z in lower case (e.g. the
+			// Kelvin sign).
+			char lower = Character.toLowerCase(c);
+			if (lower >= 'a' && lower <= 'z') {
+				return lower - 'a';
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * The same characters as \s in a regular expression.
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
@@ -1,7 +1,5 @@
 package bibleReader.model;
 
-import java.util.TreeMap;
-
 /**
  * An Enum that stores all 66 books of the bible. This class helps us in several ways. It gives us a way to order the
  * books by the normal order they appear as well as allowing us to store several abbreviations for each.
@@ -87,20 +85,43 @@ public enum BookOfBible {
 	 * @return The corresponding BookOfBible object, or null if it isn't listed.
 	 */
 	public static BookOfBible getBookOfBible(String abbrev) {
-		String abb = abbrev.toLowerCase().replaceAll("\\s", "");
-		BookOfBible book = theBooks.get(abb);
-		return book;
+		return theBooks.get(abbrev, 0, abbrev.length(), false);
+	}
+
+	/**
+	 * Look up the abbreviation between start and end of text without making a String of it. Case and whitespace are
+	 * ignored, the same as getBookOfBible(String).
+	 * 
+	 * @param text The text the abbreviation is in.
+	 * @param start Where the abbreviation starts.
+	 * @param end Where the abbreviation ends (exclusive).
+	 * @return The corresponding BookOfBible object, or null if it isn't listed.
+	 */
+	public static BookOfBible getBookOfBible(CharSequence text, int start, int end) {
+		return theBooks.get(text, start, end, false);
+	}
+
+	/**
+	 * Like {@link #getBookOfBible(CharSequence, int, int)}, but I, II or III can be used instead of 1, 2 or 3 (e.g.
+	 * "II Kings"), and the abbreviation can also be the start of the names of just one book, e.g. "Phili" for
+	 * Philippians and "Phile" for Philemon. This is for names typed by a user.
+	 * 
+	 * @param text The text the abbreviation is in.
+	 * @param start Where the abbreviation starts.
+	 * @param end Where the abbreviation ends (exclusive).
+	 * @return The corresponding BookOfBible object, or null if it isn't listed or could be more than one book.
+	 */
+	public static BookOfBible findBookOfBible(CharSequence text, int start, int end) {
+		return theBooks.get(text, start, end, true);
 	}
 
 	/*
-	 * We create a Map of abbreviations to BookOfBible objects so we can use it to look up abbreviations (see method
-	 * above).
+	 * We put the abbreviations of each book in a trie so we can use it to look up abbreviations (see methods above).
 	 */
-	private static TreeMap<String, BookOfBible>	theBooks	= null;
+	private static BookNameTrie	theBooks	= null;
 
 	static {
-		theBooks = new TreeMap<String, BookOfBible>();
-		theBooks.clear();
+		theBooks = new BookNameTrie();
 		theBooks.put("ge", Genesis);
 		theBooks.put("gen", Genesis);
 		theBooks.put("gn", Genesis);
@@ -2,10 +2,11 @@ package bibleReader.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Concordance is a class which implements a concordance for a Bible. In other
@@ -17,25 +18,54 @@ import java.util.TreeSet;
  *         implementation details)
  */
 public class Concordance {
-	private HashMap<String, TreeSet<Reference>> wordMap;
+	// The Fields
+	// For each word, the sorted packed ids (see Reference.pack) of the verses
+	// that contain it.
+	private HashMap<String, int[]> wordMap;
+	// For each word, where it is in each of those verses, or null if the
+	// positions haven't been built (or won't be).
+	private volatile HashMap<String, WordPositions> positionMap;
+	// Whether the positions should be built when the first phrase is looked
+	// for.
+	private volatile boolean buildPositions;
+	// The Bible, used to build the positions and to check that the verses
+	// found for a phrase really contain it.
+	private Bible bible;
 
 	/**
-	 * Construct a concordance for the given Bible.
+	 * Construct a concordance for the given Bible. The position of every word
+	 * is stored too, so that phrases can be found quickly, but not until the
+	 * first phrase of more than one word is looked for: the positions take
+	 * about twice as much memory as the rest of the concordance, and many
+	 * concordances are never asked for a phrase. Building them reads the whole
+	 * Bible again, so that first phrase search takes as long as making the
+	 * concordance did. Verses whose references can't be packed (e.g. a verse
+	 * with no book) are left out.
 	 */
 	public Concordance(Bible bible) {
-		wordMap = new HashMap<String, TreeSet<Reference>>();
-		for (Verse verse : bible.getAllVerses()) {
-			ArrayList<String> wordsList = extractWords(verse.getText());
-			TreeSet<String> wordsSet = new TreeSet<String>(wordsList);
-			for (String word : wordsSet) {
-				if (wordMap.containsKey(word)) {
-					wordMap.get(word).add(verse.getReference());
-				} else {
-					ReferenceList rl = new ReferenceList();
-					rl.add(verse.getReference());
-					wordMap.put(word, new TreeSet<Reference>(rl));
-				}
-			}
+		this.bible = bible;
+		wordMap = toWordMap(index(false));
+		buildPositions = true;
+	}
+
+	/**
+	 * Construct a concordance for the given Bible. Verses whose references
+	 * can't be packed (e.g. a verse with no book) are left out.
+	 * 
+	 * @param bible
+	 *            the Bible to index.
+	 * @param storePositions
+	 *            whether to store where each word is in each verse, now. This
+	 *            takes about twice as much memory as the rest of the
+	 *            concordance, but without it every verse containing all of the
+	 *            words of a phrase has to be read to see if it has the phrase.
+	 */
+	public Concordance(Bible bible, boolean storePositions) {
+		this.bible = bible;
+		Indexer indexer = index(storePositions);
+		wordMap = toWordMap(indexer);
+		if (storePositions) {
+			positionMap = toPositionMap(indexer);
 		}
 	}
 
@@ -47,13 +77,7 @@ public class Concordance {
 	 *            the text to extract words from.
 	 */
 	public static ArrayList<String> extractWords(String text) {
-		text = text.toLowerCase();
-		text = text.replaceAll("(<sup>[,\\w]*?</sup>|'s|’s|&#\\w*;|\\d+)", " ");
-		text = text.replaceAll(",", "");
-		String[] words = text.split("\\W+");
-		ArrayList<String> toRet = new ArrayList<String>(Arrays.asList(words));
-		toRet.remove("");
-		return toRet;
+		return WordTokenizer.extractWords(text);
 	}
 
 	/**
@@ -67,14 +91,7 @@ public class Concordance {
 	 *         the word, or an empty list if no verses contain the word.
 	 */
 	public ReferenceList getReferencesContaining(String word) {
-		String lowerWord = word.toLowerCase();
-		if (wordMap.get(lowerWord) != null) {
-			ReferenceList refs = new ReferenceList(wordMap.get(lowerWord));
-			if (refs != null) {
-				return refs;
-			}
-		}
-		return new ReferenceList();
+		return toReferences(wordMap.get(word.toLowerCase()));
 	}
 
 	/**
@@ -89,30 +106,348 @@ public class Concordance {
 	 *         contain all of the given words, or an empty list if
 	 */
 	public ReferenceList getReferencesContainingAll(ArrayList<String> words) {
-		if (!words.isEmpty()) {
-			ArrayList<TreeSet<Reference>> allReferencesSets = new ArrayList<TreeSet<Reference>>();
-			for (String word : words) {
-				if (wordMap.get(word.toLowerCase()) != null) {
-					allReferencesSets.add(wordMap.get(word.toLowerCase()));
-				} else {
-					allReferencesSets.add(new TreeSet<Reference>());
+		ArrayList<String> lowerWords = new ArrayList<String>(words.size());
+		for (String word : words) {
+			lowerWords.add(word.toLowerCase());
+		}
+		return toReferences(idsContainingAll(lowerWords));
+	}
+
+	/**
+	 * Return the references of the verses that contain the phrase, exactly as
+	 * it is but ignoring case, and not as part of a longer word (so "lord's"
+	 * is found in "the Lord's house" but not in "the Lord is"). The verses
+	 * must also contain all of the words of the phrase, as
+	 * {@link #extractWords(String)} finds them.
+	 * 
+	 * @param phrase
+	 *            the phrase, e.g. "the lord".
+	 * @return the references of the verses that contain the phrase, or an
+	 *         empty list if there are none or the phrase has no words.
+	 */
+	public ReferenceList getReferencesContainingPhrase(String phrase) {
+		return toReferences(idsContainingPhrase(phrase));
+	}
+
+	/**
+	 * Return the references of the verses that contain every one of the
+	 * phrases. See {@link #getReferencesContainingPhrase(String)}.
+	 * 
+	 * @param phrases
+	 *            the phrases.
+	 * @return the references of the verses that contain all of the phrases, or
+	 *         an empty list if there are none or there are no phrases.
+	 */
+	public ReferenceList getReferencesContainingAllPhrases(List<String> phrases) {
+		int[] ids = null;
+		for (String phrase : phrases) {
+			int[] phraseIds = idsContainingPhrase(phrase);
+			if (phraseIds == null) {
+				return new ReferenceList();
+			}
+			ids = ids == null ? phraseIds : SortedIntArrays.intersect(ids, phraseIds);
+		}
+		return toReferences(ids);
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * The sorted ids of the verses containing the phrase, or null if there are
+	 * none. The words of the phrase narrow down the verses that are read to
+	 * check for it: the verses have to have all of them, and if the positions
+	 * are stored, one after another.
+	 */
+	private int[] idsContainingPhrase(String phrase) {
+		ArrayList<String> words = extractWords(phrase);
+		int[] candidates = idsContainingAll(words);
+		if (candidates == null) {
+			return null;
+		}
+		HashMap<String, WordPositions> positionMap = words.size() > 1 ? getPositionMap() : null;
+		int[] result = new int[candidates.length];
+		int size = 0;
+		if (positionMap != null) {
+			int[][] ids = new int[words.size()][];
+			WordPositions[] positions = new WordPositions[words.size()];
+			int[] cursors = new int[words.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = wordMap.get(words.get(i));
+				positions[i] = positionMap.get(words.get(i));
+			}
+			for (int id : candidates) {
+				// Find the verse in each word's postings. The candidates are in
+				// order, so each search starts where the last one ended.
+				for (int i = 0; i < ids.length; i++) {
+					cursors[i] = Arrays.binarySearch(ids[i], cursors[i], ids[i].length, id);
+				}
+				if (hasPhraseAt(positions, cursors) && containsPhrase(bible.getVerseText(Reference.unpack(id)), phrase)) {
+					result[size++] = id;
 				}
 			}
-			ReferenceList refs = new ReferenceList();
-			if (allReferencesSets.get(0) != null) {
-				refs.addAll(allReferencesSets.get(0));
+		} else {
+			for (int id : candidates) {
+				if (containsPhrase(bible.getVerseText(Reference.unpack(id)), phrase)) {
+					result[size++] = id;
+				}
 			}
-			TreeSet<Reference> refsSet = new TreeSet<Reference>(refs);
-			for (int i = 1; i < words.size(); i++) {
-				if (allReferencesSets.get(i) != null) {
-					refsSet.retainAll(allReferencesSets.get(i));
-				} else {
+		}
+		return size == 0 ? null : Arrays.copyOf(result, size);
+	}
+
+	/*
+	 * Whether the text has the phrase in it, ignoring case, with no letter,
+	 * digit or underscore just before or after it.
+	 */
+	private static boolean containsPhrase(String text, String phrase) {
+		if (text == null) {
+			return false;
+		}
+		int length = phrase.length();
+		for (int start = 0; start + length <= text.length(); start++) {
+			if (text.regionMatches(true, start, phrase, 0, length)
+					&& (start == 0 || !isWordCharacter(text.charAt(start - 1)))
+					&& (start + length == text.length() || !isWordCharacter(text.charAt(start + length)))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Whether a character is one that \w matches in a regular expression.
+	 */
+	private static boolean isWordCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
 
+	/*
+	 * The positions, built now if they are wanted and haven't been, or null if
+	 * there aren't any.
+	 */
+	private HashMap<String, WordPositions> getPositionMap() {
+		HashMap<String, WordPositions> result = positionMap;
+		if (result == null && buildPositions) {
+			synchronized (this) {
+				result = positionMap;
+				if (result == null && buildPositions) {
+					result = toPositionMap(index(true));
+					positionMap = result;
+					buildPositions = false;
 				}
 			}
-			return new ReferenceList(refsSet);
 		}
-		return new ReferenceList();
+		return result;
+	}
+
+	/*
+	 * Read every word of the Bible into an Indexer.
+	 */
+	private Indexer index(boolean storePositions) {
+		WordTokenizer tokenizer = new WordTokenizer();
+		Indexer indexer = new Indexer(storePositions);
+		for (Verse verse : sortedVerses(bible)) {
+			int id = verse.getReference().getPackedId();
+			if (id < 0) {
+				continue;
+			}
+			// A verse that appears twice carries on from the first one, with a
+			// gap so that a phrase can't run from one into the other.
+			indexer.position = id == indexer.id ? indexer.position + 1 : 0;
+			indexer.id = id;
+			tokenizer.tokenize(verse.getText(), indexer);
+		}
+		return indexer;
+	}
+
+	private static HashMap<String, int[]> toWordMap(Indexer indexer) {
+		HashMap<String, int[]> map = new HashMap<String, int[]>(indexer.postingsMap.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Postings> entry : indexer.postingsMap.entrySet()) {
+			Postings postings = entry.getValue();
+			map.put(entry.getKey(), Arrays.copyOf(postings.ids, postings.size));
+		}
+		return map;
+	}
+
+	/*
+	 * The positions of the words, or null if a verse is too long for them to
+	 * fit in a char (which no real verse is).
+	 */
+	private static HashMap<String, WordPositions> toPositionMap(Indexer indexer) {
+		if (indexer.maxPosition > Character.MAX_VALUE) {
+			return null;
+		}
+		HashMap<String, WordPositions> map = new HashMap<String, WordPositions>(
+				indexer.postingsMap.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Postings> entry : indexer.postingsMap.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().getPositions());
+		}
+		return map;
+	}
+
+	/*
+	 * Whether, in one verse, there is a position p where word 0 is at p, word
+	 * 1 is at p + 1, and so on. postings[i] is the index of the verse in the
+	 * postings of word i.
+	 */
+	private static boolean hasPhraseAt(WordPositions[] positions, int[] postings) {
+		WordPositions first = positions[0];
+		for (int p = first.starts[postings[0]]; p < first.starts[postings[0] + 1]; p++) {
+			int start = first.positions[p];
+			boolean found = true;
+			for (int i = 1; i < positions.length && found; i++) {
+				WordPositions next = positions[i];
+				found = Arrays.binarySearch(next.positions, next.starts[postings[i]], next.starts[postings[i] + 1],
+						(char) (start + i)) >= 0;
+			}
+			if (found) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * The verses of the Bible, in order.
+	 */
+	private static List<Verse> sortedVerses(Bible bible) {
+		VerseList verses = bible.getAllVerses();
+		for (int i = 1; i < verses.size(); i++) {
+			if (verses.get(i - 1).getReference().compareTo(verses.get(i).getReference()) > 0) {
+				ArrayList<Verse> sorted = new ArrayList<Verse>(verses);
+				Collections.sort(sorted, new Comparator<Verse>() {
+					public int compare(Verse first, Verse second) {
+						return first.getReference().compareTo(second.getReference());
+					}
+				});
+				return sorted;
+			}
+		}
+		return verses;
+	}
+
+	/*
+	 * The sorted ids of the verses containing all of the (lower case) words, or
+	 * null if there are none.
+	 */
+	private int[] idsContainingAll(List<String> words) {
+		if (words.isEmpty()) {
+			return null;
+		}
+		int[][] postings = new int[words.size()][];
+		for (int i = 0; i < postings.length; i++) {
+			postings[i] = wordMap.get(words.get(i));
+			if (postings[i] == null) {
+				return null;
+			}
+		}
+		int[] ids = SortedIntArrays.intersectAll(postings);
+		return ids.length == 0 ? null : ids;
+	}
+
+	/*
+	 * Turn packed ids into References. Only done when the results leave the
+	 * concordance.
+	 */
+	private static ReferenceList toReferences(int[] ids) {
+		if (ids == null) {
+			return new ReferenceList();
+		}
+		ReferenceList refs = new ReferenceList(ids.length);
+		for (int id : ids) {
+			refs.add(Reference.unpack(id));
+		}
+		return refs;
+	}
+
+	/*
+	 * Adds the words of a verse to the postings while the concordance is built.
+	 */
+	private static class Indexer implements WordTokenizer.WordHandler {
+		HashMap<String, Postings> postingsMap = new HashMap<String, Postings>();
+		boolean storePositions;
+		// The packed id of the verse being indexed.
+		int id = -1;
+		// The position of the next word in the verse.
+		int position;
+		int maxPosition;
+
+		Indexer(boolean storePositions) {
+			this.storePositions = storePositions;
+		}
+
+		public void handleWord(String word) {
+			Postings postings = postingsMap.get(word);
+			if (postings == null) {
+				postings = new Postings(storePositions);
+				postingsMap.put(word, postings);
+			}
+			maxPosition = Math.max(maxPosition, position);
+			postings.add(id, position++);
+		}
 	}
 
+	/*
+	 * Where one word is in each of the verses that contain it. The positions
+	 * in the i-th verse of the word's postings are positions[starts[i]] up to
+	 * positions[starts[i + 1]], in order. A char is enough for the position of
+	 * a word in a verse, and takes half the memory of an int.
+	 */
+	private static class WordPositions {
+		int[] starts;
+		char[] positions;
+
+		WordPositions(int[] starts, char[] positions) {
+			this.starts = starts;
+			this.positions = positions;
+		}
+	}
+
+	/*
+	 * The postings of one word while the concordance is built, with the
+	 * positions if they are being stored. The verses are added in order.
+	 */
+	private static class Postings {
+		int[] ids = new int[4];
+		int size = 0;
+		int[] starts;
+		int[] positions;
+		int positionCount = 0;
+
+		Postings(boolean storePositions) {
+			if (storePositions) {
+				starts = new int[5];
+				positions = new int[4];
+			}
+		}
+
+		void add(int id, int position) {
+			if (size == 0 || ids[size - 1] != id) {
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					if (starts != null) {
+						starts = Arrays.copyOf(starts, size * 2 + 1);
+					}
+				}
+				ids[size++] = id;
+			}
+			if (positions == null) {
+				return;
+			}
+			if (positionCount == positions.length) {
+				positions = Arrays.copyOf(positions, positionCount * 2);
+			}
+			positions[positionCount++] = position;
+			starts[size] = positionCount;
+		}
+
+		WordPositions getPositions() {
+			char[] compact = new char[positionCount];
+			for (int i = 0; i < positionCount; i++) {
+				compact[i] = (char) positions[i];
+			}
+			return new WordPositions(Arrays.copyOf(starts, size + 1), compact);
+		}
+	}
 }
@@ -0,0 +1,357 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The lower case copies of a list of texts, for finding the texts that contain
+ * a phrase, ignoring case, with exactly the same answers as checking
+ * <code>text.toLowerCase().contains(phrase.toLowerCase())</code> for every
+ * text, but without lower casing every text for every search.
+ *
+ * The copies are made the first time they are needed. Texts whose lower case
+ * characters all fit in a byte (Latin-1, which covers the English
+ * translations) are kept one byte per character in a single array; any other
+ * text is kept as a String. The copies of a Bible take about as much memory
+ * again as its text, so there is a budget: if the copies would take more than
+ * {@link #getMemoryBudget()} bytes, they aren't made and every search lower
+ * cases the texts as it goes. The budget is read from the system property
+ * <code>bibleReader.lowerCaseBudget</code> (in bytes, 0 to turn the copies
+ * off), and can be changed with {@link #setMemoryBudget(long)}.
+ *
+ * @author Jonathan Chaffer
+ */
+public class LowerCaseText {
+	/**
+	 * The system property that sets the memory budget.
+	 */
+	public static final String BUDGET_PROPERTY = "bibleReader.lowerCaseBudget";
+	/**
+	 * The memory budget when the property isn't set: enough for several
+	 * translations of the whole Bible.
+	 */
+	public static final long DEFAULT_BUDGET = 32L << 20;
+
+	private static volatile long memoryBudget = Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET);
+
+	// The Fields
+	private List<String> texts;
+	// Where each part that can be searched separately begins, or null.
+	private int[] partitions;
+	private volatile Copies copies;
+	// Set when the copies would have been over the budget.
+	private volatile boolean overBudget;
+
+	/**
+	 * Make the lower case copies of the texts, when they are first needed.
+	 *
+	 * @param texts
+	 *            the texts. They must not change.
+	 */
+	public LowerCaseText(List<String> texts) {
+		this(texts, null);
+	}
+
+	/**
+	 * Make the lower case copies of the texts, when they are first needed. In
+	 * parallel mode (see {@link ParallelSearch}), searches check the parts of
+	 * the texts at the same time.
+	 *
+	 * @param texts
+	 *            the texts. They must not change.
+	 * @param partitions
+	 *            where each part of the texts begins (e.g. each book of a
+	 *            Bible), in order, or null to always search them in one go.
+	 */
+	public LowerCaseText(List<String> texts, int[] partitions) {
+		this.texts = texts;
+		this.partitions = partitions;
+	}
+
+	/**
+	 * @return the most memory, in bytes, that the copies for one list of texts
+	 *         may take.
+	 */
+	public static long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the most memory that the copies for one list of texts may take. It
+	 * only matters for copies that haven't been made yet.
+	 *
+	 * @param bytes
+	 *            the budget in bytes. 0 turns the copies off.
+	 */
+	public static void setMemoryBudget(long bytes) {
+		memoryBudget = bytes;
+	}
+
+	/**
+	 * @return the number of texts.
+	 */
+	public int size() {
+		return texts.size();
+	}
+
+	/**
+	 * @return whether the lower case copies have been made.
+	 */
+	public boolean isCached() {
+		return copies != null;
+	}
+
+	/**
+	 * Find the texts containing a phrase, ignoring case.
+	 *
+	 * @param phrase
+	 *            the phrase to look for.
+	 * @return the positions of the texts that contain the phrase, in order. If
+	 *         the phrase is empty, no texts.
+	 */
+	public int[] indexesContaining(String phrase) {
+		return indexesContaining(phrase, null);
+	}
+
+	/**
+	 * Find which of some of the texts contain a phrase, ignoring case.
+	 *
+	 * @param phrase
+	 *            the phrase to look for.
+	 * @param candidates
+	 *            the positions of the texts to check, in order, or null to check
+	 *            all of them.
+	 * @return the positions of the candidates that contain the phrase, in
+	 *         order. If the phrase is empty, no texts.
+	 */
+	public int[] indexesContaining(String phrase, int[] candidates) {
+		String lower = phrase.toLowerCase();
+		if (lower.isEmpty()) {
+			return SortedIntArrays.EMPTY;
+		}
+		Copies copies = getCopies();
+		byte[] pattern = copies == null ? null : toLatin1(lower);
+		int count = candidates == null ? texts.size() : candidates.length;
+		if (ParallelSearch.isEnabled() && partitions != null && partitions.length > 1
+				&& count >= ParallelSearch.MIN_VERSES) {
+			// Where each partition's candidates begin and end.
+			int[] bounds = new int[partitions.length + 1];
+			for (int p = 1; p < partitions.length; p++) {
+				if (candidates == null) {
+					bounds[p] = partitions[p];
+				} else {
+					int found = Arrays.binarySearch(candidates, partitions[p]);
+					bounds[p] = found >= 0 ? found : -found - 1;
+				}
+			}
+			bounds[partitions.length] = count;
+			return ParallelSearch.invoke(new Search(lower, pattern, copies, candidates, bounds, 0, partitions.length));
+		}
+		return search(lower, pattern, copies, candidates, 0, count);
+	}
+
+	/**
+	 * Find where a phrase is in a text, ignoring case, so that it can be
+	 * highlighted. The matches don't overlap: after one is found, the next is
+	 * looked for after its end.
+	 *
+	 * @param text
+	 *            the text (e.g. of a verse the phrase was found in).
+	 * @param phrase
+	 *            the phrase to look for.
+	 * @return where each match starts in text, in order. Each is
+	 *         phrase.length() characters long. If the phrase is empty, none.
+	 */
+	public static int[] matchesIn(String text, String phrase) {
+		int length = phrase.length();
+		if (length == 0) {
+			return SortedIntArrays.EMPTY;
+		}
+		int[] result = SortedIntArrays.EMPTY;
+		int size = 0;
+		int last = text.length() - length;
+		for (int start = 0; start <= last; start++) {
+			if (text.regionMatches(true, start, phrase, 0, length)) {
+				if (size == result.length) {
+					result = Arrays.copyOf(result, Math.max(4, size * 2));
+				}
+				result[size++] = start;
+				start += length - 1;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * Which of candidates[from] up to candidates[to] (or from up to to, if
+	 * candidates is null) contain the lower case phrase. pattern is the phrase
+	 * in Latin-1, or null if it isn't Latin-1 or there are no copies.
+	 */
+	private int[] search(String lower, byte[] pattern, Copies copies, int[] candidates, int from, int to) {
+		int[] result = new int[to - from];
+		int size = 0;
+		for (int i = from; i < to; i++) {
+			int index = candidates == null ? i : candidates[i];
+			if (copies == null ? texts.get(index).toLowerCase().contains(lower)
+					: copies.contains(index, lower, pattern)) {
+				result[size++] = index;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/*
+	 * The copies, made now if they haven't been, or null if they are over the
+	 * budget.
+	 */
+	private Copies getCopies() {
+		Copies result = copies;
+		if (result == null && !overBudget) {
+			synchronized (this) {
+				result = copies;
+				if (result == null && !overBudget) {
+					long characters = 0;
+					for (String text : texts) {
+						characters += text.length();
+					}
+					// A byte per character and an offset per text.
+					long bytes = characters + 4L * (texts.size() + 1);
+					if (bytes > memoryBudget || characters > Integer.MAX_VALUE / 2) {
+						overBudget = true;
+					} else {
+						result = new Copies(texts, (int) characters);
+						copies = result;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * The text as Latin-1 bytes, or null if it has a character that isn't
+	 * Latin-1.
+	 */
+	private static byte[] toLatin1(String text) {
+		byte[] bytes = new byte[text.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			char c = text.charAt(i);
+			if (c > 0xFF) {
+				return null;
+			}
+			bytes[i] = (byte) c;
+		}
+		return bytes;
+	}
+
+	/*
+	 * Searches the partitions first up to last, splitting them in half until
+	 * there are too few texts to be worth it. The results are joined in order.
+	 */
+	private class Search extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		String lower;
+		byte[] pattern;
+		Copies copies;
+		int[] candidates;
+		int[] bounds;
+		int first;
+		int last;
+
+		Search(String lower, byte[] pattern, Copies copies, int[] candidates, int[] bounds, int first, int last) {
+			this.lower = lower;
+			this.pattern = pattern;
+			this.copies = copies;
+			this.candidates = candidates;
+			this.bounds = bounds;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (last - first == 1 || bounds[last] - bounds[first] < ParallelSearch.MIN_VERSES) {
+				return search(lower, pattern, copies, candidates, bounds[first], bounds[last]);
+			}
+			int middle = (first + last) >>> 1;
+			Search left = new Search(lower, pattern, copies, candidates, bounds, first, middle);
+			left.fork();
+			int[] right = new Search(lower, pattern, copies, candidates, bounds, middle, last).compute();
+			int[] result = left.join();
+			if (right.length > 0) {
+				result = Arrays.copyOf(result, result.length + right.length);
+				System.arraycopy(right, 0, result, result.length - right.length, right.length);
+			}
+			return result;
+		}
+	}
+
+	/*
+	 * The lower case copies. Text i is bytes[offsets[i]] up to
+	 * bytes[offsets[i + 1]], unless wide[i] is set.
+	 */
+	private static class Copies {
+		byte[] bytes;
+		int[] offsets;
+		// The texts that aren't Latin-1, or null if there are none.
+		String[] wide;
+
+		Copies(List<String> texts, int characters) {
+			bytes = new byte[characters];
+			offsets = new int[texts.size() + 1];
+			int size = 0;
+			for (int i = 0; i < texts.size(); i++) {
+				String lower = texts.get(i).toLowerCase();
+				byte[] latin1 = toLatin1(lower);
+				if (latin1 == null) {
+					if (wide == null) {
+						wide = new String[texts.size()];
+					}
+					wide[i] = lower;
+				} else {
+					// Lower casing can make a text longer.
+					if (size + latin1.length > bytes.length) {
+						bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + latin1.length));
+					}
+					System.arraycopy(latin1, 0, bytes, size, latin1.length);
+					size += latin1.length;
+				}
+				offsets[i + 1] = size;
+			}
+			if (size != bytes.length) {
+				bytes = Arrays.copyOf(bytes, size);
+			}
+		}
+
+		/*
+		 * Whether text i contains the lower case phrase. pattern is the phrase
+		 * in Latin-1, or null if it isn't Latin-1.
+		 */
+		boolean contains(int i, String lower, byte[] pattern) {
+			if (wide != null && wide[i] != null) {
+				return wide[i].contains(lower);
+			}
+			if (pattern == null) {
+				return false;
+			}
+			byte first = pattern[0];
+			int last = offsets[i + 1] - pattern.length;
+			for (int start = offsets[i]; start <= last; start++) {
+				if (bytes[start] == first) {
+					int j = 1;
+					while (j < pattern.length && bytes[start + j] == pattern[j]) {
+						j++;
+					}
+					if (j == pattern.length) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package bibleReader.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache that holds values up to a given capacity, throwing away the ones
+ * that were used least recently to make room for new ones. Each value counts
+ * as 1 towards the capacity unless a subclass weighs it differently (e.g. by
+ * its size in bytes, see {@link #weigh(Object)}). It counts how often a value
+ * was found (a hit) or not (a miss). It is safe to use from many threads at
+ * once; each method holds the lock only for the one map operation.
+ *
+ * @author Jonathan Chaffer
+ *
+ * @param <K>
+ *            the type of the keys, which need equals and hashCode.
+ * @param <V>
+ *            the type of the values. They should not be changed once they are
+ *            in the cache.
+ */
+public class LruCache<K, V> {
+	// The Fields
+	// In access order, so the first entry is the one used least recently.
+	private final LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+	private long capacity;
+	// The total weight of the values in the map.
+	private long weight;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            the most values to keep, or the most total weight if the
+	 *            values are weighed. 0 turns the cache off.
+	 */
+	public LruCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * How much a value counts towards the capacity. Subclasses can override
+	 * this to limit the cache by something other than the number of values.
+	 *
+	 * @param value
+	 *            a value.
+	 * @return its weight, which must always be the same for the same value.
+	 */
+	protected long weigh(V value) {
+		return 1;
+	}
+
+	/**
+	 * @param key
+	 *            the key.
+	 * @return the value for the key, or null if it isn't in the cache.
+	 */
+	public V get(K key) {
+		V value;
+		synchronized (map) {
+			value = map.get(key);
+		}
+		if (value != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Put a value in the cache, throwing away the least recently used ones if
+	 * the cache is full. A value that weighs more than the capacity isn't
+	 * kept.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value, which must not be null.
+	 */
+	public void put(K key, V value) {
+		long valueWeight = weigh(value);
+		synchronized (map) {
+			if (valueWeight > capacity) {
+				return;
+			}
+			V old = map.put(key, value);
+			weight += valueWeight - (old == null ? 0 : weigh(old));
+			trim();
+		}
+	}
+
+	/**
+	 * Throw away all of the values. The counts are kept.
+	 */
+	public void clear() {
+		synchronized (map) {
+			map.clear();
+			weight = 0;
+		}
+	}
+
+	/**
+	 * @return the number of values in the cache.
+	 */
+	public int size() {
+		synchronized (map) {
+			return map.size();
+		}
+	}
+
+	/**
+	 * @return the total weight of the values in the cache.
+	 */
+	public long getWeight() {
+		synchronized (map) {
+			return weight;
+		}
+	}
+
+	/**
+	 * @return the most values, or total weight, the cache will keep.
+	 */
+	public long getCapacity() {
+		synchronized (map) {
+			return capacity;
+		}
+	}
+
+	/**
+	 * Change the most values, or total weight, the cache will keep, throwing
+	 * away the least recently used ones if there are too many.
+	 *
+	 * @param capacity
+	 *            the new capacity. 0 turns the cache off.
+	 */
+	public void setCapacity(long capacity) {
+		synchronized (map) {
+			this.capacity = capacity;
+			trim();
+		}
+	}
+
+	/**
+	 * @return the number of times get found a value.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of times get didn't find a value.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * Throw away the least recently used values until they fit. Must hold the
+	 * lock.
+	 */
+	private void trim() {
+		Iterator<V> values = map.values().iterator();
+		while (weight > capacity && values.hasNext()) {
+			weight -= weigh(values.next());
+			values.remove();
+		}
+	}
+}
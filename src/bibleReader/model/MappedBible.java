@@ -0,0 +1,234 @@
+package bibleReader.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.function.Supplier;
+
+import bibleReader.BibleFormatException;
+
+/**
+ * A Bible that reads its verses straight out of a buffer in the binary Bible
+ * format, which is usually a file mapped into memory (see BibleIO.mapBible).
+ * Only the packed ids are copied onto the heap, to build the Versification;
+ * the text of a verse is decoded from the buffer each time it is asked for,
+ * so opening a Bible is fast and the pages of the file can be shared. Every
+ * table is checked when the Bible is opened, so a bad file is found then and
+ * not in the middle of a search.
+ *
+ * The format is, with every int big-endian:
+ * <ol>
+ * <li>the int MAGIC, then the int FORMAT_VERSION.</li>
+ * <li>the number of verses, n.</li>
+ * <li>the length of the version in bytes, then the version in UTF-8. The
+ * title is stored the same way.</li>
+ * <li>the versification table: the n packed ids of the verses, in order.</li>
+ * <li>the offset index: n + 1 ints. The text of verse i is the bytes from
+ * offset i up to offset i + 1 of the text, which comes next.</li>
+ * <li>the text of all of the verses, in UTF-8.</li>
+ * </ol>
+ *
+ * @author Jonathan Chaffer
+ */
+public class MappedBible extends PackedBible {
+	/**
+	 * The first four bytes of every binary Bible ("BBLE").
+	 */
+	public static final int MAGIC = 0x42424C45;
+
+	/**
+	 * The version of the format this class reads.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The character set used for all of the strings in the format.
+	 */
+	public static final Charset CHARSET = Charset.forName("UTF-8");
+
+	// The Fields
+	private ByteBuffer buffer;
+	// Where the offset index starts in the buffer.
+	private int offsetsStart;
+	// Where the text starts in the buffer.
+	private int textStart;
+	// Each thread's own view of the buffer and array to copy a text into, so
+	// that reading a text doesn't make either and threads don't share them.
+	private ThreadLocal<Reader> readers;
+
+	/**
+	 * Open a Bible stored in the binary format.
+	 *
+	 * @param buffer
+	 *            the buffer, positioned at the start of the Bible. It should not
+	 *            be changed afterwards.
+	 * @throws BibleFormatException
+	 *             if the buffer doesn't hold a Bible in this format, or any of
+	 *             its tables are out of order or point outside of the buffer.
+	 */
+	public MappedBible(ByteBuffer buffer) throws BibleFormatException {
+		this(new Header(buffer.slice()));
+	}
+
+	private MappedBible(Header header) {
+		super(header.version, header.title, new Versification(header.ids));
+		this.buffer = header.buffer;
+		this.offsetsStart = header.offsetsStart;
+		this.textStart = offsetsStart + 4 * (header.ids.length + 1);
+		this.readers = ThreadLocal.withInitial(Reader.factory(buffer));
+	}
+
+	@Override
+	protected Verse verseAt(int index) {
+		return new Verse(referenceAt(index), textAt(index));
+	}
+
+	@Override
+	protected Reference referenceAt(int index) {
+		return Reference.unpack(getVersification().getPackedId(index));
+	}
+
+	/**
+	 * The verses are made as they are asked for, but each list keeps the ones
+	 * it has made, so going through a passage more than once only reads each
+	 * verse out of the buffer once.
+	 */
+	@Override
+	protected VerseList versesInRange(String description, final int start, int end) {
+		final Verse[] made = new Verse[Math.max(end - start, 0)];
+		return new VerseListView(getVersion(), description, new AbstractList<Verse>() {
+			@Override
+			public Verse get(int index) {
+				if (index < 0 || index >= made.length) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + made.length);
+				}
+				// Verses are immutable, so if two threads make the same one
+				// it doesn't matter which is kept.
+				Verse verse = made[index];
+				if (verse == null) {
+					verse = verseAt(start + index);
+					made[index] = verse;
+				}
+				return verse;
+			}
+
+			@Override
+			public int size() {
+				return made.length;
+			}
+		});
+	}
+
+	@Override
+	protected String textAt(int index) {
+		int start = buffer.getInt(offsetsStart + 4 * index);
+		int end = buffer.getInt(offsetsStart + 4 * index + 4);
+		return readers.get().read(textStart + start, end - start);
+	}
+
+	/*
+	 * Reads texts out of a thread's own duplicate of the buffer, through an
+	 * array that is only made bigger when a longer text comes along.
+	 */
+	private static class Reader {
+		ByteBuffer buffer;
+		byte[] bytes = new byte[1024];
+
+		Reader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/*
+		 * Makes a Reader for each thread from its own duplicate of buffer. It
+		 * is static so that the thread-local Readers don't keep the Bible.
+		 */
+		static Supplier<Reader> factory(final ByteBuffer buffer) {
+			return new Supplier<Reader>() {
+				public Reader get() {
+					return new Reader(buffer.duplicate());
+				}
+			};
+		}
+
+		String read(int position, int length) {
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			buffer.position(position);
+			buffer.get(bytes, 0, length);
+			return new String(bytes, 0, length, CHARSET);
+		}
+	}
+
+	/*
+	 * The part of the format before the offset index.
+	 */
+	private static class Header {
+		private static final int NUMBER_OF_BOOKS = BookOfBible.values().length;
+
+		ByteBuffer buffer;
+		String version;
+		String title;
+		int[] ids;
+		int offsetsStart;
+
+		Header(ByteBuffer buffer) throws BibleFormatException {
+			this.buffer = buffer;
+			int numberOfVerses;
+			try {
+				if (buffer.getInt() != MAGIC) {
+					throw new BibleFormatException("Not a binary Bible");
+				}
+				int formatVersion = buffer.getInt();
+				if (formatVersion != FORMAT_VERSION) {
+					throw new BibleFormatException("Unsupported binary Bible format version " + formatVersion);
+				}
+				numberOfVerses = buffer.getInt();
+				version = readString(buffer);
+				title = readString(buffer);
+				// Each verse takes an id and an offset, and there is one more
+				// offset at the end.
+				if (numberOfVerses < 0 || 8L * numberOfVerses + 4 > buffer.remaining()) {
+					throw new BibleFormatException("Binary Bible has a bad number of verses");
+				}
+				ids = new int[numberOfVerses];
+				buffer.asIntBuffer().get(ids);
+				// The ids don't move the position, so it is still at the start of them.
+				offsetsStart = buffer.position() + 4 * numberOfVerses;
+			} catch (BufferUnderflowException e) {
+				throw new BibleFormatException("Binary Bible is truncated");
+			}
+			for (int i = 0; i < ids.length; i++) {
+				if ((i > 0 && ids[i] <= ids[i - 1]) || Reference.unpackBookOrdinal(ids[i]) >= NUMBER_OF_BOOKS) {
+					throw new BibleFormatException("Binary Bible has a bad versification table");
+				}
+			}
+			// The offsets must start at 0 and never go back, and the text they
+			// point into must all be in the buffer.
+			int textStart = offsetsStart + 4 * (numberOfVerses + 1);
+			int previous = 0;
+			for (int i = 0; i <= numberOfVerses; i++) {
+				int offset = buffer.getInt(offsetsStart + 4 * i);
+				if (offset < previous || (i == 0 && offset != 0)) {
+					throw new BibleFormatException("Binary Bible has a bad offset index");
+				}
+				previous = offset;
+			}
+			if (previous > buffer.limit() - textStart) {
+				throw new BibleFormatException("Binary Bible is truncated");
+			}
+			buffer.rewind();
+		}
+
+		private static String readString(ByteBuffer buffer) throws BibleFormatException {
+			int length = buffer.getInt();
+			if (length < 0 || length > buffer.remaining()) {
+				throw new BibleFormatException("Binary Bible has a bad string length");
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, CHARSET);
+		}
+	}
+}
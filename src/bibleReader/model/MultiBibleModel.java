@@ -21,6 +21,26 @@ public interface MultiBibleModel {
 	 */
 	public void addBible(Bible bible);
 
+	/**
+	 * Remove the Bible with a version from the model. If there is more than one,
+	 * they are all removed.
+	 * 
+	 * @param version
+	 *            the abbreviation for the version of the Bible to remove.
+	 * @return the Bible that was removed, or null if it wasn't in the model.
+	 */
+	public Bible removeBible(String version);
+
+	/**
+	 * Replace the Bible (or Bibles) with the same version as this one, or add
+	 * it if there isn't one, e.g. to load a new copy of a translation.
+	 * 
+	 * @param bible
+	 *            the new Bible.
+	 * @return the Bible that was replaced, or null if there wasn't one.
+	 */
+	public Bible replaceBible(Bible bible);
+
 	/**
 	 * @param version
 	 *            the abbreviation for the version of the Bible that you want.
@@ -132,6 +152,10 @@ public interface MultiBibleModel {
 	 * any of the versions, and only listing each reference once no matter how
 	 * many versions it appears in.
 	 * 
+	 * The reference can also be a list of passages separated by commas or
+	 * semicolons (e.g. "John 3:16, 18; 4:1-3"; see {@link PassageParser}), in
+	 * which case the references of all of them are returned, in order.
+	 *
 	 * @param reference
 	 *            A string representation of the reference (e.g. "Genesis
 	 *            1:2-3:4")
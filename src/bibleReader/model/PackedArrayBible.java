@@ -0,0 +1,104 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+
+/**
+ * A class that stores a version of the Bible. The verses are kept in an array,
+ * in order, and each Reference is looked up by its packed id (see
+ * {@link Reference#pack(BookOfBible, int, int)}) through a {@link Versification}.
+ * This makes looking up a verse constant time and finding the ends of a passage
+ * at worst a binary search, without creating any objects along the way.
+ *
+ * @author Chuck Cusack (Provided the interface)
+ * @author Jonathan Chaffer (provided the implementation)
+ */
+public class PackedArrayBible extends PackedBible {
+
+	// The Fields
+	private Verse[] verses;
+
+	/**
+	 * Create a new Bible with the given verses. As with a map, if a reference
+	 * occurs more than once the last one wins.
+	 *
+	 * @param verses
+	 *            All of the verses of this version of the Bible.
+	 * @throws IllegalArgumentException
+	 *             if one of the verses has a reference that can't be packed
+	 *             (its book is null, or its chapter or verse is negative or
+	 *             more than Reference.MAX_PACKED_NUMBER). BibleIO doesn't read
+	 *             such verses.
+	 */
+	public PackedArrayBible(VerseList verses) {
+		this(verses.getVersion(), verses.getDescription(), sortVerses(verses));
+	}
+
+	private PackedArrayBible(String version, String title, Verse[] sortedVerses) {
+		super(version, title, new Versification(packedIds(sortedVerses)));
+		this.verses = sortedVerses;
+		// Build the phrase index now, while the Bible is being loaded.
+		getSubstringIndex();
+	}
+
+	@Override
+	protected Verse verseAt(int index) {
+		return verses[index];
+	}
+
+	@Override
+	protected Reference referenceAt(int index) {
+		return verses[index].getReference();
+	}
+
+	@Override
+	protected String textAt(int index) {
+		return verses[index].getText();
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * Sort the verses by packed id, keeping only the last verse for each
+	 * reference.
+	 */
+	private static Verse[] sortVerses(VerseList verses) {
+		// Keep the original position in the low bits so the sort is stable and
+		// duplicates stay in their original order.
+		long[] keys = new long[verses.size()];
+		for (int i = 0; i < keys.length; i++) {
+			Reference ref = verses.get(i).getReference();
+			int id = ref.getPackedId();
+			if (id < 0) {
+				// Not ref.toString(), which needs a book.
+				throw new IllegalArgumentException("Cannot store verse " + ref.getBookOfBible() + " "
+						+ ref.getChapter() + ":" + ref.getVerse());
+			}
+			keys[i] = ((long) id << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		Verse[] sorted = new Verse[keys.length];
+		int size = 0;
+		int lastId = -1;
+		for (long key : keys) {
+			int id = (int) (key >>> 32);
+			Verse verse = verses.get((int) key);
+			if (size > 0 && lastId == id) {
+				sorted[size - 1] = verse;
+			} else {
+				sorted[size++] = verse;
+				lastId = id;
+			}
+		}
+		return Arrays.copyOf(sorted, size);
+	}
+
+	private static int[] packedIds(Verse[] sortedVerses) {
+		int[] ids = new int[sortedVerses.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = sortedVerses[i].getReference().getPackedId();
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,385 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+
+/**
+ * A base class for Bibles that keep their verses in order by position and look
+ * each Reference up by its packed id (see
+ * {@link Reference#pack(BookOfBible, int, int)}) through a {@link Versification}.
+ * This makes looking up a verse constant time and finding the ends of a passage
+ * at worst a binary search. Subclasses only have to say how to get the verse,
+ * reference and text at a given position.
+ *
+ * @author Chuck Cusack (Provided the interface)
+ * @author Jonathan Chaffer (provided the implementation)
+ */
+public abstract class PackedBible implements Bible {
+
+	// The Fields
+	private String version;
+	private String title;
+	private Versification versification;
+	// Built the first time a phrase is searched for, unless a subclass builds
+	// it sooner.
+	private volatile SubstringIndex substringIndex;
+
+	/**
+	 * @param version
+	 *            the version of this Bible (e.g. "ESV").
+	 * @param title
+	 *            the title of this Bible.
+	 * @param versification
+	 *            the versification, whose positions must match those used by
+	 *            the subclass.
+	 */
+	protected PackedBible(String version, String title, Versification versification) {
+		this.version = version;
+		this.title = title;
+		this.versification = versification;
+	}
+
+	/**
+	 * @param index
+	 *            the position of a verse
+	 * @return the verse at that position.
+	 */
+	protected abstract Verse verseAt(int index);
+
+	/**
+	 * @param index
+	 *            the position of a verse
+	 * @return the reference of the verse at that position.
+	 */
+	protected abstract Reference referenceAt(int index);
+
+	/**
+	 * @param index
+	 *            the position of a verse
+	 * @return the text of the verse at that position.
+	 */
+	protected abstract String textAt(int index);
+
+	/**
+	 * @return the versification of this Bible. Its positions are the positions
+	 *         of the verses in getAllVerses().
+	 */
+	public Versification getVersification() {
+		return versification;
+	}
+
+	/**
+	 * @return the index used to find the verses containing a phrase, building
+	 *         it the first time.
+	 */
+	protected SubstringIndex getSubstringIndex() {
+		SubstringIndex index = substringIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = substringIndex;
+				if (index == null) {
+					index = new SubstringIndex(new AbstractList<String>() {
+						@Override
+						public String get(int index) {
+							return textAt(index);
+						}
+
+						@Override
+						public int size() {
+							return versification.size();
+						}
+					}, versification.getBookStarts());
+					substringIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	@Override
+	public int getNumberOfVerses() {
+		return versification.size();
+	}
+
+	@Override
+	public VerseList getAllVerses() {
+		return versesInRange(getTitle(), 0, versification.size());
+	}
+
+	@Override
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public boolean isValid(Reference ref) {
+		return versification.indexOf(ref) >= 0;
+	}
+
+	@Override
+	public String getVerseText(Reference ref) {
+		int index = versification.indexOf(ref);
+		if (index >= 0) {
+			return textAt(index);
+		}
+		return null;
+	}
+
+	@Override
+	public Verse getVerse(Reference ref) {
+		int index = versification.indexOf(ref);
+		if (index >= 0) {
+			return verseAt(index);
+		}
+		return null;
+	}
+
+	@Override
+	public Verse getVerse(BookOfBible book, int chapter, int verse) {
+		int index = versification.indexOf(book, chapter, verse);
+		if (index >= 0) {
+			return verseAt(index);
+		}
+		return null;
+	}
+
+	@Override
+	public VerseList getVersesContaining(String phrase) {
+		VerseList versesToReturn = new VerseList(getVersion(), phrase);
+		for (int index : getSubstringIndex().indexesContaining(phrase)) {
+			versesToReturn.add(verseAt(index));
+		}
+		return versesToReturn;
+	}
+
+	@Override
+	public ReferenceList getReferencesContaining(String phrase) {
+		int[] indexes = getSubstringIndex().indexesContaining(phrase);
+		ReferenceList refsToReturn = new ReferenceList(indexes.length);
+		for (int index : indexes) {
+			refsToReturn.add(referenceAt(index));
+		}
+		return refsToReturn;
+	}
+
+	@Override
+	public VerseList getVerses(ReferenceList references) {
+		VerseList versesToReturn = new VerseList(getVersion(), "Arbitrary list of Verses");
+		versesToReturn.ensureCapacity(references.size());
+		for (Reference ref : references) {
+			versesToReturn.add(getVerse(ref));
+		}
+		return versesToReturn;
+	}
+
+	@Override
+	public int getLastVerseNumber(BookOfBible book, int chapter) {
+		return versification.getLastVerseNumber(book, chapter);
+	}
+
+	@Override
+	public int getLastChapterNumber(BookOfBible book) {
+		return versification.getLastChapterNumber(book);
+	}
+
+	@Override
+	public ReferenceList getReferencesInclusive(Reference firstVerse, Reference lastVerse) {
+		ReferenceList results = new ReferenceList();
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return results;
+		}
+		addRange(results, startOf(firstVerse.getBookOfBible(), firstVerse.getChapter(), firstVerse.getVerse()),
+				endOf(lastVerse.getBookOfBible(), lastVerse.getChapter(), lastVerse.getVerse()));
+		return results;
+	}
+
+	@Override
+	public ReferenceList getReferencesExclusive(Reference firstVerse, Reference lastVerse) {
+		ReferenceList results = new ReferenceList();
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return results;
+		}
+		addRange(results, startOf(firstVerse.getBookOfBible(), firstVerse.getChapter(), firstVerse.getVerse()),
+				startOf(lastVerse.getBookOfBible(), lastVerse.getChapter(), lastVerse.getVerse()));
+		return results;
+	}
+
+	@Override
+	public ReferenceList getReferencesForBook(BookOfBible book) {
+		ReferenceList refs = new ReferenceList();
+		if (book == null) {
+			return refs;
+		}
+		int lastChapter = getLastChapterNumber(book);
+		addRange(refs, startOf(book, 1, 1), endOf(book, lastChapter, getLastVerseNumber(book, lastChapter)));
+		return refs;
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapter(BookOfBible book, int chapter) {
+		ReferenceList refs = new ReferenceList();
+		if (book == null) {
+			return refs;
+		}
+		addRange(refs, startOf(book, chapter, 1), endOf(book, chapter, getLastVerseNumber(book, chapter)));
+		return refs;
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapters(BookOfBible book, int chapter1, int chapter2) {
+		ReferenceList refs = new ReferenceList();
+		if (book == null) {
+			return refs;
+		}
+		addRange(refs, startOf(book, chapter1, 1), endOf(book, chapter2, getLastVerseNumber(book, chapter2)));
+		return refs;
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		ReferenceList refs = new ReferenceList();
+		if (book == null) {
+			return refs;
+		}
+		addRange(refs, startOf(book, chapter, verse1), endOf(book, chapter, verse2));
+		return refs;
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		ReferenceList refs = new ReferenceList();
+		if (book == null) {
+			return refs;
+		}
+		addRange(refs, startOf(book, chapter1, verse1), endOf(book, chapter2, verse2));
+		return refs;
+	}
+
+	@Override
+	public VerseList getVersesInclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(getVersion(), firstVerse + "-" + lastVerse);
+		}
+		return versesInRange(firstVerse + "-" + lastVerse,
+				startOf(firstVerse.getBookOfBible(), firstVerse.getChapter(), firstVerse.getVerse()),
+				endOf(lastVerse.getBookOfBible(), lastVerse.getChapter(), lastVerse.getVerse()));
+	}
+
+	@Override
+	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(getVersion(), firstVerse + "-" + lastVerse);
+		}
+		return versesInRange(firstVerse + "-" + lastVerse,
+				startOf(firstVerse.getBookOfBible(), firstVerse.getChapter(), firstVerse.getVerse()),
+				startOf(lastVerse.getBookOfBible(), lastVerse.getChapter(), lastVerse.getVerse()));
+	}
+
+	@Override
+	public VerseList getBook(BookOfBible book) {
+		if (book != null) {
+			int lastChapter = getLastChapterNumber(book);
+			return versesInRange(book.toString(), startOf(book, 1, 1),
+					endOf(book, lastChapter, getLastVerseNumber(book, lastChapter)));
+		}
+		return new VerseList(this.getVersion(), "");
+	}
+
+	@Override
+	public VerseList getChapter(BookOfBible book, int chapter) {
+		if (book != null) {
+			return versesInRange(book.toString(), startOf(book, chapter, 1),
+					endOf(book, chapter, getLastVerseNumber(book, chapter)));
+		}
+		return new VerseList(this.getVersion(), "");
+	}
+
+	@Override
+	public VerseList getChapters(BookOfBible book, int chapter1, int chapter2) {
+		if (book != null) {
+			return versesInRange(book.toString(), startOf(book, chapter1, 1),
+					endOf(book, chapter2, getLastVerseNumber(book, chapter2)));
+		}
+		return new VerseList(this.getVersion(), "");
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		if (book != null) {
+			return versesInRange(book.toString(), startOf(book, chapter, verse1), endOf(book, chapter, verse2));
+		}
+		return new VerseList(this.getVersion(), "");
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		if (book != null) {
+			return versesInRange(book.toString(), startOf(book, chapter1, verse1), endOf(book, chapter2, verse2));
+		}
+		return new VerseList(this.getVersion(), "");
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * The position of the first verse of a range starting at book
+	 * chapter:verse. The reference doesn't have to be valid.
+	 */
+	private int startOf(BookOfBible book, int chapter, int verse) {
+		return versification.lowerBound(book, chapter, verse);
+	}
+
+	/*
+	 * The position just past the last verse of a range ending at (and
+	 * including) book chapter:verse. The reference doesn't have to be valid.
+	 */
+	private int endOf(BookOfBible book, int chapter, int verse) {
+		return versification.upperBound(book, chapter, verse);
+	}
+
+	/**
+	 * Add the references of the verses at positions start (inclusive) to end
+	 * (exclusive) to refs.
+	 */
+	protected void addRange(ReferenceList refs, int start, int end) {
+		if (start < end) {
+			refs.ensureCapacity(end - start);
+			for (int i = start; i < end; i++) {
+				refs.add(referenceAt(i));
+			}
+		}
+	}
+
+	/**
+	 * @param description
+	 *            the description of the list.
+	 * @param start
+	 *            the position of the first verse.
+	 * @param end
+	 *            the position just past the last verse.
+	 * @return the verses at positions start (inclusive) to end (exclusive), as
+	 *         a list that gets each verse from this Bible when it is asked for.
+	 */
+	protected VerseList versesInRange(String description, final int start, int end) {
+		final int size = Math.max(end - start, 0);
+		return new VerseListView(getVersion(), description, new AbstractList<Verse>() {
+			@Override
+			public Verse get(int index) {
+				if (index < 0 || index >= size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+				return verseAt(start + index);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		});
+	}
+}
@@ -0,0 +1,93 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Whether searches use more than one core, and the pool they share. In
+ * parallel mode a substring search checks each book of a Bible as a separate
+ * task, and the model searches each of its Bibles at the same time. The
+ * answers are the same either way.
+ *
+ * The mode is read from the system property
+ * <code>bibleReader.parallelSearch</code> (off unless it is "true"), and can be
+ * changed with {@link #setEnabled(boolean)}.
+ *
+ * @author Jonathan Chaffer
+ */
+public class ParallelSearch {
+	/**
+	 * The system property that turns parallel mode on.
+	 */
+	public static final String PROPERTY = "bibleReader.parallelSearch";
+	/**
+	 * Searches that check fewer verses than this aren't worth splitting up.
+	 */
+	public static final int MIN_VERSES = 2048;
+
+	private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+	/**
+	 * @return whether searches are done in parallel.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param parallel
+	 *            whether searches should be done in parallel.
+	 */
+	public static void setEnabled(boolean parallel) {
+		enabled = parallel;
+	}
+
+	/**
+	 * @return the pool that the searches run in.
+	 */
+	public static ForkJoinPool getPool() {
+		return ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * Run a task in the pool and wait for it. A task that is already running in
+	 * the pool runs it there, so that the waiting thread can help.
+	 *
+	 * @param task
+	 *            the task.
+	 * @return the task's result.
+	 */
+	public static <T> T invoke(ForkJoinTask<T> task) {
+		if (ForkJoinTask.inForkJoinPool()) {
+			return task.invoke();
+		}
+		return getPool().invoke(task);
+	}
+
+	/**
+	 * Run jobs at the same time in the pool and wait for all of them.
+	 *
+	 * @param jobs
+	 *            the jobs.
+	 * @return their results, in the same order as the jobs.
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> jobs) {
+		final List<ForkJoinTask<T>> tasks = new ArrayList<ForkJoinTask<T>>(jobs.size());
+		for (Callable<T> job : jobs) {
+			tasks.add(ForkJoinTask.adapt(job));
+		}
+		invoke(ForkJoinTask.adapt(new Runnable() {
+			public void run() {
+				ForkJoinTask.invokeAll(tasks);
+			}
+		}));
+		List<T> results = new ArrayList<T>(tasks.size());
+		for (ForkJoinTask<T> task : tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
+}
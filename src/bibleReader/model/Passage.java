@@ -0,0 +1,220 @@
+package bibleReader.model;
+
+/**
+ * A passage of a book of the Bible as it was asked for, e.g. "John 3:16-18" or
+ * "Psalms 1-3", before it is looked up in any Bible. A passage string such as
+ * "John 3:16, 18; 4:1-3" is parsed into a list of these by
+ * {@link PassageParser}.
+ *
+ * The chapters and verses are just the numbers that were asked for, so they
+ * may not be in any Bible. Numbers that a kind of passage doesn't have (e.g.
+ * the verses of a whole chapter) are 0.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Passage {
+
+	/**
+	 * The kinds of passages, each of which is found differently.
+	 */
+	public enum Kind {
+		/** A whole book, e.g. "Ruth". */
+		BOOK,
+		/** A whole chapter, e.g. "Ruth 2". */
+		CHAPTER,
+		/** Several whole chapters, e.g. "Ruth 2-3". */
+		CHAPTERS,
+		/** One verse, e.g. "Ruth 2:4". */
+		VERSE,
+		/** Several verses from one chapter, e.g. "Ruth 2:4-8". */
+		VERSES,
+		/** From a verse of one chapter to a verse of another, e.g. "Ruth 2:4-3:8". */
+		PASSAGE
+	}
+
+	// The Fields
+	private final BookOfBible book;
+	private final Kind kind;
+	private final int firstChapter;
+	private final int firstVerse;
+	private final int lastChapter;
+	private final int lastVerse;
+
+	/**
+	 * Create a passage. Usually the static methods that make each kind of
+	 * passage are easier to use.
+	 *
+	 * @param book
+	 *            the book.
+	 * @param kind
+	 *            the kind of passage.
+	 * @param firstChapter
+	 *            the first chapter, or 0 for a whole book.
+	 * @param firstVerse
+	 *            the first verse, or 0 for whole chapters.
+	 * @param lastChapter
+	 *            the last chapter, or 0 for a whole book.
+	 * @param lastVerse
+	 *            the last verse, or 0 for whole chapters.
+	 */
+	public Passage(BookOfBible book, Kind kind, int firstChapter, int firstVerse, int lastChapter, int lastVerse) {
+		this.book = book;
+		this.kind = kind;
+		this.firstChapter = firstChapter;
+		this.firstVerse = firstVerse;
+		this.lastChapter = lastChapter;
+		this.lastVerse = lastVerse;
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @return the whole book.
+	 */
+	public static Passage book(BookOfBible book) {
+		return new Passage(book, Kind.BOOK, 0, 0, 0, 0);
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @param chapter
+	 *            the chapter.
+	 * @return the whole chapter.
+	 */
+	public static Passage chapter(BookOfBible book, int chapter) {
+		return new Passage(book, Kind.CHAPTER, chapter, 0, chapter, 0);
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @param chapter1
+	 *            the first chapter.
+	 * @param chapter2
+	 *            the last chapter.
+	 * @return the chapters from chapter1 to chapter2.
+	 */
+	public static Passage chapters(BookOfBible book, int chapter1, int chapter2) {
+		return new Passage(book, Kind.CHAPTERS, chapter1, 0, chapter2, 0);
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @param chapter
+	 *            the chapter.
+	 * @param verse
+	 *            the verse.
+	 * @return the one verse.
+	 */
+	public static Passage verse(BookOfBible book, int chapter, int verse) {
+		return new Passage(book, Kind.VERSE, chapter, verse, chapter, verse);
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @param chapter
+	 *            the chapter.
+	 * @param verse1
+	 *            the first verse.
+	 * @param verse2
+	 *            the last verse.
+	 * @return the verses from verse1 to verse2 of the chapter.
+	 */
+	public static Passage verses(BookOfBible book, int chapter, int verse1, int verse2) {
+		return new Passage(book, Kind.VERSES, chapter, verse1, chapter, verse2);
+	}
+
+	/**
+	 * @param book
+	 *            the book.
+	 * @param chapter1
+	 *            the first chapter.
+	 * @param verse1
+	 *            the first verse, in chapter1.
+	 * @param chapter2
+	 *            the last chapter.
+	 * @param verse2
+	 *            the last verse, in chapter2.
+	 * @return the verses from chapter1:verse1 to chapter2:verse2.
+	 */
+	public static Passage passage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		return new Passage(book, Kind.PASSAGE, chapter1, verse1, chapter2, verse2);
+	}
+
+	public BookOfBible getBookOfBible() {
+		return book;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public int getFirstChapter() {
+		return firstChapter;
+	}
+
+	public int getFirstVerse() {
+		return firstVerse;
+	}
+
+	public int getLastChapter() {
+		return lastChapter;
+	}
+
+	public int getLastVerse() {
+		return lastVerse;
+	}
+
+	/**
+	 * @return whether the passage ends with a verse rather than a whole chapter
+	 *         or book.
+	 */
+	public boolean endsWithVerse() {
+		return kind == Kind.VERSE || kind == Kind.VERSES || kind == Kind.PASSAGE;
+	}
+
+	/**
+	 * @return the passage in the usual form, e.g. "John 3:16-18".
+	 */
+	@Override
+	public String toString() {
+		switch (kind) {
+		case BOOK:
+			return book.toString();
+		case CHAPTER:
+			return book + " " + firstChapter;
+		case CHAPTERS:
+			return book + " " + firstChapter + "-" + lastChapter;
+		case VERSE:
+			return book + " " + firstChapter + ":" + firstVerse;
+		case VERSES:
+			return book + " " + firstChapter + ":" + firstVerse + "-" + lastVerse;
+		default:
+			return book + " " + firstChapter + ":" + firstVerse + "-" + lastChapter + ":" + lastVerse;
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Passage)) {
+			return false;
+		}
+		Passage passage = (Passage) other;
+		return book == passage.book && kind == passage.kind && firstChapter == passage.firstChapter
+				&& firstVerse == passage.firstVerse && lastChapter == passage.lastChapter
+				&& lastVerse == passage.lastVerse;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = book == null ? 0 : book.ordinal() + 1;
+		hash = 31 * hash + kind.ordinal();
+		hash = 31 * hash + firstChapter;
+		hash = 31 * hash + firstVerse;
+		hash = 31 * hash + lastChapter;
+		return 31 * hash + lastVerse;
+	}
+}
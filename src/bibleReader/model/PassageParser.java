@@ -0,0 +1,260 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses passage strings such as "John 3:16", "Ephesians 5-6:9" or "John 3:16,
+ * 18; 4:1-3" into {@link Passage}s. It goes through the string once, one
+ * character at a time, without regular expressions, since every passage
+ * search starts here.
+ *
+ * A passage string is a list of parts separated by commas or semicolons. Each
+ * part is a book (e.g. "1 John", "Song of Solomon"), a book followed by
+ * chapters and verses, or just chapters and verses from the same book as the
+ * part before it. The chapters and verses can be any of
+ * <ul>
+ * <li>"3" for a chapter</li>
+ * <li>"3-4" for several chapters</li>
+ * <li>"3:16" for a verse</li>
+ * <li>"3:16-18" for several verses of a chapter</li>
+ * <li>"3:16-4:2" for the verses from one verse to another</li>
+ * <li>"3-4:2" for the verses from the start of chapter 3 to 4:2</li>
+ * </ul>
+ * After a comma, a part that ends with a verse is followed by more verses of
+ * the same chapter, so "John 3:16, 18-20" is the same as "John 3:16, 3:18-20".
+ * A semicolon goes back to chapters, so "John 3:16; 5" is John 3:16 and John
+ * 5. Spaces are allowed anywhere except inside numbers and words.
+ *
+ * @author Jonathan Chaffer
+ */
+public class PassageParser {
+	// The Fields
+	private final String text;
+	private int position;
+
+	/**
+	 * Parse a passage string.
+	 *
+	 * @param passages
+	 *            the passage string, e.g. "John 3:16, 18; 4:1-3".
+	 * @return the passages in the order they were given, or null if the string
+	 *         isn't a list of passages or one of the books isn't known.
+	 */
+	public static List<Passage> parse(String passages) {
+		return new PassageParser(passages).parse();
+	}
+
+	private PassageParser(String text) {
+		this.text = text;
+	}
+
+	/*
+	 * Parse the whole string.
+	 */
+	private List<Passage> parse() {
+		ArrayList<Passage> passages = new ArrayList<Passage>(1);
+		BookOfBible book = null;
+		// The chapter that a number after a comma is a verse of, or 0 if the
+		// number is a chapter.
+		int verseChapter = 0;
+		skipSpace();
+		while (true) {
+			Passage passage;
+			if (atBook()) {
+				book = parseBook();
+				if (book == null) {
+					return null;
+				}
+				verseChapter = 0;
+				skipSpace();
+				passage = atEndOfPart() ? Passage.book(book) : parseChapterAndVerses(book, 0);
+			} else if (book != null) {
+				passage = parseChapterAndVerses(book, verseChapter);
+			} else {
+				return null;
+			}
+			if (passage == null) {
+				return null;
+			}
+			passages.add(passage);
+			verseChapter = passage.endsWithVerse() ? passage.getLastChapter() : 0;
+
+			skipSpace();
+			if (position == text.length()) {
+				return passages;
+			}
+			char separator = text.charAt(position++);
+			if (separator == ';') {
+				verseChapter = 0;
+			} else if (separator != ',') {
+				return null;
+			}
+			skipSpace();
+		}
+	}
+
+	/*
+	 * The chapters and verses of one part, starting at a number. If
+	 * verseChapter isn't 0, a number on its own is a verse of that chapter.
+	 * Returns null if they aren't one of the forms listed above.
+	 */
+	private Passage parseChapterAndVerses(BookOfBible book, int verseChapter) {
+		int first = parseNumber();
+		if (first < 0) {
+			return null;
+		}
+		skipSpace();
+		if (skip(':')) {
+			// 3:16, 3:16-18 or 3:16-4:2
+			int verse1 = parseNumber();
+			if (verse1 < 0) {
+				return null;
+			}
+			skipSpace();
+			if (!skip('-')) {
+				return Passage.verse(book, first, verse1);
+			}
+			int second = parseNumber();
+			if (second < 0) {
+				return null;
+			}
+			skipSpace();
+			if (!skip(':')) {
+				return Passage.verses(book, first, verse1, second);
+			}
+			int verse2 = parseNumber();
+			return verse2 < 0 ? null : Passage.passage(book, first, verse1, second, verse2);
+		} else if (skip('-')) {
+			// 3-4 or 3-4:2, or after a comma, verses 18-20 or 18-4:2
+			int second = parseNumber();
+			if (second < 0) {
+				return null;
+			}
+			skipSpace();
+			if (skip(':')) {
+				int verse2 = parseNumber();
+				if (verse2 < 0) {
+					return null;
+				} else if (verseChapter > 0) {
+					return Passage.passage(book, verseChapter, first, second, verse2);
+				} else {
+					return Passage.passage(book, first, 1, second, verse2);
+				}
+			}
+			return verseChapter > 0 ? Passage.verses(book, verseChapter, first, second)
+					: Passage.chapters(book, first, second);
+		} else {
+			return verseChapter > 0 ? Passage.verse(book, verseChapter, first) : Passage.chapter(book, first);
+		}
+	}
+
+	/*
+	 * The name of a book, e.g. "1 John" or "Song of Solomon": an optional
+	 * number and then words made of letters. It can be the start of the names
+	 * of just one book (e.g. "Phile"). Returns null if it isn't a known book.
+	 */
+	private BookOfBible parseBook() {
+		int start = position;
+		if (isDigit(text.charAt(position))) {
+			position++;
+			skipSpace();
+		}
+		while (true) {
+			while (position < text.length() && isLetter(text.charAt(position))) {
+				position++;
+			}
+			// Another word of the name?
+			int endOfWord = position;
+			skipSpace();
+			if (position == text.length() || !isLetter(text.charAt(position))) {
+				position = endOfWord;
+				return BookOfBible.findBookOfBible(text, start, endOfWord);
+			}
+		}
+	}
+
+	/*
+	 * A number, or -1 if there isn't one here or it is too big. Spaces after
+	 * it are skipped.
+	 */
+	private int parseNumber() {
+		skipSpace();
+		int start = position;
+		long number = 0;
+		while (position < text.length() && isDigit(text.charAt(position))) {
+			number = number * 10 + (text.charAt(position++) - '0');
+			if (number > Integer.MAX_VALUE) {
+				return -1;
+			}
+		}
+		if (position == start) {
+			return -1;
+		}
+		skipSpace();
+		return (int) number;
+	}
+
+	/*
+	 * Whether a book name starts here: a letter, or a 1, 2 or 3 followed by a
+	 * letter (as in "1 John").
+	 */
+	private boolean atBook() {
+		if (position == text.length()) {
+			return false;
+		}
+		char c = text.charAt(position);
+		if (isLetter(c)) {
+			return true;
+		}
+		if (c < '1' || c > '3') {
+			return false;
+		}
+		int next = position + 1;
+		while (next < text.length() && isSpace(text.charAt(next))) {
+			next++;
+		}
+		return next < text.length() && isLetter(text.charAt(next));
+	}
+
+	/*
+	 * Whether this is the end of a part, i.e. the end of the string or a
+	 * separator.
+	 */
+	private boolean atEndOfPart() {
+		return position == text.length() || text.charAt(position) == ',' || text.charAt(position) == ';';
+	}
+
+	/*
+	 * Skip c and any spaces after it if it is next.
+	 */
+	private boolean skip(char c) {
+		if (position < text.length() && text.charAt(position) == c) {
+			position++;
+			skipSpace();
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpace() {
+		while (position < text.length() && isSpace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/*
+	 * The same characters as \s in a regular expression.
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
@@ -0,0 +1,105 @@
+package bibleReader.model;
+
+/**
+ * The results of a search for a phrase in several versions, with where the
+ * phrase is in each verse, so that it can be highlighted without looking for
+ * it again. The verses, versions and matches are all from the Bibles that
+ * were searched, even if the model has changed since.
+ *
+ * Where the phrase is in a verse is found the first time it is asked for and
+ * kept, since a common word can be in tens of thousands of verses and only a
+ * page of them is shown at a time.
+ *
+ * @author Jonathan Chaffer
+ */
+public class PhraseMatches {
+	// The Fields
+	private String phrase;
+	private ReferenceList references;
+	private String[] versions;
+	private Bible[] bibles;
+	// The matches in result r, version v, are at matches[r * versions.length +
+	// v], or null if they haven't been found yet.
+	private int[][] matches;
+
+	/**
+	 * Create the results of a search.
+	 *
+	 * @param phrase
+	 *            the phrase that was searched for.
+	 * @param references
+	 *            the references of the verses it was found in, in order.
+	 * @param versions
+	 *            the versions searched.
+	 * @param bibles
+	 *            the Bible for each version.
+	 */
+	PhraseMatches(String phrase, ReferenceList references, String[] versions, Bible[] bibles) {
+		this.phrase = phrase;
+		this.references = references;
+		this.versions = versions;
+		this.bibles = bibles;
+		matches = new int[references.size() * versions.length][];
+	}
+
+	/**
+	 * @return the phrase that was searched for.
+	 */
+	public String getPhrase() {
+		return phrase;
+	}
+
+	/**
+	 * @return the references of the verses the phrase was found in, in order.
+	 */
+	public ReferenceList getReferences() {
+		return references;
+	}
+
+	/**
+	 * @return the number of verses the phrase was found in.
+	 */
+	public int size() {
+		return references.size();
+	}
+
+	/**
+	 * @return the versions that were searched. Don't change the array.
+	 */
+	public String[] getVersions() {
+		return versions;
+	}
+
+	/**
+	 * Get the text of one of the verses in one of the versions.
+	 *
+	 * @param result
+	 *            the index of the verse in the references.
+	 * @param version
+	 *            the index of the version in the versions.
+	 * @return the text, or "" if the version doesn't have the verse.
+	 */
+	public String getText(int result, int version) {
+		String text = bibles[version].getVerseText(references.get(result));
+		return text == null ? "" : text;
+	}
+
+	/**
+	 * Get where the phrase is in the text of one of the verses in one of the
+	 * versions (see {@link LowerCaseText#matchesIn(String, String)}).
+	 *
+	 * @param result
+	 *            the index of the verse in the references.
+	 * @param version
+	 *            the index of the version in the versions.
+	 * @return where each match starts in the text, in order. Each is as long
+	 *         as the phrase.
+	 */
+	public synchronized int[] getMatches(int result, int version) {
+		int slot = result * versions.length + version;
+		if (matches[slot] == null) {
+			matches[slot] = LowerCaseText.matchesIn(getText(result, version), phrase);
+		}
+		return matches[slot].clone();
+	}
+}
@@ -1,14 +1,51 @@
 package bibleReader.model;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * A simple class that stores the book, chapter number, and verse number.
  * 
  * @author Charles Cusack, implemented February 2, 2013.
  */
 public class Reference implements Comparable<Reference> {
-	private BookOfBible book;
-	private int chapter;
-	private int verse;
+	/*
+	 * A reference can be packed into a single int: the book ordinal in the high
+	 * bits, then the chapter, then the verse. Packed ids sort in the same order
+	 * as References, so sorted int arrays can stand in for sorted References.
+	 */
+	private static final int NUMBER_BITS = 10;
+	private static final int CHAPTER_SHIFT = NUMBER_BITS;
+	private static final int BOOK_SHIFT = 2 * NUMBER_BITS;
+	private static final int NUMBER_MASK = (1 << NUMBER_BITS) - 1;
+
+	/**
+	 * The largest chapter or verse number that can be packed.
+	 */
+	public static final int MAX_PACKED_NUMBER = NUMBER_MASK;
+
+	// values() copies the array every time, so we keep our own copy.
+	private static final BookOfBible[] BOOKS = BookOfBible.values();
+
+	/*
+	 * The shared References, by book ordinal, then chapter, then verse (see
+	 * of), with null for verses that haven't been shared. Adding to the pool
+	 * only fills empty slots (copying an array to grow it), and every field of
+	 * a Reference is final, so the pool can be read without locking: a reader
+	 * that sees a Reference sees all of it, and one that sees null adds the
+	 * Reference under the lock.
+	 */
+	private static final AtomicReferenceArray<Reference[][]> POOL = new AtomicReferenceArray<Reference[][]>(
+			BOOKS.length);
+
+	// Final, so that a Reference can be shared between threads.
+	private final BookOfBible book;
+	private final int chapter;
+	private final int verse;
+	// Worked out once, so that hashing and comparing References doesn't have
+	// to. The id is the packed id, or -1 if the reference can't be packed.
+	private final int id;
+	private final int hash;
 
 	/**
 	 * @param book
@@ -19,6 +56,62 @@ public class Reference implements Comparable<Reference> {
 		this.book = book;
 		this.chapter = chapter;
 		this.verse = verse;
+		this.id = pack(book, chapter, verse);
+		int hash = book == null ? 0 : book.ordinal() + 1;
+		hash = 31 * hash + chapter;
+		this.hash = 31 * hash + verse;
+	}
+
+	/**
+	 * Get the shared Reference for a verse. There is only ever one shared
+	 * Reference for each verse, so using them instead of making new ones saves
+	 * memory and makes comparing them quicker. Shared References are kept for
+	 * good, so this is only for verses that are in a Bible (e.g. when reading
+	 * one); a reference that is only being looked for, or used as the bound of
+	 * a passage, should be made with the constructor, or found with
+	 * {@link #lookup(BookOfBible, int, int)}.
+	 * 
+	 * @param book
+	 *            the book
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return the shared Reference, or a new one if it can't be packed (see
+	 *         {@link #pack(BookOfBible, int, int)}).
+	 */
+	public static Reference of(BookOfBible book, int chapter, int verse) {
+		if (pack(book, chapter, verse) < 0) {
+			return new Reference(book, chapter, verse);
+		}
+		Reference ref = lookup(book, chapter, verse);
+		return ref != null ? ref : addToPool(book, chapter, verse);
+	}
+
+	/**
+	 * Get the shared Reference for a verse, if there is one, without making it.
+	 * 
+	 * @param book
+	 *            the book
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return the shared Reference (see {@link #of(BookOfBible, int, int)}), or
+	 *         null if the verse isn't in any Bible that has been read.
+	 */
+	public static Reference lookup(BookOfBible book, int chapter, int verse) {
+		if (pack(book, chapter, verse) < 0) {
+			return null;
+		}
+		Reference[][] chapters = POOL.get(book.ordinal());
+		if (chapters != null && chapter < chapters.length) {
+			Reference[] verses = chapters[chapter];
+			if (verses != null && verse < verses.length) {
+				return verses[verse];
+			}
+		}
+		return null;
 	}
 
 	public String getBook() {
@@ -37,6 +130,111 @@ public class Reference implements Comparable<Reference> {
 		return verse;
 	}
 
+	/**
+	 * @return this reference packed into a single int (see
+	 *         {@link #pack(BookOfBible, int, int)}), or -1 if it can't be packed.
+	 */
+	public int getPackedId() {
+		return id;
+	}
+
+	/**
+	 * Pack a reference into a single int. Packed ids compare the same way the
+	 * corresponding References do.
+	 * 
+	 * @param book
+	 *            the book
+	 * @param chapter
+	 *            the chapter, between 0 and MAX_PACKED_NUMBER
+	 * @param verse
+	 *            the verse, between 0 and MAX_PACKED_NUMBER
+	 * @return the packed id, or -1 if the book is null or either number is out
+	 *         of range.
+	 */
+	public static int pack(BookOfBible book, int chapter, int verse) {
+		if (book == null || chapter < 0 || chapter > NUMBER_MASK || verse < 0 || verse > NUMBER_MASK) {
+			return -1;
+		}
+		return (book.ordinal() << BOOK_SHIFT) | (chapter << CHAPTER_SHIFT) | verse;
+	}
+
+	/**
+	 * Pack a reference that is only going to be used as a search bound. Unlike
+	 * pack, numbers that are out of range are allowed: the result is the
+	 * smallest packed id that is not less than the given reference, so
+	 * searching for it in a sorted array of packed ids gives the same position
+	 * as searching for the Reference in a sorted collection of References.
+	 * 
+	 * @param book
+	 *            the book (must not be null)
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return a packed id suitable for use as a search bound.
+	 */
+	public static int packBound(BookOfBible book, int chapter, int verse) {
+		int bookPart = book.ordinal() << BOOK_SHIFT;
+		if (chapter < 0) {
+			return bookPart;
+		} else if (chapter > NUMBER_MASK) {
+			return bookPart + (1 << BOOK_SHIFT);
+		}
+		int chapterPart = bookPart | (chapter << CHAPTER_SHIFT);
+		if (verse < 0) {
+			return chapterPart;
+		} else if (verse > NUMBER_MASK) {
+			return chapterPart + (1 << CHAPTER_SHIFT);
+		}
+		return chapterPart | verse;
+	}
+
+	/**
+	 * @param packedId
+	 *            a packed id
+	 * @return the book of the packed id.
+	 */
+	public static BookOfBible unpackBook(int packedId) {
+		return BOOKS[packedId >>> BOOK_SHIFT];
+	}
+
+	/**
+	 * @param packedId
+	 *            a packed id
+	 * @return the book ordinal of the packed id.
+	 */
+	public static int unpackBookOrdinal(int packedId) {
+		return packedId >>> BOOK_SHIFT;
+	}
+
+	/**
+	 * @param packedId
+	 *            a packed id
+	 * @return the chapter of the packed id.
+	 */
+	public static int unpackChapter(int packedId) {
+		return (packedId >>> CHAPTER_SHIFT) & NUMBER_MASK;
+	}
+
+	/**
+	 * @param packedId
+	 *            a packed id
+	 * @return the verse of the packed id.
+	 */
+	public static int unpackVerse(int packedId) {
+		return packedId & NUMBER_MASK;
+	}
+
+	/**
+	 * @param packedId
+	 *            a packed id
+	 * @return the shared Reference for the packed id (see
+	 *         {@link #of(BookOfBible, int, int)}).
+	 */
+	public static Reference unpack(int packedId) {
+		return of(unpackBook(packedId), unpackChapter(packedId), unpackVerse(packedId));
+	}
+
 	/*
 	 * This method should return the reference in the usual form (e.g.
 	 * "Genesis 2:3").
@@ -48,8 +246,14 @@ public class Reference implements Comparable<Reference> {
 
 	@Override
 	public boolean equals(Object other) {
+		if (other == this) {
+			return true;
+		}
 		if (other instanceof Reference) {
 			Reference ref = (Reference) other;
+			if (id >= 0 && ref.id >= 0) {
+				return id == ref.id;
+			}
 			return (book == ref.book && chapter == ref.chapter && verse == ref.verse);
 		}
 		return false;
@@ -57,7 +261,7 @@ public class Reference implements Comparable<Reference> {
 
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return hash;
 	}
 
 	// @Override
@@ -78,6 +282,13 @@ public class Reference implements Comparable<Reference> {
 
 	@Override
 	public int compareTo(Reference otherRef) {
+		if (otherRef == this) {
+			return 0;
+		}
+		if (id >= 0 && otherRef.id >= 0) {
+			// Packed ids are in the same order as References.
+			return id < otherRef.id ? -1 : (id == otherRef.id ? 0 : 1);
+		}
 		int diffBook = book.compareTo(otherRef.book);
 		if (diffBook != 0) {
 			return diffBook;
@@ -91,4 +302,33 @@ public class Reference implements Comparable<Reference> {
 		}
 	}
 
+	/*
+	 * Add the Reference for a verse to the pool, unless another thread just
+	 * did, and return it. The arrays grow by doubling so that filling a
+	 * chapter a verse at a time doesn't copy them for every verse.
+	 */
+	private static synchronized Reference addToPool(BookOfBible book, int chapter, int verse) {
+		Reference ref = lookup(book, chapter, verse);
+		if (ref != null) {
+			return ref;
+		}
+		Reference[][] chapters = POOL.get(book.ordinal());
+		if (chapters == null) {
+			chapters = new Reference[chapter + 1][];
+			POOL.set(book.ordinal(), chapters);
+		} else if (chapter >= chapters.length) {
+			chapters = Arrays.copyOf(chapters, Math.min(NUMBER_MASK + 1, Math.max(chapter + 1, chapters.length * 2)));
+			POOL.set(book.ordinal(), chapters);
+		}
+		Reference[] verses = chapters[chapter];
+		if (verses == null) {
+			verses = new Reference[verse + 1];
+		} else if (verse >= verses.length) {
+			verses = Arrays.copyOf(verses, Math.min(NUMBER_MASK + 1, Math.max(verse + 1, verses.length * 2)));
+		}
+		ref = new Reference(book, chapter, verse);
+		verses[verse] = ref;
+		chapters[chapter] = verses;
+		return ref;
+	}
 }
@@ -0,0 +1,83 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Operations on sorted arrays of distinct ints, such as the postings of a
+ * Concordance (packed ids) or a SubstringIndex (verse positions).
+ *
+ * @author Jonathan Chaffer
+ */
+public class SortedIntArrays {
+	/**
+	 * An empty array, to return when there is nothing to return.
+	 */
+	public static final int[] EMPTY = new int[0];
+
+	/**
+	 * Find the ints that are in both arrays. Each int of the smaller array is
+	 * found in the larger one by galloping forward from where the last one was
+	 * found, so a short array against a long one takes time proportional to
+	 * the short one times the log of the gaps.
+	 *
+	 * @param first
+	 *            a sorted array.
+	 * @param second
+	 *            another sorted array.
+	 * @return the ints in both, in order.
+	 */
+	public static int[] intersect(int[] first, int[] second) {
+		int[] small = first.length <= second.length ? first : second;
+		int[] large = small == first ? second : first;
+		int[] result = new int[small.length];
+		int size = 0;
+		int low = 0;
+		for (int i = 0; i < small.length && low < large.length; i++) {
+			int value = small[i];
+			// Gallop: double the step until we pass the value...
+			int step = 1;
+			int high = low;
+			while (high < large.length && large[high] < value) {
+				low = high + 1;
+				high += step;
+				step *= 2;
+			}
+			// ...then binary search between the last two probes.
+			int found = Arrays.binarySearch(large, low, Math.min(high + 1, large.length), value);
+			if (found >= 0) {
+				result[size++] = value;
+				low = found + 1;
+			} else {
+				low = -found - 1;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Find the ints that are in all of the arrays. The arrays are intersected
+	 * from the shortest up, so the candidates are as few as possible from the
+	 * beginning, and it stops as soon as there are none.
+	 *
+	 * @param arrays
+	 *            sorted arrays. The order of this array is changed.
+	 * @return the ints in all of them, in order, or EMPTY if there are no
+	 *         arrays. This may be one of the arrays, so don't change it.
+	 */
+	public static int[] intersectAll(int[][] arrays) {
+		if (arrays.length == 0) {
+			return EMPTY;
+		}
+		Arrays.sort(arrays, new Comparator<int[]>() {
+			public int compare(int[] first, int[] second) {
+				return first.length - second.length;
+			}
+		});
+		int[] result = arrays[0];
+		for (int i = 1; i < arrays.length && result.length > 0; i++) {
+			result = intersect(result, arrays[i]);
+		}
+		return result;
+	}
+}
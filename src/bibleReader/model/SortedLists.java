@@ -0,0 +1,168 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Operations on sorted lists, such as the ReferenceLists that each Bible
+ * returns, that don't need a TreeSet to keep the results sorted and without
+ * duplicates. Lists that turn out not to be sorted are sorted first, so the
+ * answers are the same as with a TreeSet either way.
+ *
+ * @author Jonathan Chaffer
+ */
+public class SortedLists {
+
+	/**
+	 * Add everything that is in at least one of the lists to the result, in
+	 * order and once each. The lists are merged together, always taking the
+	 * smallest of their next elements, which are kept in a heap.
+	 *
+	 * @param lists
+	 *            the lists, each of which should be sorted.
+	 * @param result
+	 *            where to put the union, e.g. a list with enough room for all
+	 *            of the lists (see {@link #totalSize(List)}).
+	 */
+	public static <T extends Comparable<? super T>> void union(List<? extends List<? extends T>> lists,
+			Collection<? super T> result) {
+		ArrayList<List<? extends T>> sources = new ArrayList<List<? extends T>>(lists.size());
+		for (List<? extends T> list : lists) {
+			if (!list.isEmpty()) {
+				sources.add(sorted(list));
+			}
+		}
+		int[] positions = new int[sources.size()];
+		// The sources that have elements left, as a heap ordered by their
+		// next element.
+		int[] heap = new int[sources.size()];
+		int heapSize = 0;
+		for (int source = 0; source < sources.size(); source++) {
+			heap[heapSize++] = source;
+			siftUp(sources, positions, heap, heapSize - 1);
+		}
+		T last = null;
+		while (heapSize > 0) {
+			int source = heap[0];
+			T next = sources.get(source).get(positions[source]++);
+			if (last == null || last.compareTo(next) != 0) {
+				result.add(next);
+				last = next;
+			}
+			if (positions[source] == sources.get(source).size()) {
+				heap[0] = heap[--heapSize];
+			}
+			siftDown(sources, positions, heap, heapSize, 0);
+		}
+	}
+
+	/**
+	 * Add everything that is in both lists to the result, in order and once
+	 * each.
+	 *
+	 * @param first
+	 *            a list, which should be sorted.
+	 * @param second
+	 *            another list, which should be sorted.
+	 * @param result
+	 *            where to put the intersection.
+	 */
+	public static <T extends Comparable<? super T>> void intersection(List<? extends T> first, List<? extends T> second,
+			Collection<? super T> result) {
+		List<? extends T> a = sorted(first);
+		List<? extends T> b = sorted(second);
+		int i = 0;
+		int j = 0;
+		T last = null;
+		while (i < a.size() && j < b.size()) {
+			int comparison = a.get(i).compareTo(b.get(j));
+			if (comparison < 0) {
+				i++;
+			} else if (comparison > 0) {
+				j++;
+			} else {
+				T next = a.get(i);
+				if (last == null || last.compareTo(next) != 0) {
+					result.add(next);
+					last = next;
+				}
+				i++;
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * @param lists
+	 *            some lists.
+	 * @return the total size of the lists, which is as big as their union can
+	 *         be.
+	 */
+	public static int totalSize(List<? extends List<?>> lists) {
+		int size = 0;
+		for (List<?> list : lists) {
+			size += list.size();
+		}
+		return size;
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	/*
+	 * The list if it is sorted and quick to index, or else a sorted copy.
+	 */
+	private static <T extends Comparable<? super T>> List<? extends T> sorted(List<? extends T> list) {
+		if (list instanceof RandomAccess) {
+			boolean inOrder = true;
+			for (int i = 1; i < list.size() && inOrder; i++) {
+				inOrder = list.get(i - 1).compareTo(list.get(i)) <= 0;
+			}
+			if (inOrder) {
+				return list;
+			}
+		}
+		ArrayList<T> copy = new ArrayList<T>(list);
+		Collections.sort(copy);
+		return copy;
+	}
+
+	/*
+	 * Whether the next element of source a comes before that of source b.
+	 */
+	private static <T extends Comparable<? super T>> boolean before(List<List<? extends T>> sources, int[] positions,
+			int a, int b) {
+		return sources.get(a).get(positions[a]).compareTo(sources.get(b).get(positions[b])) < 0;
+	}
+
+	private static <T extends Comparable<? super T>> void siftUp(List<List<? extends T>> sources, int[] positions,
+			int[] heap, int i) {
+		while (i > 0 && before(sources, positions, heap[i], heap[(i - 1) / 2])) {
+			int parent = (i - 1) / 2;
+			int swap = heap[i];
+			heap[i] = heap[parent];
+			heap[parent] = swap;
+			i = parent;
+		}
+	}
+
+	private static <T extends Comparable<? super T>> void siftDown(List<List<? extends T>> sources, int[] positions,
+			int[] heap, int size, int i) {
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && before(sources, positions, heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(sources, positions, heap[child], heap[i])) {
+				return;
+			}
+			int swap = heap[i];
+			heap[i] = heap[child];
+			heap[child] = swap;
+			i = child;
+		}
+	}
+}
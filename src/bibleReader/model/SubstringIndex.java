@@ -0,0 +1,188 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index for finding which of a list of texts contain a phrase, ignoring
+ * case, with exactly the same answers as checking
+ * <code>text.toLowerCase().contains(phrase.toLowerCase())</code> for every
+ * text.
+ *
+ * For every three characters in a row (a trigram) of the lower case texts, the
+ * index has the sorted positions of the texts that contain it. A text that
+ * contains the phrase contains every trigram of the phrase, so the texts that
+ * might contain it are found by intersecting those lists, and only they are
+ * checked. Phrases shorter than a trigram have to check every text.
+ *
+ * @author Jonathan Chaffer
+ */
+public class SubstringIndex {
+	private static final int GRAM_LENGTH = 3;
+	// Set on every key, so that 0 can mean an empty slot.
+	private static final long USED = 1L << 48;
+
+	// The Fields
+	private List<String> texts;
+	// For checking the candidates.
+	private LowerCaseText lowerCaseText;
+	// An open addressing hash table from trigram keys to the positions of the
+	// texts containing them.
+	private long[] keys;
+	private int[][] postings;
+	private int[] sizes;
+	private int trigramCount;
+
+	/**
+	 * Index the texts.
+	 *
+	 * @param texts
+	 *            the texts. They are read again to check the candidates for a
+	 *            phrase, so they must not change.
+	 */
+	public SubstringIndex(List<String> texts) {
+		this(texts, null);
+	}
+
+	/**
+	 * Index the texts, which are in parts that can be checked at the same time
+	 * in parallel mode (see {@link ParallelSearch}).
+	 *
+	 * @param texts
+	 *            the texts. They are read again to check the candidates for a
+	 *            phrase, so they must not change.
+	 * @param partitions
+	 *            where each part of the texts begins (e.g. each book of a
+	 *            Bible), in order, or null.
+	 */
+	public SubstringIndex(List<String> texts, int[] partitions) {
+		this.texts = texts;
+		this.lowerCaseText = new LowerCaseText(texts, partitions);
+		keys = new long[1 << 12];
+		postings = new int[keys.length][];
+		sizes = new int[keys.length];
+		for (int i = 0; i < texts.size(); i++) {
+			String lower = texts.get(i).toLowerCase();
+			for (int j = 0; j + GRAM_LENGTH <= lower.length(); j++) {
+				add(slotFor(key(lower, j)), i);
+			}
+		}
+		// Trim the lists now that they are complete.
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != 0 && postings[slot].length != sizes[slot]) {
+				postings[slot] = Arrays.copyOf(postings[slot], sizes[slot]);
+			}
+		}
+		sizes = null;
+	}
+
+	/**
+	 * @return the number of texts.
+	 */
+	public int size() {
+		return texts.size();
+	}
+
+	/**
+	 * Find the texts containing a phrase, ignoring case.
+	 *
+	 * @param phrase
+	 *            the phrase to look for.
+	 * @return the positions of the texts that contain the phrase, in order. If
+	 *         the phrase is empty, no texts.
+	 */
+	public int[] indexesContaining(String phrase) {
+		String lower = phrase.toLowerCase();
+		if (lower.isEmpty()) {
+			return SortedIntArrays.EMPTY;
+		}
+		int[] candidates = null;
+		if (lower.length() >= GRAM_LENGTH) {
+			int[][] lists = new int[lower.length() - GRAM_LENGTH + 1][];
+			for (int j = 0; j < lists.length; j++) {
+				lists[j] = get(key(lower, j));
+				if (lists[j] == null) {
+					return SortedIntArrays.EMPTY;
+				}
+			}
+			candidates = SortedIntArrays.intersectAll(lists);
+		}
+		return lowerCaseText.indexesContaining(phrase, candidates);
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	private static long key(String text, int start) {
+		return USED | ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16)
+				| text.charAt(start + 2);
+	}
+
+	/*
+	 * Where the key is (or would go) in the table.
+	 */
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		while (keys[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int[] get(long key) {
+		int slot = findSlot(key);
+		return keys[slot] == 0 ? null : postings[slot];
+	}
+
+	/*
+	 * The slot for the key, adding it to the table if it isn't there.
+	 */
+	private int slotFor(long key) {
+		int slot = findSlot(key);
+		if (keys[slot] == 0) {
+			if (2 * (trigramCount + 1) > keys.length) {
+				grow();
+				slot = findSlot(key);
+			}
+			keys[slot] = key;
+			postings[slot] = new int[4];
+			trigramCount++;
+		}
+		return slot;
+	}
+
+	/*
+	 * Add the text to the list in the slot, unless it was the last one added.
+	 */
+	private void add(int slot, int text) {
+		int size = sizes[slot];
+		int[] list = postings[slot];
+		if (size > 0 && list[size - 1] == text) {
+			return;
+		}
+		if (size == list.length) {
+			list = Arrays.copyOf(list, size * 2);
+			postings[slot] = list;
+		}
+		list[size] = text;
+		sizes[slot] = size + 1;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[][] oldPostings = postings;
+		int[] oldSizes = sizes;
+		keys = new long[oldKeys.length * 2];
+		postings = new int[keys.length][];
+		sizes = new int[keys.length];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				postings[slot] = oldPostings[i];
+				sizes[slot] = oldSizes[i];
+			}
+		}
+	}
+}
@@ -6,7 +6,10 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
- * A class that stores a version of the Bible.
+ * A class that stores a version of the Bible. It keeps the verses in a TreeMap
+ * and nothing else, and finds everything from the map in the simplest way that
+ * isn't slow. The other Bibles keep extra indexes to be faster, and are tested
+ * against this one.
  * 
  * @author Chuck Cusack (Provided the interface)
  * @author Jonathan Chaffer (provided the implementation)
@@ -127,49 +130,27 @@ public class TreeMapBible implements Bible {
 
 	@Override
 	public int getLastVerseNumber(BookOfBible book, int chapter) {
-		int num = -1;
 		if (book == null) {
-			return num;
+			return -1;
 		}
-		boolean reachedBook = false;
-		boolean reachedChapter = false;
-		Set<Map.Entry<Reference, String>> entries = verses.entrySet();
-		for (Map.Entry<Reference, String> entry : entries) {
-			if (entry.getKey().getBookOfBible().equals(book)) {
-				reachedBook = true;
-				if (entry.getKey().getChapter() == chapter) {
-					reachedChapter = true;
-				}
-			}
-			if (reachedBook && reachedChapter && entry.getKey().getChapter() == chapter
-					&& entry.getKey().getBookOfBible().equals(book)) {
-				num = entry.getKey().getVerse();
-			} else if (reachedBook && reachedChapter) {
-				return num;
-			}
+		// The last verse there could be in the chapter, or the one before it.
+		Reference last = verses.floorKey(new Reference(book, chapter, Integer.MAX_VALUE));
+		if (last != null && last.getBookOfBible() == book && last.getChapter() == chapter) {
+			return last.getVerse();
 		}
-		return num;
+		return -1;
 	}
 
 	@Override
 	public int getLastChapterNumber(BookOfBible book) {
-		int num = -1;
 		if (book == null) {
-			return num;
+			return -1;
 		}
-		boolean reachedBook = false;
-		Set<Map.Entry<Reference, String>> entries = verses.entrySet();
-		for (Map.Entry<Reference, String> entry : entries) {
-			if (entry.getKey().getBookOfBible().equals(book)) {
-				reachedBook = true;
-			}
-			if (reachedBook && entry.getKey().getBookOfBible().equals(book)) {
-				num = entry.getKey().getChapter();
-			} else if (reachedBook) {
-				return num;
-			}
+		Reference last = verses.floorKey(new Reference(book, Integer.MAX_VALUE, Integer.MAX_VALUE));
+		if (last != null && last.getBookOfBible() == book) {
+			return last.getChapter();
 		}
-		return num;
+		return -1;
 	}
 
 	@Override
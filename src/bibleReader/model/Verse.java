@@ -6,8 +6,10 @@ package bibleReader.model;
  * @author Chuck Cusack, Implemented February 2, 2013
  */
 public class Verse implements Comparable<Verse> {
-	private Reference reference;
-	private String text;
+	private final Reference reference;
+	private final String text;
+	// Worked out the first time it is needed, like String's. 0 means not yet.
+	private int hash;
 
 	/**
 	 * Construct a verse given the reference and the text.
@@ -71,6 +73,9 @@ public class Verse implements Comparable<Verse> {
 	public boolean equals(Object other) {
 		if (other instanceof Verse) {
 			Verse v = (Verse) other;
+			if (hash != 0 && v.hash != 0 && hash != v.hash) {
+				return false;
+			}
 			if (text != null) {
 				return reference.equals(v.reference) && text.equals(v.text);
 			}
@@ -80,7 +85,12 @@ public class Verse implements Comparable<Verse> {
 
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		int h = hash;
+		if (h == 0) {
+			h = 31 * (reference == null ? 0 : reference.hashCode()) + (text == null ? 0 : text.hashCode());
+			hash = h;
+		}
+		return h;
 	}
 
 	@Override
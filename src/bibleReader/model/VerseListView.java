@@ -0,0 +1,309 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A VerseList that reads its verses from another list, usually one backed by
+ * a Bible's own storage that makes each Verse when it is asked for, instead
+ * of copying them all. Reading the list never copies anything, so going
+ * through a whole Bible doesn't need a second copy of it in memory.
+ *
+ * The list can still be changed like any other VerseList. Every method that
+ * can change it first calls {@link #materialize()}, which copies the verses
+ * into the list itself, so the Bible it came from is never changed. After
+ * that, it is an ordinary VerseList. ArrayList reads its own storage
+ * directly, so every ArrayList method has to be overridden here, either to
+ * read the verses it came from or to materialize the list first.
+ *
+ * @author Jonathan Chaffer
+ */
+public class VerseListView extends VerseList {
+	private static final long serialVersionUID = 1L;
+
+	// The Fields
+	// The verses, until the list is materialized. After that it is null and
+	// the verses are in the list itself.
+	private transient List<Verse> source;
+
+	/**
+	 * Create a list of verses that reads them from source.
+	 *
+	 * @param version
+	 *            The version of the Bible the verses are from.
+	 * @param description
+	 *            A description of the verses (see
+	 *            {@link VerseList#VerseList(String, String)}).
+	 * @param source
+	 *            the verses. It should not change while this list is reading
+	 *            from it.
+	 */
+	public VerseListView(String version, String description, List<Verse> source) {
+		super(version, description);
+		this.source = source;
+	}
+
+	/**
+	 * @return true if the verses are still read from the list this was created
+	 *         with, i.e. the list hasn't been changed.
+	 */
+	public boolean isView() {
+		return source != null;
+	}
+
+	/**
+	 * Copy the verses into this list, if they haven't been, so that it can be
+	 * changed without changing the list it was reading from.
+	 */
+	public void materialize() {
+		List<Verse> verses = source;
+		if (verses != null) {
+			source = null;
+			super.addAll(verses);
+		}
+	}
+
+	// ---------------------------------------------------------------------
+	// Reading
+
+	@Override
+	public int size() {
+		return source != null ? source.size() : super.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return source != null ? source.isEmpty() : super.isEmpty();
+	}
+
+	@Override
+	public Verse get(int index) {
+		return source != null ? source.get(index) : super.get(index);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return source != null ? source.contains(o) : super.contains(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return source != null ? source.indexOf(o) : super.indexOf(o);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return source != null ? source.lastIndexOf(o) : super.lastIndexOf(o);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return source != null ? source.toArray() : super.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return source != null ? source.toArray(a) : super.toArray(a);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Verse> action) {
+		if (source != null) {
+			source.forEach(action);
+		} else {
+			super.forEach(action);
+		}
+	}
+
+	@Override
+	public Spliterator<Verse> spliterator() {
+		return source != null ? source.spliterator() : super.spliterator();
+	}
+
+	@Override
+	public Iterator<Verse> iterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Verse> listIterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Verse> listIterator(int index) {
+		// An iterator that goes through the list by position, so that changing
+		// the list through it materializes it and carries on.
+		return source != null ? new ByPosition().listIterator(index) : super.listIterator(index);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		return source != null ? source.equals(o) : super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return source != null ? source.hashCode() : super.hashCode();
+	}
+
+	@Override
+	public Object clone() {
+		return new VerseList(getVersion(), getDescription(), this);
+	}
+
+	// ---------------------------------------------------------------------
+	// Changing
+
+	@Override
+	public boolean add(Verse verse) {
+		materialize();
+		return super.add(verse);
+	}
+
+	@Override
+	public void add(int index, Verse verse) {
+		materialize();
+		super.add(index, verse);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Verse> c) {
+		materialize();
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Verse> c) {
+		materialize();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public Verse set(int index, Verse verse) {
+		materialize();
+		return super.set(index, verse);
+	}
+
+	@Override
+	public Verse remove(int index) {
+		materialize();
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		materialize();
+		return super.remove(o);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		materialize();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		materialize();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Verse> filter) {
+		materialize();
+		return super.removeIf(filter);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		materialize();
+		super.removeRange(fromIndex, toIndex);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<Verse> operator) {
+		materialize();
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public void sort(Comparator<? super Verse> c) {
+		materialize();
+		super.sort(c);
+	}
+
+	@Override
+	public void clear() {
+		// Nothing needs to be copied to be thrown away.
+		source = null;
+		super.clear();
+	}
+
+	@Override
+	public List<Verse> subList(int fromIndex, int toIndex) {
+		// A sublist can change this list.
+		materialize();
+		return super.subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		materialize();
+		super.ensureCapacity(minCapacity);
+	}
+
+	@Override
+	public void trimToSize() {
+		materialize();
+		super.trimToSize();
+	}
+
+	/*
+	 * Serialized as an ordinary VerseList with the verses in it.
+	 */
+	private Object writeReplace() {
+		return clone();
+	}
+
+	/*
+	 * This list, by position, for AbstractList's iterators.
+	 */
+	private class ByPosition extends AbstractList<Verse> {
+		@Override
+		public Verse get(int index) {
+			return VerseListView.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return VerseListView.this.size();
+		}
+
+		@Override
+		public Verse set(int index, Verse verse) {
+			return VerseListView.this.set(index, verse);
+		}
+
+		@Override
+		public void add(int index, Verse verse) {
+			VerseListView.this.add(index, verse);
+		}
+
+		@Override
+		public Verse remove(int index) {
+			return VerseListView.this.remove(index);
+		}
+	}
+}
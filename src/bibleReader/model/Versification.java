@@ -0,0 +1,263 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The versification of a Bible: which chapters each book has and which verses
+ * each chapter has. It is built once from the sorted packed ids (see
+ * {@link Reference#pack(BookOfBible, int, int)}) of every verse in a Bible, and
+ * after that it can find the position of any verse, and the last chapter or
+ * verse number of any book or chapter, in constant time.
+ *
+ * Positions are indexes into the sorted array of packed ids, so a Bible that
+ * keeps its verses in an array in the same order can use them directly.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Versification {
+	private static final int NUMBER_OF_BOOKS = BookOfBible.values().length;
+
+	// The packed ids of all of the verses, in order.
+	private int[] ids;
+
+	// For each book (by ordinal), the last chapter number, or -1 if the book
+	// isn't here.
+	private int[] lastChapter;
+	// For each book, where its chapter 0 is in the per-chapter arrays below.
+	private int[] chapterBase;
+
+	// For each chapter slot, the last verse number, or -1 if the chapter isn't
+	// here.
+	private int[] lastVerse;
+	// For each chapter slot, where its verse 0 is in the slots array.
+	private int[] verseBase;
+	// For each verse slot, the position of the verse, or -1 if it isn't here.
+	private int[] slots;
+
+	/**
+	 * Build the versification.
+	 *
+	 * @param sortedIds
+	 *            the packed ids of all of the verses, sorted and without
+	 *            duplicates. The array is not copied, so it should not be
+	 *            changed afterwards.
+	 */
+	public Versification(int[] sortedIds) {
+		ids = sortedIds;
+		lastChapter = new int[NUMBER_OF_BOOKS];
+		chapterBase = new int[NUMBER_OF_BOOKS];
+		Arrays.fill(lastChapter, -1);
+
+		// First pass: the last chapter of each book.
+		for (int id : ids) {
+			int book = Reference.unpackBookOrdinal(id);
+			lastChapter[book] = Math.max(lastChapter[book], Reference.unpackChapter(id));
+		}
+		int numberOfChapterSlots = 0;
+		for (int book = 0; book < NUMBER_OF_BOOKS; book++) {
+			chapterBase[book] = numberOfChapterSlots;
+			numberOfChapterSlots += lastChapter[book] + 1;
+		}
+
+		// Second pass: the last verse of each chapter.
+		lastVerse = new int[numberOfChapterSlots];
+		verseBase = new int[numberOfChapterSlots];
+		Arrays.fill(lastVerse, -1);
+		for (int id : ids) {
+			int chapter = chapterSlot(Reference.unpackBookOrdinal(id), Reference.unpackChapter(id));
+			lastVerse[chapter] = Math.max(lastVerse[chapter], Reference.unpackVerse(id));
+		}
+		int numberOfVerseSlots = 0;
+		for (int chapter = 0; chapter < numberOfChapterSlots; chapter++) {
+			verseBase[chapter] = numberOfVerseSlots;
+			numberOfVerseSlots += lastVerse[chapter] + 1;
+		}
+
+		// Third pass: the position of each verse.
+		slots = new int[numberOfVerseSlots];
+		Arrays.fill(slots, -1);
+		for (int i = 0; i < ids.length; i++) {
+			int chapter = chapterSlot(Reference.unpackBookOrdinal(ids[i]), Reference.unpackChapter(ids[i]));
+			slots[verseBase[chapter] + Reference.unpackVerse(ids[i])] = i;
+		}
+	}
+
+	/**
+	 * Build the versification for a collection of references, which may be in
+	 * any order and may contain duplicates.
+	 *
+	 * @param references
+	 *            the references of all of the verses.
+	 * @throws IllegalArgumentException
+	 *             if one of the references can't be packed (e.g. its book is
+	 *             null).
+	 */
+	public Versification(Collection<Reference> references) {
+		this(sortedIds(references));
+	}
+
+	/**
+	 * @return the number of verses.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * @param index
+	 *            the position of a verse
+	 * @return the packed id of the verse at that position.
+	 */
+	public int getPackedId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * @param book
+	 *            the book
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return the position of the verse, or -1 if it isn't here.
+	 */
+	public int indexOf(BookOfBible book, int chapter, int verse) {
+		if (book == null || chapter < 0 || chapter > lastChapter[book.ordinal()]) {
+			return -1;
+		}
+		int slot = chapterBase[book.ordinal()] + chapter;
+		if (verse < 0 || verse > lastVerse[slot]) {
+			return -1;
+		}
+		return slots[verseBase[slot] + verse];
+	}
+
+	/**
+	 * @param ref
+	 *            the reference
+	 * @return the position of the verse, or -1 if it isn't here.
+	 */
+	public int indexOf(Reference ref) {
+		if (ref == null) {
+			return -1;
+		}
+		return indexOf(ref.getBookOfBible(), ref.getChapter(), ref.getVerse());
+	}
+
+	/**
+	 * @param book
+	 *            the book (must not be null)
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return the position of the first verse that is not before book
+	 *         chapter:verse. This is size() if there is no such verse.
+	 */
+	public int lowerBound(BookOfBible book, int chapter, int verse) {
+		int bound = Reference.packBound(book, chapter, verse);
+		int low = 0;
+		int high = ids.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ids[mid] < bound) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param book
+	 *            the book (must not be null)
+	 * @param chapter
+	 *            the chapter
+	 * @param verse
+	 *            the verse
+	 * @return the position just after book chapter:verse if it is here, or the
+	 *         position of the first verse after it otherwise. In other words,
+	 *         the end of a range that includes book chapter:verse.
+	 */
+	public int upperBound(BookOfBible book, int chapter, int verse) {
+		int index = indexOf(book, chapter, verse);
+		if (index >= 0) {
+			return index + 1;
+		}
+		return lowerBound(book, chapter, verse);
+	}
+
+	/**
+	 * @param book
+	 *            The book.
+	 * @param chapter
+	 *            The chapter.
+	 * @return the number of the final verse of the given chapter in the given
+	 *         book, or -1 if the book or chapter is not here.
+	 */
+	public int getLastVerseNumber(BookOfBible book, int chapter) {
+		if (book == null || chapter < 0 || chapter > lastChapter[book.ordinal()]) {
+			return -1;
+		}
+		return lastVerse[chapterBase[book.ordinal()] + chapter];
+	}
+
+	/**
+	 * @param book
+	 *            The book
+	 * @return the number of the final chapter of the given book, or -1 if the
+	 *         book is not here.
+	 */
+	public int getLastChapterNumber(BookOfBible book) {
+		if (book == null) {
+			return -1;
+		}
+		return lastChapter[book.ordinal()];
+	}
+
+	/**
+	 * @return the positions where each book that is here begins, in order. The
+	 *         first is 0 unless there are no verses.
+	 */
+	public int[] getBookStarts() {
+		int[] starts = new int[NUMBER_OF_BOOKS];
+		int size = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == 0 || Reference.unpackBookOrdinal(ids[i]) != Reference.unpackBookOrdinal(ids[i - 1])) {
+				starts[size++] = i;
+			}
+		}
+		return Arrays.copyOf(starts, size);
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+	private static int[] sortedIds(Collection<Reference> references) {
+		int[] ids = new int[references.size()];
+		int size = 0;
+		for (Reference ref : references) {
+			int id = ref.getPackedId();
+			if (id < 0) {
+				// Not ref.toString(), which needs a book.
+				throw new IllegalArgumentException("Cannot pack reference " + ref.getBookOfBible() + " "
+						+ ref.getChapter() + ":" + ref.getVerse());
+			}
+			ids[size++] = id;
+		}
+		Arrays.sort(ids);
+		// Remove the duplicates.
+		size = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (size == 0 || ids[size - 1] != ids[i]) {
+				ids[size++] = ids[i];
+			}
+		}
+		return Arrays.copyOf(ids, size);
+	}
+
+	private int chapterSlot(int bookOrdinal, int chapter) {
+		return chapterBase[bookOrdinal] + chapter;
+	}
+}
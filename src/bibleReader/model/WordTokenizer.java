@@ -0,0 +1,200 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits the text of a verse (or a query) into the lower-case words that the
+ * Concordance indexes. It is a single pass over the text, and it gives exactly
+ * the same words as the original regular expression version:
+ *
+ * <pre>
+ * text = text.toLowerCase();
+ * text = text.replaceAll("(&lt;sup&gt;[,\\w]*?&lt;/sup&gt;|'s|’s|&amp;#\\w*;|\\d+)", " ");
+ * text = text.replaceAll(",", "");
+ * words = text.split("\\W+");
+ * </pre>
+ *
+ * That is, footnote markers, possessive "'s", HTML character references and
+ * numbers separate words, commas are dropped (so "a,b" is one word), and a
+ * word is a run of ASCII letters and underscores.
+ *
+ * A WordTokenizer keeps a buffer for the word it is building, so reuse one
+ * for many texts, but don't share it between threads.
+ *
+ * @author Jonathan Chaffer
+ */
+public class WordTokenizer {
+
+	/**
+	 * Receives the words of a text, in order.
+	 */
+	public interface WordHandler {
+		/**
+		 * @param word
+		 *            the next word, in lower case.
+		 */
+		public void handleWord(String word);
+	}
+
+	// The Fields
+	private char[] word = new char[32];
+	private int length;
+
+	/**
+	 * Give each word of the text to the handler, in order.
+	 *
+	 * @param text
+	 *            the text to split into words.
+	 * @param handler
+	 *            gets the words.
+	 */
+	public void tokenize(String text, WordHandler handler) {
+		length = 0;
+		int n = text.length();
+		int i = 0;
+		while (i < n) {
+			char c = Character.toLowerCase(text.charAt(i));
+			int end = i + 1;
+			if (text.charAt(i) == '\u0130') {
+				// String.toLowerCase turns a dotted capital I into "i" and a
+				// combining dot, which isn't part of a word.
+				append(c);
+			} else if (c == ',') {
+				// Dropped without ending the word.
+				i = end;
+				continue;
+			} else if (isWordChar(c) && !isDigit(c)) {
+				append(c);
+				i = end;
+				continue;
+			} else if (isDigit(c)) {
+				while (end < n && isDigit(text.charAt(end))) {
+					end++;
+				}
+			} else if ((c == '\'' || c == '\u2019') && end < n && Character.toLowerCase(text.charAt(end)) == 's') {
+				end++;
+			} else if (c == '<') {
+				end = Math.max(end, endOfFootnote(text, i));
+			} else if (c == '&') {
+				end = Math.max(end, endOfCharacterReference(text, i));
+			}
+			// Anything else, or something that was replaced by a space, ends
+			// the word.
+			endWord(handler);
+			i = end;
+		}
+		endWord(handler);
+	}
+
+	/**
+	 * Add each word of the text to the end of a list.
+	 *
+	 * @param text
+	 *            the text to split into words.
+	 * @param words
+	 *            the list to add to.
+	 */
+	public void tokenize(String text, final List<String> words) {
+		tokenize(text, new WordHandler() {
+			public void handleWord(String word) {
+				words.add(word);
+			}
+		});
+	}
+
+	/**
+	 * @param text
+	 *            the text to split into words.
+	 * @return the words of the text, in order.
+	 */
+	public static ArrayList<String> extractWords(String text) {
+		ArrayList<String> words = new ArrayList<String>();
+		new WordTokenizer().tokenize(text, words);
+		return words;
+	}
+
+	// ---------------------------------------------------------------------
+	// Private helper methods
+
+	private void append(char c) {
+		if (length == word.length) {
+			word = Arrays.copyOf(word, length * 2);
+		}
+		word[length++] = c;
+	}
+
+	private void endWord(WordHandler handler) {
+		if (length > 0) {
+			handler.handleWord(new String(word, 0, length));
+			length = 0;
+		}
+	}
+
+	/*
+	 * If a footnote marker like "<sup>a,b</sup>" starts at index start, the
+	 * index just after it; otherwise -1.
+	 */
+	private static int endOfFootnote(String text, int start) {
+		int i = start;
+		if (!regionMatches(text, i, "<sup>")) {
+			return -1;
+		}
+		i += 5;
+		while (i < text.length() && (text.charAt(i) == ',' || isWordCharIgnoringCase(text.charAt(i)))) {
+			i++;
+		}
+		return regionMatches(text, i, "</sup>") ? i + 6 : -1;
+	}
+
+	/*
+	 * If a character reference like "&#8212;" or "&#x;" starts at index start,
+	 * the index just after it; otherwise -1.
+	 */
+	private static int endOfCharacterReference(String text, int start) {
+		int i = start + 1;
+		if (i >= text.length() || text.charAt(i) != '#') {
+			return -1;
+		}
+		i++;
+		while (i < text.length() && isWordCharIgnoringCase(text.charAt(i))) {
+			i++;
+		}
+		return i < text.length() && text.charAt(i) == ';' ? i + 1 : -1;
+	}
+
+	/*
+	 * Whether the text has the lower-case string at the index, ignoring case.
+	 */
+	private static boolean regionMatches(String text, int index, String lower) {
+		if (index + lower.length() > text.length()) {
+			return false;
+		}
+		for (int i = 0; i < lower.length(); i++) {
+			if (Character.toLowerCase(text.charAt(index + i)) != lower.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/*
+	 * The characters of \w in a Java regular expression.
+	 */
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+	}
+
+	/*
+	 * Whether the character is a whole word character once it is lower case.
+	 * A dotted capital I isn't, since it becomes two characters.
+	 */
+	private static boolean isWordCharIgnoringCase(char c) {
+		return c != '\u0130' && isWordChar(Character.toLowerCase(c));
+	}
+}
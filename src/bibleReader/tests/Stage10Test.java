@@ -24,6 +24,8 @@ public class Stage10Test extends GUITestCase {
 
 	public void setUp() throws Exception {
 		br = new BibleReaderApp();
+		// The versions are loaded in the background.
+		br.awaitBibles();
 		input = getComponent(JTextField.class, "InputTextField");
 		search = getComponent(JButton.class, "SearchButton");
 		passage = getComponent(JButton.class, "PassageButton");
@@ -32,12 +34,21 @@ public class Stage10Test extends GUITestCase {
 		output = getComponent(JEditorPane.class, "OutputEditorPane");
 	}
 
+	/*
+	 * The results, once all of the rows of the page have been added (they
+	 * are added a few at a time).
+	 */
+	private String getOutputText() {
+		br.resultView.finishRendering();
+		return output.getText();
+	}
+
 	public void testSearchResultsPage1() {
 		// Just check that the number of words on the first page is correct.
 		enterText(input, "eaten");
 		click(search);
 		// Page 1
-		assertEquals("Wrong number of occurrences on page 1", 57, countOccurrences(output.getText(), "eaten"));
+		assertEquals("Wrong number of occurrences on page 1", 57, countOccurrences(getOutputText(), "eaten"));
 	}
 
 	public void testSearchResultsPage1Bolded() {
@@ -45,7 +56,7 @@ public class Stage10Test extends GUITestCase {
 		// that they are bolded.
 		enterText(input, "eaten");
 		click(search);
-		assertEquals("Wrong number of occurrences on page 1", 57, countOccurrences(output.getText(), "<b>eaten</b>"));
+		assertEquals("Wrong number of occurrences on page 1", 57, countOccurrences(getOutputText(), "<b>eaten</b>"));
 	}
 
 	public void testSearchResultsPages2AndBeyond() {
@@ -59,7 +70,7 @@ public class Stage10Test extends GUITestCase {
 			click(next);
 			// Make sure it occurs the right number of times.
 			assertEquals("Wrong number of occurrences on page " + page, timesOnPage[i],
-					countOccurrences(output.getText(), "eaten"));
+					countOccurrences(getOutputText(), "eaten"));
 		}
 	}
 
@@ -74,7 +85,7 @@ public class Stage10Test extends GUITestCase {
 			click(next);
 			// Make sure it occurs the right number of times, bolded each time.
 			assertEquals("Wrong number of occurrences on page " + page + ".  I think you forgot to bold it.",
-					timesOnPage[i], countOccurrences(output.getText(), "<b>eaten</b>"));
+					timesOnPage[i], countOccurrences(getOutputText(), "<b>eaten</b>"));
 		}
 	}
 
@@ -130,7 +141,7 @@ public class Stage10Test extends GUITestCase {
 		//
 		enterText(input, "wagon");
 		click(search);
-		assertEquals("Wrong number of occurrences of wagon", 36, countOccurrences(output.getText(), "wagon"));
+		assertEquals("Wrong number of occurrences of wagon", 36, countOccurrences(getOutputText(), "wagon"));
 	}
 
 	public void testSinglePageSearchNavigation() {
@@ -149,7 +160,7 @@ public class Stage10Test extends GUITestCase {
 		// disabled as they should be.
 		enterText(input, "3 John");
 		click(passage);
-		assertEquals("Wrong number of occurrences of wagon", 3, countOccurrences(output.getText(), "Diotrephes"));
+		assertEquals("Wrong number of occurrences of wagon", 3, countOccurrences(getOutputText(), "Diotrephes"));
 	}
 
 	public void testSinglePagePassageNavigation() {
@@ -169,7 +180,7 @@ public class Stage10Test extends GUITestCase {
 		enterText(input, "fool");
 		click(search);
 		clickMultiple(next, 10);
-		assertEquals("Wrong number of occurrences on page 10", 54, countOccurrences(output.getText(), "fool"));
+		assertEquals("Wrong number of occurrences on page 10", 54, countOccurrences(getOutputText(), "fool"));
 	}
 
 	public void testnoResultsForPassage() {
@@ -223,7 +234,7 @@ public class Stage10Test extends GUITestCase {
 		enterText(input, "3 John");
 		click(passage);
 
-		String text = output.getText();
+		String text = getOutputText();
 		assertTrue("The title of the third page should be '3 John 1:1-15'", text.contains("3 John 1:1-15"));
 	}
 
@@ -234,14 +245,14 @@ public class Stage10Test extends GUITestCase {
 		click(passage);
 		click(next);
 		click(next);
-		String page3 = output.getText();
+		String page3 = getOutputText();
 		assertTrue("The title of the third page should be 'Ephesians 2:18-3:15'", page3.contains("Ephesians 2:18-3:15"));
 	}
 
 	public void testSuptagesWithMissingVerse() {
 		enterText(input, "3 John");
 		click(passage);
-		String text = output.getText();
+		String text = getOutputText();
 
 		int numberFifteens = countOccurrences(text, ">15<");
 		assertEquals("Only ESV has verse 15, so the verse number should only appear once in your results.", 1,
@@ -251,7 +262,7 @@ public class Stage10Test extends GUITestCase {
 	public void testSupTagsPage1() {
 		enterText(input, "3 John");
 		click(passage);
-		String text = output.getText();
+		String text = getOutputText();
 		// Spot check a few.
 		int numFours = countOccurrences(text, ">4<");
 		assertEquals(3, numFours);
@@ -263,7 +274,7 @@ public class Stage10Test extends GUITestCase {
 		enterText(input, "James");
 		click(passage);
 		click(next);
-		String page2 = output.getText();
+		String page2 = getOutputText();
 		// We don't know if there will be bold, sup, or whatever tags
 		// immediately around the verse numbers,
 		// but we do expect SOME tag to be around them.
@@ -275,7 +286,7 @@ public class Stage10Test extends GUITestCase {
 	public void testPassageResultsPage1() {
 		enterText(input, "Ephesians");
 		click(passage);
-		String page1 = output.getText();
+		String page1 = getOutputText();
 		assertEquals(6, countOccurrences(page1, "heavenly"));
 	}
 
@@ -283,7 +294,7 @@ public class Stage10Test extends GUITestCase {
 		enterText(input, "Ephesians");
 		click(passage);
 		clickMultiple(next, 7);
-		assertEquals(2, countOccurrences(output.getText(), "incorruptible"));
+		assertEquals(2, countOccurrences(getOutputText(), "incorruptible"));
 	}
 
 	public void testPassageResultsNavigation() {
@@ -306,7 +317,7 @@ public class Stage10Test extends GUITestCase {
 		// Test order based on text from the same verse.
 		enterText(input, "Ephesians");
 		click(passage);
-		String page1 = output.getText();
+		String page1 = getOutputText();
 		// The Java HTML renderer modifies the text, so it will not be exactly
 		// what we expect.
 		// Hopefully if we remove all of the white spaces we will get more
@@ -331,7 +342,7 @@ public class Stage10Test extends GUITestCase {
 		// beginning of the second result, and similarly for the 2nd and 3rd).
 		enterText(input, "Habakkuk 3");
 		click(passage);
-		String outputText = output.getText();
+		String outputText = getOutputText();
 
 		// Make sure the results for the 3 versions appear in the correct order.
 		// This one is more demanding than the previous one. We compare the
@@ -370,7 +381,7 @@ public class Stage10Test extends GUITestCase {
 		click(passage);
 
 		// Check that the first page contains the expected passage selection
-		assertTrue("The title of the results should contain John 1:1-20", output.getText().contains("John 1:1-20"));
+		assertTrue("The title of the results should contain John 1:1-20", getOutputText().contains("John 1:1-20"));
 
 		// Go to the end of the results.
 		clickMultiple(next, 23);
@@ -382,14 +393,14 @@ public class Stage10Test extends GUITestCase {
 		// Now redo the same search.
 		click(passage);
 		// Did we revert back to the beginning of the results as we should have?
-		assertTrue("The title of the results should contain John 1:1-20", output.getText().contains("John 1:1-20"));
+		assertTrue("The title of the results should contain John 1:1-20", getOutputText().contains("John 1:1-20"));
 		// Are the previous/next buttons disabled/enabled as they should be
 		// after the new search?
 		assertFalse("Previous should be disabled", previous.isEnabled());
 		assertTrue("Next should be enabled", next.isEnabled());
 		
 		click(next);
-		assertTrue("The title of the results should contain John 1:21-40", output.getText().contains("John 1:21-40"));
+		assertTrue("The title of the results should contain John 1:21-40", getOutputText().contains("John 1:21-40"));
 	}
 
 	public void testMultipleSearchResults() {
@@ -413,10 +424,10 @@ public class Stage10Test extends GUITestCase {
 		// Check whether a completely new search was conducted, or if the page
 		// navigation retrieves results from the previous search
 		assertEquals("Wrong number of occurrences of golden on page 1", 46,
-				countOccurrences(output.getText(), "golden"));
+				countOccurrences(getOutputText(), "golden"));
 		clickMultiple(next, 3);
 		assertEquals("Wrong number of occurrences of golden on page 4", 66,
-				countOccurrences(output.getText(), "golden"));
+				countOccurrences(getOutputText(), "golden"));
 	}
 
 	public void testSearchThenPassage() {
@@ -436,11 +447,11 @@ public class Stage10Test extends GUITestCase {
 		assertTrue("Next should be enabled", next.isEnabled());
 		// Are the contents of the page correct (We'll just check the title)
 		assertTrue("The title of the first page should contain Psalms 27:1-28:6",
-				output.getText().contains("Psalms 27:1-28:6"));
+				getOutputText().contains("Psalms 27:1-28:6"));
 		// Try the next page, too.
 		click(next);
 		assertTrue("The title of the second page should contain Psalms 28:7-9",
-				output.getText().contains("Psalms 28:7-9"));
+				getOutputText().contains("Psalms 28:7-9"));
 	}
 
 	public void testPassageThenSearch() {
@@ -462,9 +473,9 @@ public class Stage10Test extends GUITestCase {
 		assertFalse("Previous should be disabled", previous.isEnabled());
 		assertTrue("Next should be enabled", next.isEnabled());
 
-		assertEquals("Wrong number of occurrences of goats on page 1.", 53, countOccurrences(output.getText(), "goats"));
+		assertEquals("Wrong number of occurrences of goats on page 1.", 53, countOccurrences(getOutputText(), "goats"));
 		click(next);
-		assertEquals("Wrong number of occurrences of goats on page 2.", 34, countOccurrences(output.getText(), "goats"));
+		assertEquals("Wrong number of occurrences of goats on page 2.", 34, countOccurrences(getOutputText(), "goats"));
 
 	}
 
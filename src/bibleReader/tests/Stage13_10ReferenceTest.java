@@ -0,0 +1,173 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.Reference;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests the shared References and how References and Verses are compared and
+ * hashed.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_10ReferenceTest {
+
+	@Test(timeout = 1000)
+	public void testSharedReferences() {
+		Reference john316 = Reference.of(BookOfBible.John, 3, 16);
+		assertSame(john316, Reference.of(BookOfBible.John, 3, 16));
+		assertSame(john316, Reference.unpack(Reference.pack(BookOfBible.John, 3, 16)));
+		// Only the Bible readers share the References of the verses they read.
+		assertNotSame(john316, new Verse(BookOfBible.John, 3, 16, "For God so loved the world").getReference());
+		assertSame(john316, new Verse(john316, "For God so loved the world").getReference());
+		assertEquals(new Reference(BookOfBible.John, 3, 16), john316);
+		assertEquals(BookOfBible.John, john316.getBookOfBible());
+		assertEquals(3, john316.getChapter());
+		assertEquals(16, john316.getVerse());
+
+		// Later verses and chapters don't change the earlier ones.
+		Reference psalm119 = Reference.of(BookOfBible.Psalms, 119, 176);
+		assertSame(psalm119, Reference.of(BookOfBible.Psalms, 119, 176));
+		assertSame(Reference.of(BookOfBible.Psalms, 1, 1), Reference.of(BookOfBible.Psalms, 1, 1));
+		assertSame(psalm119, Reference.of(BookOfBible.Psalms, 119, 176));
+		assertEquals("Psalms 119:176", psalm119.toString());
+	}
+
+	@Test(timeout = 1000)
+	public void testReferencesThatCantBeShared() {
+		Reference noBook = Reference.of(null, 3, 16);
+		assertNotSame(noBook, Reference.of(null, 3, 16));
+		assertEquals(noBook, Reference.of(null, 3, 16));
+		Reference tooBig = Reference.of(BookOfBible.John, 3, Reference.MAX_PACKED_NUMBER + 1);
+		assertEquals(Reference.MAX_PACKED_NUMBER + 1, tooBig.getVerse());
+		assertEquals(new Reference(BookOfBible.John, 3, -1), Reference.of(BookOfBible.John, 3, -1));
+	}
+
+	@Test(timeout = 1000)
+	public void testLookingForVersesDoesntShareThem() {
+		VerseList verses = new VerseList("OBA", "Obadiah");
+		verses.add(new Verse(Reference.of(BookOfBible.Obadiah, 1, 1), "The vision of Obadiah."));
+		verses.add(new Verse(Reference.of(BookOfBible.Obadiah, 1, 2), "Behold, I have made thee small."));
+		assertSame(verses.get(0).getReference(), Reference.lookup(BookOfBible.Obadiah, 1, 1));
+
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		Bible packed = new PackedArrayBible(verses);
+		assertEquals(0, model.getVerseReferences(BookOfBible.Obadiah, 900, 900).size());
+		for (String passage : new String[] { "Obadiah 900:900", "Obadiah 900", "Obadiah 1:1-900:900",
+				"Obadiah 1:2-900", "Obadiah 800-900" }) {
+			model.getReferencesForPassage(passage);
+		}
+		model.getPassageReferences(BookOfBible.Obadiah, 1, 1, 900, 900);
+		packed.getReferencesForPassage(BookOfBible.Obadiah, 1, 1, 900, 900);
+		packed.getChapters(BookOfBible.Obadiah, 800, 900);
+		assertNull(packed.getVerse(BookOfBible.Obadiah, 900, 900));
+		assertNull(model.getBible("OBA").getVerse(BookOfBible.Obadiah, 900, 900));
+		assertNull(model.getBible("OBA").getVerse(BookOfBible.Obadiah, 1, 900));
+
+		assertNull(Reference.lookup(BookOfBible.Obadiah, 900, 900));
+		assertNull(Reference.lookup(BookOfBible.Obadiah, 800, 1));
+		assertNull(Reference.lookup(BookOfBible.Obadiah, 1, 900));
+		assertNull(Reference.lookup(BookOfBible.Obadiah, 1, 3));
+		assertNull(Reference.lookup(null, 1, 1));
+		assertNull(Reference.lookup(BookOfBible.Obadiah, Reference.MAX_PACKED_NUMBER + 1, 1));
+		assertSame(verses.get(1).getReference(), Reference.lookup(BookOfBible.Obadiah, 1, 2));
+	}
+
+	@Test(timeout = 5000)
+	public void testSharedReferencesFromManyThreads() throws Exception {
+		final ArrayList<ArrayList<Reference>> found = new ArrayList<ArrayList<Reference>>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final ArrayList<Reference> refs = new ArrayList<Reference>();
+			found.add(refs);
+			final Random random = new Random(t);
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						refs.add(Reference.of(BookOfBible.Genesis, 1 + i % 50, 1 + random.nextInt(40)));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (ArrayList<Reference> refs : found) {
+			for (Reference ref : refs) {
+				assertSame(ref, Reference.of(ref.getBookOfBible(), ref.getChapter(), ref.getVerse()));
+			}
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testEqualsHashCodeAndCompareTo() {
+		Random random = new Random(13);
+		for (int i = 0; i < 2000; i++) {
+			Reference first = randomReference(random);
+			Reference second = randomReference(random);
+			boolean same = first.getBookOfBible() == second.getBookOfBible()
+					&& first.getChapter() == second.getChapter() && first.getVerse() == second.getVerse();
+			assertEquals(same, first.equals(second));
+			assertEquals(same, first.compareTo(second) == 0);
+			if (same) {
+				assertEquals(first.hashCode(), second.hashCode());
+			}
+			// By book, then chapter, then verse, whether they can be packed or
+			// not.
+			int expected = Integer.signum(first.getBookOfBible().compareTo(second.getBookOfBible()));
+			if (expected == 0) {
+				expected = Integer.signum(Integer.valueOf(first.getChapter()).compareTo(second.getChapter()));
+			}
+			if (expected == 0) {
+				expected = Integer.signum(Integer.valueOf(first.getVerse()).compareTo(second.getVerse()));
+			}
+			assertEquals(expected, Integer.signum(first.compareTo(second)));
+			assertEquals(-expected, Integer.signum(second.compareTo(first)));
+		}
+		assertTrue(Reference.of(BookOfBible.Genesis, 1, 1).compareTo(Reference.of(BookOfBible.Exodus, 1, 1)) < 0);
+	}
+
+	@Test(timeout = 1000)
+	public void testVerseEqualsAndHashCode() {
+		Verse verse = new Verse(BookOfBible.John, 3, 16, "For God so loved the world");
+		Verse same = new Verse(new Reference(BookOfBible.John, 3, 16), "For God so loved the world");
+		Verse otherText = new Verse(BookOfBible.John, 3, 16, "For God so loved the world.");
+		Verse otherReference = new Verse(BookOfBible.John, 3, 17, "For God so loved the world");
+		assertEquals(verse, same);
+		assertEquals(verse.hashCode(), same.hashCode());
+		assertTrue(!verse.equals(otherText) && !verse.equals(otherReference));
+		assertTrue(verse.hashCode() != otherText.hashCode() || verse.hashCode() != otherReference.hashCode());
+		// Hashing first doesn't change equals.
+		assertTrue(!otherText.equals(verse) && same.equals(verse));
+		// A verse with nothing in it can still be hashed, but isn't equal to
+		// anything.
+		assertEquals(0, new Verse(null, null).hashCode());
+		assertTrue(!new Verse(null, null).equals(new Verse(null, null)));
+	}
+
+	private static Reference randomReference(Random random) {
+		BookOfBible book = BookOfBible.values()[random.nextInt(3)];
+		// Sometimes out of the range that can be packed.
+		int chapter = random.nextInt(3) - (random.nextInt(10) == 0 ? 1 : 0);
+		int verse = random.nextInt(3) + (random.nextInt(10) == 0 ? Reference.MAX_PACKED_NUMBER : 0);
+		return random.nextBoolean() ? Reference.of(book, chapter, verse) : new Reference(book, chapter, verse);
+	}
+}
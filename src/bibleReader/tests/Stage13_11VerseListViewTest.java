@@ -0,0 +1,310 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+import bibleReader.model.VerseListView;
+
+/**
+ * Tests that the VerseLists that Bibles return without copying their verses
+ * act like ordinary VerseLists, and that changing them doesn't change the
+ * Bible.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_11VerseListViewTest {
+	private VerseList verses;
+	private Bible[] bibles;
+
+	@Before
+	public void setUp() throws Exception {
+		verses = new VerseList("KJV", "Made up Bible");
+		for (int chapter = 1; chapter <= 3; chapter++) {
+			for (int verse = 1; verse <= 4; verse++) {
+				verses.add(new Verse(BookOfBible.Genesis, chapter, verse, "Genesis " + chapter + ":" + verse));
+			}
+		}
+		verses.add(new Verse(BookOfBible.Exodus, 1, 1, "Exodus 1:1"));
+		// Not TreeMapBible, which is kept simple and returns copies.
+		bibles = new Bible[] { new ArrayListBible(verses), new PackedArrayBible(verses) };
+	}
+
+	@Test(timeout = 1000)
+	public void testViewsAreLikeCopies() {
+		for (Bible bible : bibles) {
+			VerseList all = bible.getAllVerses();
+			assertTrue(all instanceof VerseListView);
+			assertEquals(verses, all);
+			assertEquals(all, verses);
+			assertEquals(verses.hashCode(), all.hashCode());
+			assertEquals(verses.toString(), all.toString());
+			assertEquals("KJV", all.getVersion());
+			assertEquals("Made up Bible", all.getDescription());
+			assertEquals(new ArrayList<Verse>(verses), new ArrayList<Verse>(all));
+			assertEquals(verses.get(12), all.get(12));
+			assertTrue(all.contains(verses.get(5)));
+			assertEquals(5, all.indexOf(verses.get(5)));
+
+			VerseList chapter = bible.getChapter(BookOfBible.Genesis, 2);
+			assertEquals(verses.subList(4, 8), chapter);
+			assertEquals("Genesis", chapter.getDescription());
+			assertEquals(verses.subList(4, 9), bible.getPassage(BookOfBible.Genesis, 2, 1, 3, 1));
+			assertEquals(verses.subList(0, 12), bible.getBook(BookOfBible.Genesis));
+			assertTrue(bible.getBook(BookOfBible.Ruth).isEmpty());
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testIterators() {
+		for (Bible bible : bibles) {
+			VerseList all = bible.getAllVerses();
+			int i = 0;
+			for (Verse verse : all) {
+				assertEquals(verses.get(i++), verse);
+			}
+			assertEquals(verses.size(), i);
+			ListIterator<Verse> backwards = all.listIterator(all.size());
+			while (backwards.hasPrevious()) {
+				assertEquals(verses.get(--i), backwards.previous());
+			}
+			assertEquals(0, i);
+			assertEquals(verses.size(), all.stream().count());
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testChangesDontChangeTheBible() {
+		for (Bible bible : bibles) {
+			VerseList all = bible.getAllVerses();
+			all.clear();
+			assertTrue(all.isEmpty());
+			assertEquals(verses, bible.getAllVerses());
+
+			all = bible.getAllVerses();
+			Verse extra = new Verse(BookOfBible.Ruth, 1, 1, "Ruth 1:1");
+			all.add(extra);
+			assertFalse(((VerseListView) all).isView());
+			assertEquals(verses.size() + 1, all.size());
+			assertEquals(extra, all.get(verses.size()));
+			assertEquals(verses, all.subList(0, verses.size()));
+			assertEquals(verses, bible.getAllVerses());
+
+			all = bible.getChapter(BookOfBible.Genesis, 1);
+			Iterator<Verse> iterator = all.iterator();
+			iterator.next();
+			iterator.remove();
+			assertEquals(verses.subList(1, 4), all);
+			all.subList(0, 2).clear();
+			assertEquals(verses.subList(3, 4), all);
+			assertEquals(verses.subList(0, 4), bible.getChapter(BookOfBible.Genesis, 1));
+
+			List<Verse> copy = bible.getAllVerses();
+			copy.set(0, extra);
+			assertEquals(extra, copy.get(0));
+			assertEquals(verses.get(0), bible.getAllVerses().get(0));
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testEveryChangeLeavesTheBibleAlone() {
+		final Verse extra = new Verse(BookOfBible.Ruth, 1, 1, "Ruth 1:1");
+		final Verse first = verses.get(0);
+		Change[] changes = { new Change("add") {
+			void apply(List<Verse> list) {
+				list.add(extra);
+			}
+		}, new Change("add at") {
+			void apply(List<Verse> list) {
+				list.add(1, extra);
+			}
+		}, new Change("addAll") {
+			void apply(List<Verse> list) {
+				list.addAll(Arrays.asList(extra, extra));
+			}
+		}, new Change("addAll at") {
+			void apply(List<Verse> list) {
+				list.addAll(2, Arrays.asList(extra, extra));
+			}
+		}, new Change("set") {
+			void apply(List<Verse> list) {
+				list.set(3, extra);
+			}
+		}, new Change("remove at") {
+			void apply(List<Verse> list) {
+				list.remove(0);
+			}
+		}, new Change("remove") {
+			void apply(List<Verse> list) {
+				list.remove(first);
+			}
+		}, new Change("removeAll") {
+			void apply(List<Verse> list) {
+				list.removeAll(Arrays.asList(first, verses.get(5)));
+			}
+		}, new Change("retainAll") {
+			void apply(List<Verse> list) {
+				list.retainAll(Arrays.asList(first, verses.get(5)));
+			}
+		}, new Change("removeIf") {
+			void apply(List<Verse> list) {
+				list.removeIf(new Predicate<Verse>() {
+					public boolean test(Verse verse) {
+						return verse.getReference().getVerse() == 2;
+					}
+				});
+			}
+		}, new Change("replaceAll") {
+			void apply(List<Verse> list) {
+				list.replaceAll(new UnaryOperator<Verse>() {
+					public Verse apply(Verse verse) {
+						return new Verse(verse.getReference(), verse.getText().toUpperCase());
+					}
+				});
+			}
+		}, new Change("sort") {
+			void apply(List<Verse> list) {
+				list.sort(Collections.reverseOrder());
+			}
+		}, new Change("Collections.sort") {
+			void apply(List<Verse> list) {
+				Collections.sort(list, new Comparator<Verse>() {
+					public int compare(Verse a, Verse b) {
+						return b.getText().compareTo(a.getText());
+					}
+				});
+			}
+		}, new Change("Collections.reverse") {
+			void apply(List<Verse> list) {
+				Collections.reverse(list);
+			}
+		}, new Change("clear") {
+			void apply(List<Verse> list) {
+				list.clear();
+			}
+		}, new Change("subList clear") {
+			void apply(List<Verse> list) {
+				list.subList(2, 6).clear();
+			}
+		}, new Change("subList set and add") {
+			void apply(List<Verse> list) {
+				List<Verse> sub = list.subList(1, 4);
+				sub.set(0, extra);
+				sub.add(extra);
+				sub.remove(1);
+			}
+		}, new Change("subList removeIf") {
+			void apply(List<Verse> list) {
+				list.subList(0, 8).removeIf(new Predicate<Verse>() {
+					public boolean test(Verse verse) {
+						return verse.getReference().getChapter() == 1;
+					}
+				});
+			}
+		}, new Change("iterator remove") {
+			void apply(List<Verse> list) {
+				Iterator<Verse> iterator = list.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().getReference().getVerse() % 2 == 0) {
+						iterator.remove();
+					}
+				}
+			}
+		}, new Change("listIterator set, add and remove") {
+			void apply(List<Verse> list) {
+				ListIterator<Verse> iterator = list.listIterator(2);
+				iterator.next();
+				iterator.set(extra);
+				iterator.add(extra);
+				iterator.next();
+				iterator.remove();
+				iterator.previous();
+				iterator.set(first);
+			}
+		}, new Change("ensureCapacity and trimToSize") {
+			void apply(List<Verse> list) {
+				((ArrayList<Verse>) list).ensureCapacity(100);
+				list.add(extra);
+				((ArrayList<Verse>) list).trimToSize();
+			}
+		}, new Change("spliterator") {
+			void apply(List<Verse> list) {
+				Spliterator<Verse> spliterator = list.spliterator();
+				spliterator.trySplit();
+				spliterator.forEachRemaining(new Consumer<Verse>() {
+					public void accept(Verse verse) {
+					}
+				});
+			}
+		} };
+		for (Bible bible : bibles) {
+			for (Change change : changes) {
+				ArrayList<Verse> expected = new ArrayList<Verse>(verses);
+				change.apply(expected);
+				VerseList view = bible.getAllVerses();
+				change.apply(view);
+				String message = bible.getClass().getSimpleName() + " " + change.name;
+				assertEquals(message, expected, view);
+				assertEquals(message, expected, new ArrayList<Verse>(view));
+				assertEquals(message, verses, bible.getAllVerses());
+				assertEquals(message, verses.subList(0, 4), bible.getChapter(BookOfBible.Genesis, 1));
+			}
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testEveryArrayListMethodIsOverridden() {
+		// ArrayList reads its own storage, so a method that isn't overridden
+		// would see an empty list, and a change would be lost.
+		List<String> notOverridden = new ArrayList<String>();
+		for (Method method : ArrayList.class.getDeclaredMethods()) {
+			int modifiers = method.getModifiers();
+			if (Modifier.isStatic(modifiers) || method.isSynthetic()
+					|| !(Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers))) {
+				continue;
+			}
+			try {
+				VerseListView.class.getDeclaredMethod(method.getName(), method.getParameterTypes());
+			} catch (NoSuchMethodException e) {
+				notOverridden.add(method.toString());
+			}
+		}
+		assertEquals(new ArrayList<String>(), notOverridden);
+	}
+
+	/*
+	 * A change to a list, to make to a view and to an ordinary list.
+	 */
+	private abstract static class Change {
+		String name;
+
+		Change(String name) {
+			this.name = name;
+		}
+
+		abstract void apply(List<Verse> list);
+	}
+}
@@ -0,0 +1,92 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Passage;
+import bibleReader.model.PassageParser;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests parsing passage strings, including lists of passages.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_12PassageParserTest {
+
+	@Test(timeout = 1000)
+	public void testEachKindOfPassage() {
+		assertEquals(Arrays.asList(Passage.book(BookOfBible.John1)), PassageParser.parse("1 John"));
+		assertEquals(Arrays.asList(Passage.chapter(BookOfBible.SongOfSolomon, 3)),
+				PassageParser.parse("Song of Solomon 3"));
+		assertEquals(Arrays.asList(Passage.chapters(BookOfBible.Timothy1, 2, 4)), PassageParser.parse("1 Timothy 2-4"));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.Genesis, 1, 1)), PassageParser.parse("Genesis 1: 1"));
+		assertEquals(Arrays.asList(Passage.verses(BookOfBible.Ecclesiastes, 3, 1, 8)), PassageParser.parse(" Eccl 3:1-8"));
+		assertEquals(Arrays.asList(Passage.passage(BookOfBible.Isaiah, 52, 13, 53, 12)),
+				PassageParser.parse("Isa 52 :  13  -53:12 "));
+		assertEquals(Arrays.asList(Passage.passage(BookOfBible.Ephesians, 5, 1, 6, 9)),
+				PassageParser.parse("Ephesians 5-6:9"));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.John, 3, 16)), PassageParser.parse("John3:16"));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.John1, 3, 16)), PassageParser.parse("1John3:16"));
+		assertEquals("Isaiah 52:13-53:12", PassageParser.parse("Isa 52:13-53:12").get(0).toString());
+	}
+
+	@Test(timeout = 1000)
+	public void testLists() {
+		assertEquals(
+				Arrays.asList(Passage.verse(BookOfBible.John, 3, 16), Passage.verse(BookOfBible.John, 3, 18),
+						Passage.verses(BookOfBible.John, 4, 1, 3)),
+				PassageParser.parse("John 3:16, 18; 4:1-3"));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.John, 3, 16), Passage.chapter(BookOfBible.John, 5)),
+				PassageParser.parse("John 3:16; 5"));
+		assertEquals(Arrays.asList(Passage.chapter(BookOfBible.Psalms, 1), Passage.chapters(BookOfBible.Psalms, 23, 24)),
+				PassageParser.parse("Psalms 1, 23-24"));
+		assertEquals(
+				Arrays.asList(Passage.verses(BookOfBible.John, 3, 16, 17),
+						Passage.passage(BookOfBible.John, 3, 36, 4, 2)),
+				PassageParser.parse("John 3:16-17, 36-4:2"));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.John, 3, 16), Passage.verse(BookOfBible.Romans, 8, 28),
+				Passage.book(BookOfBible.Jude)), PassageParser.parse("John 3:16; Romans 8:28, Jude"));
+	}
+
+	@Test(timeout = 1000)
+	public void testNotPassages() {
+		assertNull(PassageParser.parse(""));
+		assertNull(PassageParser.parse("3:16"));
+		assertNull(PassageParser.parse("Hezekiah 3:16"));
+		assertNull(PassageParser.parse("John 3:"));
+		assertNull(PassageParser.parse("John 3:16-"));
+		assertNull(PassageParser.parse("John 3 16"));
+		assertNull(PassageParser.parse("John 3:16,"));
+		assertNull(PassageParser.parse("John 3::16"));
+		assertNull(PassageParser.parse("John 99999999999"));
+	}
+
+	@Test(timeout = 1000)
+	public void testModelFindsLists() {
+		VerseList verses = new VerseList("KJV", "Made up Bible");
+		for (int chapter = 3; chapter <= 4; chapter++) {
+			for (int verse = 1; verse <= 20; verse++) {
+				verses.add(new Verse(BookOfBible.John, chapter, verse, "John " + chapter + ":" + verse));
+			}
+		}
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		ReferenceList refs = model.getReferencesForPassage("John 4:1-3; 3:16, 18, 16");
+		assertEquals(Arrays.asList(new Reference(BookOfBible.John, 3, 16), new Reference(BookOfBible.John, 3, 18),
+				new Reference(BookOfBible.John, 4, 1), new Reference(BookOfBible.John, 4, 2),
+				new Reference(BookOfBible.John, 4, 3)), refs);
+		assertEquals(40, model.getReferencesForPassage("John 3-4").size());
+		assertEquals(0, model.getReferencesForPassage("John 3:16,").size());
+	}
+}
@@ -0,0 +1,81 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Passage;
+import bibleReader.model.PassageParser;
+
+/**
+ * Tests looking up books by their names and abbreviations.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_13BookNameTest {
+
+	@Test(timeout = 1000)
+	public void testNamesAndAbbreviations() {
+		for (BookOfBible book : BookOfBible.values()) {
+			if (book != BookOfBible.Dummy) {
+				assertEquals(book, BookOfBible.getBookOfBible(book.toString()));
+				assertEquals(book, BookOfBible.getBookOfBible(book.toString().toUpperCase()));
+			}
+		}
+		assertEquals(BookOfBible.Genesis, BookOfBible.getBookOfBible("gn"));
+		assertEquals(BookOfBible.SongOfSolomon, BookOfBible.getBookOfBible(" Song of\tSongs "));
+		assertEquals(BookOfBible.John1, BookOfBible.getBookOfBible("1john"));
+		assertNull(BookOfBible.getBookOfBible("Herman"));
+		assertNull(BookOfBible.getBookOfBible("Gen."));
+		assertNull(BookOfBible.getBookOfBible(""));
+		// Only whole abbreviations.
+		assertNull(BookOfBible.getBookOfBible("Gene"));
+	}
+
+	@Test(timeout = 1000)
+	public void testRomanNumerals() {
+		assertEquals(BookOfBible.John1, find("I John"));
+		assertEquals(BookOfBible.Kings2, find("II Kings"));
+		assertEquals(BookOfBible.John3, find("III John"));
+		assertEquals(BookOfBible.Samuel1, find("I Sm"));
+		assertEquals(BookOfBible.Kings2, find("II Ki"));
+		// Not to be confused with Isaiah.
+		assertEquals(BookOfBible.Isaiah, find("Isa"));
+		assertEquals(BookOfBible.Isaiah, find("Is"));
+		// Only names typed by a user can use them.
+		assertNull(BookOfBible.getBookOfBible("II Kings"));
+		assertNull(BookOfBible.getBookOfBible("I John"));
+		assertNull(BookOfBible.getBookOfBible("II Kings", 0, 8));
+		assertEquals(BookOfBible.Isaiah, BookOfBible.getBookOfBible("Is"));
+	}
+
+	@Test(timeout = 1000)
+	public void testPartOfSomeText() {
+		String line = "Gen@1:1@In the beginning";
+		assertEquals(BookOfBible.Genesis, BookOfBible.getBookOfBible(line, 0, 3));
+		assertNull(BookOfBible.getBookOfBible(line, 0, 1));
+		assertEquals(BookOfBible.Exodus, BookOfBible.getBookOfBible(new StringBuilder("<Book Exodus, x>"), 6, 12));
+	}
+
+	@Test(timeout = 1000)
+	public void testPrefixes() {
+		assertEquals(BookOfBible.Philippians, BookOfBible.findBookOfBible("Phili", 0, 5));
+		assertEquals(BookOfBible.Philemon, BookOfBible.findBookOfBible("Phile", 0, 5));
+		assertEquals(BookOfBible.Philippians, BookOfBible.findBookOfBible("Phil", 0, 4));
+		assertEquals(BookOfBible.Genesis, BookOfBible.findBookOfBible("Gene", 0, 4));
+		assertEquals(BookOfBible.Jude, BookOfBible.findBookOfBible("Jude", 0, 4));
+		assertNull(BookOfBible.findBookOfBible("Jo", 0, 2));
+		assertNull(BookOfBible.findBookOfBible("Ju", 0, 2));
+		assertNull(BookOfBible.findBookOfBible("", 0, 0));
+		assertEquals(Arrays.asList(Passage.verse(BookOfBible.Philemon, 1, 4)), PassageParser.parse("Phile 1:4"));
+		assertEquals(Arrays.asList(Passage.chapter(BookOfBible.Kings2, 2)), PassageParser.parse("II Kings 2"));
+	}
+
+	private static BookOfBible find(String name) {
+		return BookOfBible.findBookOfBible(name, 0, name.length());
+	}
+}
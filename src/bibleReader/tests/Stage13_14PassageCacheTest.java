@@ -0,0 +1,104 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.LruCache;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that the model caches the references of passages, and that the cache
+ * is emptied when the Bibles change.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_14PassageCacheTest {
+	private BibleReaderModel model;
+
+	@Before
+	public void setUp() throws Exception {
+		model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(makeVerses("KJV", 10)));
+	}
+
+	private static VerseList makeVerses(String version, int verses) {
+		VerseList list = new VerseList(version, version + " Bible");
+		for (int verse = 1; verse <= verses; verse++) {
+			list.add(new Verse(BookOfBible.John, 3, verse, "John 3:" + verse));
+		}
+		return list;
+	}
+
+	@Test(timeout = 1000)
+	public void testSamePassageIsCached() {
+		assertEquals(10, model.getReferencesForPassage("John 3").size());
+		assertEquals(0, model.getPassageCacheHits());
+		assertEquals(1, model.getPassageCacheMisses());
+		// The same passage, however it is written.
+		assertEquals(10, model.getReferencesForPassage("Jn 3").size());
+		assertEquals(10, model.getReferencesForPassage(" john3 ").size());
+		assertEquals(2, model.getPassageCacheHits());
+		assertEquals(3, model.getReferencesForPassage("John 3:1-3").size());
+		assertEquals(2, model.getPassageCacheMisses());
+		// Strings that aren't passages aren't looked up at all.
+		assertEquals(0, model.getReferencesForPassage("John 3:").size());
+		assertEquals(2, model.getPassageCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testChangingTheResultDoesntChangeTheCache() {
+		ReferenceList refs = model.getReferencesForPassage("John 3");
+		refs.clear();
+		assertEquals(10, model.getReferencesForPassage("John 3").size());
+		assertEquals(1, model.getPassageCacheHits());
+	}
+
+	@Test(timeout = 1000)
+	public void testChangingTheBiblesEmptiesTheCache() {
+		assertEquals(10, model.getReferencesForPassage("John 3").size());
+		model.addBible(new TreeMapBible(makeVerses("ESV", 12)));
+		assertEquals(12, model.getReferencesForPassage("John 3").size());
+		model.replaceBible(new TreeMapBible(makeVerses("ESV", 15)));
+		assertEquals(15, model.getReferencesForPassage("John 3").size());
+		model.removeBible("ESV");
+		assertEquals(10, model.getReferencesForPassage("John 3").size());
+		assertEquals(0, model.getPassageCacheHits());
+		assertEquals(4, model.getPassageCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testTurningTheCacheOff() {
+		model.setPassageCacheSize(0);
+		model.getReferencesForPassage("John 3");
+		model.getReferencesForPassage("John 3");
+		assertEquals(0, model.getPassageCacheHits());
+		assertEquals(2, model.getPassageCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testLeastRecentlyUsedIsThrownAway() {
+		LruCache<String, String> cache = new LruCache<String, String>(2);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		assertNull(cache.get("b"));
+		assertEquals("A", cache.get("a"));
+		assertEquals("C", cache.get("c"));
+		assertEquals(2, cache.size());
+		cache.setCapacity(1);
+		assertNull(cache.get("a"));
+		assertEquals("C", cache.get("c"));
+		assertEquals(4, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+}
@@ -0,0 +1,142 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.LruCache;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that the model caches the results of word and phrase searches, that
+ * searches for the same words share the cached results, and that the cache is
+ * emptied when the Bibles change.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_15QueryCacheTest {
+	private BibleReaderModel model;
+
+	@Before
+	public void setUp() throws Exception {
+		model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(makeVerses("KJV", "For God so loved the world")));
+	}
+
+	private static VerseList makeVerses(String version, String text) {
+		VerseList list = new VerseList(version, version + " Bible");
+		list.add(new Verse(BookOfBible.John, 3, 16, text));
+		list.add(new Verse(BookOfBible.John, 3, 17, "For God sent not his Son into the world"));
+		list.add(new Verse(BookOfBible.John1, 4, 8, "God is love"));
+		return list;
+	}
+
+	@Test(timeout = 1000)
+	public void testSameWordsAreCached() {
+		assertEquals(1, model.getReferencesContainingAllWords("God loved").size());
+		assertEquals(1, model.getQueryCacheMisses());
+		// The same words in another order, case and spacing, and repeated.
+		assertEquals(1, model.getReferencesContainingAllWords("loved  GOD god").size());
+		// The same search with no phrases.
+		assertEquals(1, model.getReferencesContainingAllWordsAndPhrases("God, loved").size());
+		assertEquals(2, model.getQueryCacheHits());
+		assertEquals(1, model.getQueryCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testPhrasesAreCached() {
+		assertEquals(2, model.getReferencesContainingAllWordsAndPhrases("\"For God\" world").size());
+		assertEquals(1, model.getReferencesContainingAllWordsAndPhrases("world \"for god\" \"god so\"").size());
+		assertEquals(1, model.getReferencesContainingAllWordsAndPhrases("\"God so\" \"FOR GOD\" World").size());
+		assertEquals(1, model.getQueryCacheHits());
+		assertEquals(2, model.getQueryCacheMisses());
+		// Phrases are looked for as they are, spaces and all.
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("\"For  God\"").size());
+		assertEquals(3, model.getQueryCacheMisses());
+		// A word and a phrase of the same word aren't the same search.
+		assertEquals(3, model.getReferencesContainingAllWordsAndPhrases("god").size());
+		assertEquals(3, model.getReferencesContainingAllWordsAndPhrases("\"god\"").size());
+		assertEquals(5, model.getQueryCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testCachedResultsAreTheSame() {
+		String[] searches = { "God", "world", "the", "love", "God world", "\"For God\"", "\"the world\" sent", "nothing" };
+		ReferenceList[] first = new ReferenceList[searches.length];
+		for (int i = 0; i < searches.length; i++) {
+			first[i] = model.getReferencesContainingAllWordsAndPhrases(searches[i]);
+		}
+		for (int i = 0; i < searches.length; i++) {
+			ReferenceList cached = model.getReferencesContainingAllWordsAndPhrases(searches[i]);
+			assertEquals(first[i], cached);
+			// Changing the result doesn't change the cache.
+			cached.clear();
+			assertEquals(first[i], model.getReferencesContainingAllWordsAndPhrases(searches[i]));
+		}
+		assertEquals(searches.length * 2, model.getQueryCacheHits());
+		assertEquals(first[0], model.getReferencesContainingWord("GOD"));
+		assertEquals(first[0], model.getReferencesContainingWord("god"));
+		assertEquals(1, model.getQueryCacheHits() - searches.length * 2);
+	}
+
+	@Test(timeout = 1000)
+	public void testChangingTheBiblesEmptiesTheCache() {
+		assertEquals(1, model.getReferencesContainingWord("loved").size());
+		model.addBible(new TreeMapBible(makeVerses("ESV", "God loved the world so much")));
+		assertEquals(1, model.getReferencesContainingWord("loved").size());
+		model.replaceBible(new TreeMapBible(makeVerses("ESV", "God so loved the world")));
+		assertEquals(1, model.getReferencesContainingWord("so").size());
+		model.removeBible("KJV");
+		model.removeBible("ESV");
+		assertEquals(0, model.getReferencesContainingWord("so").size());
+		assertEquals(0, model.getQueryCacheHits());
+		assertEquals(4, model.getQueryCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testTurningTheCacheOff() {
+		model.setQueryCacheBudget(0);
+		model.getReferencesContainingAllWords("God");
+		model.getReferencesContainingAllWords("God");
+		assertEquals(0, model.getQueryCacheHits());
+		assertEquals(2, model.getQueryCacheMisses());
+	}
+
+	@Test(timeout = 1000)
+	public void testWeighedValues() {
+		LruCache<String, String> cache = new LruCache<String, String>(10) {
+			@Override
+			protected long weigh(String value) {
+				return value.length();
+			}
+		};
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		assertEquals(8, cache.getWeight());
+		// Too heavy to keep at all.
+		cache.put("c", "ccccccccccc");
+		assertNull(cache.get("c"));
+		assertEquals(2, cache.size());
+		cache.get("a");
+		cache.put("d", "dddd");
+		assertNull(cache.get("b"));
+		assertEquals(8, cache.getWeight());
+		// Replacing a value takes the old weight away.
+		cache.put("a", "a");
+		assertEquals(5, cache.getWeight());
+		cache.setCapacity(4);
+		assertNull(cache.get("d"));
+		assertEquals("a", cache.get("a"));
+		assertEquals(1, cache.getWeight());
+		cache.clear();
+		assertEquals(0, cache.getWeight());
+	}
+}
@@ -0,0 +1,215 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Component;
+import java.awt.Container;
+
+import javax.swing.JEditorPane;
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.ResultView;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.LowerCaseText;
+import bibleReader.model.PhraseMatches;
+import bibleReader.model.Reference;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that word search results are rendered with the matches in bold, and
+ * that all of the rows end up on the page when they are added a few at a time.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_16ResultViewTest {
+	private ResultView view;
+	private JEditorPane output;
+
+	@Before
+	public void setUp() throws Exception {
+		VerseList verses = new VerseList("KJV", "Made up Bible");
+		for (int verse = 1; verse <= 18; verse++) {
+			verses.add(new Verse(BookOfBible.Proverbs, 1, verse, "A fool (and his money) are soon parted, fool."));
+		}
+		verses.add(new Verse(BookOfBible.Proverbs, 2, 1, "If x < y & y > z, the valign is top"));
+		// Some translations (e.g. the ESV) have markup in their text.
+		verses.add(new Verse(BookOfBible.Proverbs, 2, 2, "&#8220;The wise<sup>a</sup> man&#8221; sups with a sup."));
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		view = new ResultView(model);
+		output = (JEditorPane) findComponent(view, "OutputEditorPane");
+	}
+
+	private static Component findComponent(Container container, String name) {
+		for (Component component : container.getComponents()) {
+			if (name.equals(component.getName())) {
+				return component;
+			}
+			if (component instanceof Container) {
+				Component found = findComponent((Container) component, name);
+				if (found != null) {
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Search on the event thread, and have the rest of the rows added now.
+	 */
+	private String searchAndFinish(final String input) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				view.updateSearchResults(input);
+			}
+		});
+		view.finishRendering();
+		return output.getText();
+	}
+
+	/*
+	 * Search on the event thread, and wait for all of the rows to be added.
+	 */
+	private String search(final String input) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				view.updateSearchResults(input);
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+				}
+			});
+		}
+		return output.getText();
+	}
+
+	private static int countOccurrences(String text, String find) {
+		int count = 0;
+		int index = text.indexOf(find);
+		while (index >= 0) {
+			count++;
+			index = text.indexOf(find, index + find.length());
+		}
+		return count;
+	}
+
+	@Test(timeout = 5000)
+	public void testAllRowsAreAdded() throws Exception {
+		String text = search("FOOL");
+		// 18 verses, two on each page in the text and none elsewhere.
+		assertEquals(36, countOccurrences(text, "<b>fool</b>"));
+		assertEquals(18, countOccurrences(text, "Proverbs 1:"));
+		assertEquals(36, countOccurrences(text, "fool"));
+	}
+
+	@Test(timeout = 5000)
+	public void testMatchesAreNotTakenForHtml() throws Exception {
+		// Not a regular expression.
+		String text = search("(and his money)");
+		assertEquals(18, countOccurrences(text, "<b>(and his money)</b>"));
+		// The text is escaped, and the HTML around it isn't bolded.
+		text = search("valign");
+		assertEquals(1, countOccurrences(text, "<b>valign</b>"));
+		assertTrue(text.contains("x &lt; y &amp; y &gt; z"));
+		text = search("< y");
+		assertEquals(1, countOccurrences(text, "<b>&lt; y</b>"));
+		assertFalse(search("td").contains("<b>"));
+	}
+
+	@Test(timeout = 5000)
+	public void testMarkupInTheTextIsKept() throws Exception {
+		String text = search("man");
+		assertTrue(text.contains("&#8220;The wise<sup>a</sup> <b>man</b>&#8221;"));
+		assertFalse(text.contains("&lt;sup&gt;"));
+		assertFalse(text.contains("&amp;#8220;"));
+		// Matches in the markup aren't put in bold, the ones in the text are.
+		text = search("sup");
+		assertTrue(text.contains("<sup>a</sup>"));
+		assertTrue(text.contains("<b>sup</b>s with a <b>sup</b>."));
+		assertEquals(2, countOccurrences(text, "<b>"));
+		assertFalse(search("8220").contains("<b>"));
+		assertTrue(search("the wise").contains("&#8220;<b>The wise</b><sup>a</sup>"));
+	}
+
+	@Test(timeout = 5000)
+	public void testFinishRendering() throws Exception {
+		// All of the rows are on the page as soon as it returns.
+		String text = searchAndFinish("fool");
+		assertEquals(36, countOccurrences(text, "<b>fool</b>"));
+		assertEquals(18, countOccurrences(text, "Proverbs 1:"));
+		// Once they are all there, it doesn't add any more.
+		view.finishRendering();
+		assertEquals(text, output.getText());
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				view.updateSearchResults("fool");
+				view.finishRendering();
+				view.updatePassageResults("Proverbs 2");
+			}
+		});
+		view.finishRendering();
+		assertEquals(0, countOccurrences(output.getText(), "<b>fool</b>"));
+	}
+
+	@Test(timeout = 5000)
+	public void testNewSearchReplacesOldRows() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				view.updateSearchResults("fool");
+				// Before the rest of the rows of the first search are added.
+				view.updateSearchResults("valign");
+			}
+		});
+		String text = search("valign");
+		assertEquals(0, countOccurrences(text, "fool"));
+	}
+
+	@Test(timeout = 1000)
+	public void testSearchFindsTheMatches() {
+		BibleReaderModel model = new BibleReaderModel();
+		VerseList kjv = new VerseList("KJV", "King James");
+		kjv.add(new Verse(BookOfBible.Proverbs, 1, 7, "Fools despise wisdom: the fool"));
+		kjv.add(new Verse(BookOfBible.Proverbs, 1, 8, "My son, hear"));
+		VerseList esv = new VerseList("ESV", "English Standard");
+		esv.add(new Verse(BookOfBible.Proverbs, 1, 8, "Hear, my son, a fool"));
+		model.addBible(new ArrayListBible(kjv));
+		model.addBible(new ArrayListBible(esv));
+
+		PhraseMatches matches = model.getMatchesContaining("FOOL");
+		assertEquals("FOOL", matches.getPhrase());
+		assertArrayEquals(new String[] { "ESV", "KJV" }, matches.getVersions());
+		assertEquals(2, matches.size());
+		assertEquals(new Reference(BookOfBible.Proverbs, 1, 7), matches.getReferences().get(0));
+		// ESV doesn't have 1:7.
+		assertEquals("", matches.getText(0, 0));
+		assertArrayEquals(new int[0], matches.getMatches(0, 0));
+		assertArrayEquals(new int[] { 0, 26 }, matches.getMatches(0, 1));
+		assertArrayEquals(new int[] { 16 }, matches.getMatches(1, 0));
+		assertArrayEquals(new int[0], matches.getMatches(1, 1));
+
+		// The matches are for the Bibles that were searched.
+		model.removeBible("ESV");
+		assertEquals("Hear, my son, a fool", matches.getText(1, 0));
+		assertArrayEquals(new int[] { 16 }, matches.getMatches(1, 0));
+	}
+
+	@Test(timeout = 1000)
+	public void testMatchesIn() {
+		assertArrayEquals(new int[] { 0, 6 }, LowerCaseText.matchesIn("Fool, fool!", "FOOL"));
+		assertArrayEquals(new int[] { 0, 2 }, LowerCaseText.matchesIn("aaaaa", "aa"));
+		assertArrayEquals(new int[0], LowerCaseText.matchesIn("fool", "fools"));
+		assertArrayEquals(new int[0], LowerCaseText.matchesIn("fool", ""));
+	}
+}
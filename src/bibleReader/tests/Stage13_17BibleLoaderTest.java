@@ -0,0 +1,129 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.BibleLoader;
+import bibleReader.BibleLoader.LoadedBible;
+import bibleReader.model.BookOfBible;
+
+/**
+ * Tests loading Bibles in the background with BibleLoader.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_17BibleLoaderTest {
+	private File kjv = new File("loader1.atv");
+	private File esv = new File("loader2.atv");
+	private File missing = new File("idontexist.atv");
+	private BibleLoader loader;
+
+	// What the listener was told, and on which threads.
+	private List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+	private List<File> failed = Collections.synchronizedList(new ArrayList<File>());
+	private List<Throwable> causes = Collections.synchronizedList(new ArrayList<Throwable>());
+	private List<Boolean> daemons = Collections.synchronizedList(new ArrayList<Boolean>());
+	private CountDownLatch told = new CountDownLatch(3);
+
+	private BibleLoader.Listener listener = new BibleLoader.Listener() {
+		public void bibleLoaded(LoadedBible bible) {
+			loaded.add(bible.getBible().getVersion());
+			daemons.add(Thread.currentThread().isDaemon());
+			told.countDown();
+		}
+
+		public void bibleFailed(File file, Throwable cause) {
+			failed.add(file);
+			causes.add(cause);
+			daemons.add(Thread.currentThread().isDaemon());
+			told.countDown();
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		write(kjv, "KJV: Holy Bible\nGe@1:1@In the beginning\nGe@1:2@And the earth\n");
+		write(esv, "ESV: English Standard Version\nJohn@3:16@For God so loved the world\n");
+		loader = new BibleLoader(2);
+	}
+
+	@After
+	public void tearDown() {
+		loader.shutdown();
+		kjv.delete();
+		esv.delete();
+	}
+
+	private static void write(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(text.getBytes("ISO-8859-1"));
+		out.close();
+	}
+
+	@Test(timeout = 5000)
+	public void testFuturesComplete() throws Exception {
+		Map<File, Future<LoadedBible>> futures = loader.loadAll(Arrays.asList(kjv, esv), null);
+		assertEquals(Arrays.asList(kjv, esv), new ArrayList<File>(futures.keySet()));
+		LoadedBible first = futures.get(kjv).get();
+		assertEquals(kjv, first.getFile());
+		assertEquals("KJV", first.getBible().getVersion());
+		assertEquals(2, first.getBible().getNumberOfVerses());
+		assertEquals(1, first.getConcordance().getReferencesContaining("beginning").size());
+		LoadedBible second = futures.get(esv).get();
+		assertEquals(BookOfBible.John, second.getBible().getAllVerses().get(0).getReference().getBookOfBible());
+	}
+
+	@Test(timeout = 5000)
+	public void testFailuresReachTheListener() throws Exception {
+		Map<File, Future<LoadedBible>> futures = loader.loadAll(Arrays.asList(kjv, missing, esv), listener);
+		try {
+			futures.get(missing).get();
+			fail("Expected an ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		told.await();
+		Collections.sort(loaded);
+		assertEquals(Arrays.asList("ESV", "KJV"), loaded);
+		assertEquals(Arrays.asList(missing), failed);
+		assertTrue(causes.get(0) instanceof IOException);
+		// The workers don't keep the program running.
+		assertEquals(Arrays.asList(true, true, true), daemons);
+	}
+
+	@Test(timeout = 5000)
+	public void testShutdown() throws Exception {
+		Map<File, Future<LoadedBible>> futures = loader.loadAll(Arrays.asList(kjv, esv), listener);
+		loader.shutdown();
+		// Files that were already started still finish.
+		assertTrue(loader.awaitTermination(4, TimeUnit.SECONDS));
+		for (Future<LoadedBible> future : futures.values()) {
+			assertTrue(future.isDone());
+		}
+		try {
+			loader.load(kjv, null);
+			fail("Expected a RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// This is what should happen.
+		}
+	}
+}
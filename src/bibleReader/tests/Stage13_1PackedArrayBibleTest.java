@@ -0,0 +1,205 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for PackedArrayBible. Since TreeMapBible is known to work, most of
+ * these just check that both give the same answers on a small Bible that has
+ * a few missing chapters and verses.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_1PackedArrayBibleTest {
+	private VerseList sampleVerses;
+	private Bible testBible;
+	private Bible expectedBible;
+
+	@Test(timeout = 50)
+	public void testBasics() {
+		assertEquals(expectedBible.getNumberOfVerses(), testBible.getNumberOfVerses());
+		assertEquals("TST", testBible.getVersion());
+		assertEquals("Test Bible", testBible.getTitle());
+		assertEquals(expectedBible.getAllVerses(), testBible.getAllVerses());
+	}
+
+	@Test(timeout = 50)
+	public void testUnsortedInputAndDuplicates() {
+		VerseList verses = new VerseList("TST", "Test Bible");
+		verses.add(new Verse(BookOfBible.John, 3, 17, "second"));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "first"));
+		verses.add(new Verse(BookOfBible.John, 3, 17, "replaced"));
+		Bible bible = new PackedArrayBible(verses);
+		assertEquals(2, bible.getNumberOfVerses());
+		assertEquals("first", bible.getAllVerses().get(0).getText());
+		assertEquals("replaced", bible.getVerseText(new Reference(BookOfBible.John, 3, 17)));
+	}
+
+	@Test(timeout = 50)
+	public void testIsValidAndGetVerse() {
+		assertTrue(testBible.isValid(new Reference(BookOfBible.Ruth, 4, 22)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Ruth, 4, 23)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Ruth, 2, 5)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Matthew, 17, 21)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Galatians, 32, -3)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Job, 5000, 1)));
+		assertFalse(testBible.isValid(new Reference(null, 10, 20)));
+		assertNull(testBible.getVerse(new Reference(null, 10, 20)));
+		assertNull(testBible.getVerseText(new Reference(BookOfBible.Daniel, 25, 4)));
+		for (Verse verse : sampleVerses) {
+			assertEquals(verse, testBible.getVerse(verse.getReference()));
+			Reference ref = verse.getReference();
+			assertEquals(verse, testBible.getVerse(ref.getBookOfBible(), ref.getChapter(), ref.getVerse()));
+		}
+	}
+
+	@Test(timeout = 500)
+	public void testLastNumbers() {
+		for (BookOfBible book : BookOfBible.values()) {
+			assertEquals(expectedBible.getLastChapterNumber(book), testBible.getLastChapterNumber(book));
+			for (int chapter = -1; chapter <= 20; chapter++) {
+				assertEquals(expectedBible.getLastVerseNumber(book, chapter), testBible.getLastVerseNumber(book, chapter));
+			}
+		}
+		assertEquals(-1, testBible.getLastChapterNumber(null));
+		assertEquals(-1, testBible.getLastVerseNumber(null, 1));
+	}
+
+	@Test(timeout = 1000)
+	public void testPassagesMatchTreeMapBible() {
+		BookOfBible[] books = { BookOfBible.Genesis, BookOfBible.Ruth, BookOfBible.Psalms, BookOfBible.Matthew,
+				BookOfBible.John1, BookOfBible.Jude, BookOfBible.Acts };
+		int[] numbers = { -1, 0, 1, 2, 3, 4, 17, 20, 21, 22, 23, 2000 };
+		for (BookOfBible book : books) {
+			assertEquals(expectedBible.getReferencesForBook(book), testBible.getReferencesForBook(book));
+			assertEquals(expectedBible.getBook(book), testBible.getBook(book));
+			for (int c1 : numbers) {
+				assertEquals(expectedBible.getReferencesForChapter(book, c1),
+						testBible.getReferencesForChapter(book, c1));
+				assertEquals(expectedBible.getChapter(book, c1), testBible.getChapter(book, c1));
+				for (int c2 : numbers) {
+					assertEquals(expectedBible.getReferencesForChapters(book, c1, c2),
+							testBible.getReferencesForChapters(book, c1, c2));
+					assertEquals(expectedBible.getReferencesForPassage(book, c1, c2, c2 + 3),
+							testBible.getReferencesForPassage(book, c1, c2, c2 + 3));
+					assertEquals(expectedBible.getPassage(book, 1, c1, 4, c2),
+							testBible.getPassage(book, 1, c1, 4, c2));
+					Reference first = new Reference(book, c1, c2);
+					Reference last = new Reference(BookOfBible.nextBook(book), c2, c1);
+					assertEquals(expectedBible.getReferencesInclusive(first, last),
+							testBible.getReferencesInclusive(first, last));
+					assertEquals(expectedBible.getReferencesExclusive(first, last),
+							testBible.getReferencesExclusive(first, last));
+					assertEquals(expectedBible.getVersesExclusive(first, last),
+							testBible.getVersesExclusive(first, last));
+				}
+			}
+		}
+	}
+
+	@Test(timeout = 50)
+	public void testGetVersesWithInvalidReferences() {
+		ReferenceList list = new ReferenceList();
+		list.add(new Reference(BookOfBible.Ruth, 1, 1));
+		list.add(new Reference(BookOfBible.Galatians, 32, -3));
+		list.add(new Reference(null, 10, 20));
+		VerseList results = testBible.getVerses(list);
+		assertEquals(3, results.size());
+		assertEquals(sampleVerses.get(0), results.get(0));
+		assertNull(results.get(1));
+		assertNull(results.get(2));
+	}
+
+	@Test(timeout = 50)
+	public void testVersesThatCantBePackedAreRejected() {
+		VerseList[] badLists = { new VerseList("TST", "Test Bible"), new VerseList("TST", "Test Bible"),
+				new VerseList("TST", "Test Bible") };
+		badLists[0].add(new Verse(null, 1, 1, "No book"));
+		badLists[1].add(new Verse(BookOfBible.Ruth, Reference.MAX_PACKED_NUMBER + 1, 1, "Chapter too big"));
+		badLists[2].add(new Verse(BookOfBible.Ruth, 1, -1, "Negative verse"));
+		for (VerseList verses : badLists) {
+			assertRejected(verses, new PackedArrayBibleMaker());
+			assertRejected(verses, new ArrayListBibleMaker());
+		}
+		// The biggest numbers that can be packed are fine.
+		VerseList verses = new VerseList("TST", "Test Bible");
+		verses.add(new Verse(BookOfBible.Ruth, Reference.MAX_PACKED_NUMBER, Reference.MAX_PACKED_NUMBER, "Last"));
+		assertEquals(1, new PackedArrayBible(verses).getNumberOfVerses());
+		assertEquals(1, new TreeMapBible(verses).getNumberOfVerses());
+		// TreeMapBible doesn't pack its references, so it stores anything.
+		assertEquals(Reference.MAX_PACKED_NUMBER + 1, new TreeMapBible(badLists[1])
+				.getLastChapterNumber(BookOfBible.Ruth));
+		assertEquals(1, new ArrayListBible(verses).getNumberOfVerses());
+	}
+
+	private interface BibleMaker {
+		Bible make(VerseList verses);
+	}
+
+	private static class PackedArrayBibleMaker implements BibleMaker {
+		public Bible make(VerseList verses) {
+			return new PackedArrayBible(verses);
+		}
+	}
+
+	private static class ArrayListBibleMaker implements BibleMaker {
+		public Bible make(VerseList verses) {
+			return new ArrayListBible(verses);
+		}
+	}
+
+	private static void assertRejected(VerseList verses, BibleMaker maker) {
+		try {
+			maker.make(verses);
+			fail("Expected an IllegalArgumentException for " + verses.get(0).getText());
+		} catch (IllegalArgumentException e) {
+			// This is what should happen.
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sampleVerses = new VerseList("TST", "Test Bible");
+		// Ruth, without chapter 2 and 3.
+		addChapter(BookOfBible.Ruth, 1, 22);
+		addChapter(BookOfBible.Ruth, 4, 22);
+		// Some of Matthew, without 17:21 (like the ESV).
+		addChapter(BookOfBible.Matthew, 16, 28);
+		for (int verse = 1; verse <= 27; verse++) {
+			if (verse != 21) {
+				sampleVerses.add(new Verse(BookOfBible.Matthew, 17, verse, "Matthew 17 verse " + verse));
+			}
+		}
+		// All of 1 John and Jude.
+		addChapter(BookOfBible.John1, 1, 10);
+		addChapter(BookOfBible.John1, 2, 29);
+		addChapter(BookOfBible.John1, 3, 24);
+		addChapter(BookOfBible.John1, 4, 21);
+		addChapter(BookOfBible.John1, 5, 21);
+		addChapter(BookOfBible.Jude, 1, 25);
+		testBible = new PackedArrayBible(sampleVerses);
+		expectedBible = new TreeMapBible(sampleVerses);
+	}
+
+	private void addChapter(BookOfBible book, int chapter, int lastVerse) {
+		for (int verse = 1; verse <= lastVerse; verse++) {
+			sampleVerses.add(new Verse(book, chapter, verse, book + " " + chapter + " verse " + verse));
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+import bibleReader.BibleFormatException;
+import bibleReader.BibleIO;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for the stream-based readers in BibleIO, which report the line number
+ * of badly formatted input.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_2BibleIOReaderTest {
+	private String goodATV = "KJV: Holy Bible, Authorized (King James) Version\n"
+			+ "Ge@1:1@In the beginning God created the heaven and the earth.\n"
+			+ "Ge@1:3@And God said, Let there be light: and there was light.\n"
+			+ "Hab@3:17@Although the fig tree shall not blossom, neither shall fruit be in the vines;\n"
+			+ "Rev@22:21@The grace of our Lord Jesus Christ be with you all. Amen.\n";
+
+	private String goodXMV = "<Version ASV: The American Standard Version of the Holy Bible (1901).  http://ebible.org/asv/>\n"
+			+ "<Book Genesis, The First Book of Moses, called Genesis>\n"
+			+ "<Chapter 1>\n"
+			+ "<Verse 1>In the beginning God created the heavens and the earth.  \n"
+			+ "<Book Song of Solomon, The Song of Solomon>\n"
+			+ "  <Chapter 2>  \n"
+			+ "<CL>Chapter 2\n"
+			+ "<Title>A title that isn't a verse\n"
+			+ "<Verse 2>As a lily among thorns, So is my love among the daughters.\n"
+			+ "<Verse 3>As the apple-tree among the trees of the wood, <b>So</b> is my beloved among the sons.\n";
+
+	@After
+	public void deleteSampleFile() {
+		new File("sample.atv").delete();
+		new File("sample.html").delete();
+	}
+
+	@Test(timeout = 500)
+	public void testReadATV() throws IOException {
+		VerseList verses = BibleIO.readATV(new BufferedReader(new StringReader(goodATV)));
+		assertEquals("KJV", verses.getVersion());
+		assertEquals("Holy Bible, Authorized (King James) Version", verses.getDescription());
+		assertEquals(4, verses.size());
+		assertEquals(new Verse(BookOfBible.Genesis, 1, 3, "And God said, Let there be light: and there was light."),
+				verses.get(1));
+		assertEquals(new Verse(BookOfBible.Habakkuk, 3, 17,
+				"Although the fig tree shall not blossom, neither shall fruit be in the vines;"), verses.get(2));
+		assertEquals(new Verse(BookOfBible.Revelation, 22, 21,
+				"The grace of our Lord Jesus Christ be with you all. Amen."), verses.get(3));
+	}
+
+	@Test(timeout = 500)
+	public void testReadATVReportsLineNumbers() throws IOException {
+		assertBadLine(4, "Ge@1:1@One\nGe@1:2@Two\nGeni@1:3@Three\n");
+		assertBadLine(3, "Ge@1:1@One\nGe@1@Two\n");
+		assertBadLine(2, "Ge 1:1 One\n");
+		assertBadLine(2, "Ge@1:1@\n");
+		assertBadLine(2, "Ge@1:x@One\n");
+		assertBadLine(2, "Ge@1:1:2@One\n");
+		assertBadLine(2, "Ge@1:1@One@Two\n");
+		assertBadLine(2, "Ge@99999999999:1@One\n");
+		// Too big to be a Reference in a Bible.
+		assertBadLine(3, "Ge@1:1@One\nGe@1:1024@Two\n");
+		assertBadLine(2, "Ge@2000:1@One\n");
+	}
+
+	@Test(timeout = 500)
+	public void testReadBibleUsesCharset() throws IOException {
+		FileOutputStream out = new FileOutputStream("sample.atv");
+		// "ESV: copyright (c)" in Latin-1, where the copyright sign is one byte.
+		out.write(new byte[] { 'E', 'S', 'V', ':', ' ', (byte) 0xA9, '\n', 'G', 'e', '@', '1', ':', '1', '@', 'x',
+				'\n' });
+		out.close();
+		VerseList verses = BibleIO.readBible(new File("sample.atv"));
+		assertEquals("\u00A9", verses.getDescription());
+		assertEquals(1, verses.size());
+	}
+
+	@Test(timeout = 500)
+	public void testWritersUseTheSameCharset() throws IOException {
+		VerseList verses = new VerseList("ESV", "copyright \u00A9");
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "caf\u00E9"));
+		BibleIO.writeVersesATV(new File("sample.atv"), "ESV: copyright \u00A9", verses);
+		VerseList read = BibleIO.readBible(new File("sample.atv"));
+		assertEquals("copyright \u00A9", read.getDescription());
+		assertEquals(verses.get(0), read.get(0));
+
+		BibleIO.writeText(new File("sample.html"), "<b>caf\u00E9</b>");
+		byte[] bytes = Files.readAllBytes(new File("sample.html").toPath());
+		assertEquals("<b>caf\u00E9</b>", new String(bytes, BibleIO.DEFAULT_CHARSET));
+	}
+
+	@Test(timeout = 500)
+	public void testReadBibleStillReturnsNullForBadFiles() throws IOException {
+		FileOutputStream out = new FileOutputStream("sample.atv");
+		out.write("KJV: Holy Bible\nGe@1@x\n".getBytes("ISO-8859-1"));
+		out.close();
+		assertNull(BibleIO.readBible(new File("sample.atv")));
+	}
+
+	@Test(timeout = 500)
+	public void testLoadBibleSaysWhatWentWrong() throws IOException {
+		FileOutputStream out = new FileOutputStream("sample.atv");
+		out.write("KJV: Holy Bible\nGe@1:1@x\nGe@1@x\n".getBytes("ISO-8859-1"));
+		out.close();
+		try {
+			BibleIO.loadBible(new File("sample.atv"));
+			fail("Expected a BibleFormatException");
+		} catch (BibleFormatException e) {
+			assertEquals(3, e.getLineNumber());
+		}
+		try {
+			BibleIO.loadBible(new File("idontexist.atv"));
+			fail("Expected a FileNotFoundException");
+		} catch (FileNotFoundException e) {
+			// This is what should happen.
+		}
+		try {
+			BibleIO.loadBible(new File("sample.txt"));
+			fail("Expected a BibleFormatException");
+		} catch (BibleFormatException e) {
+			assertEquals(0, e.getLineNumber());
+		}
+	}
+
+	@Test(timeout = 500)
+	public void testReadXMV() throws IOException {
+		VerseList verses = BibleIO.readXMV(new BufferedReader(new StringReader(goodXMV)));
+		assertEquals("ASV", verses.getVersion());
+		assertEquals("The American Standard Version of the Holy Bible (1901).  http://ebible.org/asv/>",
+				verses.getDescription());
+		assertEquals(3, verses.size());
+		assertEquals(new Verse(BookOfBible.Genesis, 1, 1, "In the beginning God created the heavens and the earth."),
+				verses.get(0));
+		assertEquals(new Verse(BookOfBible.SongOfSolomon, 2, 2,
+				"As a lily among thorns, So is my love among the daughters."), verses.get(1));
+		assertEquals(new Verse(BookOfBible.SongOfSolomon, 2, 3,
+				"As the apple-tree among the trees of the wood, <b>So</b> is my beloved among the sons."),
+				verses.get(2));
+	}
+
+	@Test(timeout = 500)
+	public void testReadXMVSkipsUnknownBooks() throws IOException {
+		VerseList verses = BibleIO.readXMV(new BufferedReader(new StringReader(goodXMV
+				+ "<Book Hezekiah, Not a book>\n<Chapter 1>\n<Verse 1>Not a verse\n<Book Ex\u00F6dus, Not ASCII>\n"
+				+ "<Verse 2>Not one either\n<Book Exodus, Exodus>\n<Verse 1>A verse\n")));
+		assertEquals(4, verses.size());
+		assertEquals(new Verse(BookOfBible.Exodus, 1, 1, "A verse"), verses.get(3));
+	}
+
+	@Test(timeout = 500)
+	public void testReadXMVReportsLineNumbers() throws IOException {
+		try {
+			BibleIO.readXMV(new BufferedReader(new StringReader(goodXMV + "<Chapter 1024>\n<Verse 1>Too far\n")));
+			fail("Expected a BibleFormatException");
+		} catch (BibleFormatException e) {
+			assertEquals(12, e.getLineNumber());
+		}
+	}
+
+	private void assertBadLine(int lineNumber, String verseLines) throws IOException {
+		try {
+			BibleIO.readATV(new BufferedReader(new StringReader("KJV: Holy Bible\n" + verseLines)));
+			fail("Expected a BibleFormatException for line " + lineNumber);
+		} catch (BibleFormatException e) {
+			assertEquals(lineNumber, e.getLineNumber());
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.BibleFormatException;
+import bibleReader.BibleIO;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.MappedBible;
+import bibleReader.model.Reference;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for writing a Bible in the binary format and opening it again with
+ * BibleIO.mapBible.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_3MappedBibleTest {
+	private VerseList sampleVerses;
+	private Bible expectedBible;
+	private Bible testBible;
+
+	@Test(timeout = 500)
+	public void testBasics() {
+		assertEquals("ESV", testBible.getVersion());
+		assertEquals("The Holy Bible, copyright \u00A9 2001", testBible.getTitle());
+		assertEquals(expectedBible.getNumberOfVerses(), testBible.getNumberOfVerses());
+		assertEquals(expectedBible.getAllVerses(), testBible.getAllVerses());
+	}
+
+	@Test(timeout = 500)
+	public void testLookups() {
+		assertEquals(new Verse(BookOfBible.John, 3, 16, "For God so loved the world\u2019s people"),
+				testBible.getVerse(BookOfBible.John, 3, 16));
+		assertTrue(testBible.isValid(new Reference(BookOfBible.Genesis, 1, 1)));
+		assertFalse(testBible.isValid(new Reference(BookOfBible.Genesis, 1, 4)));
+		assertNull(testBible.getVerseText(new Reference(BookOfBible.Matthew, 17, 21)));
+		assertEquals(expectedBible.getReferencesForBook(BookOfBible.Matthew),
+				testBible.getReferencesForBook(BookOfBible.Matthew));
+		assertEquals(expectedBible.getChapter(BookOfBible.Matthew, 17), testBible.getChapter(BookOfBible.Matthew, 17));
+		assertEquals(27, testBible.getLastVerseNumber(BookOfBible.Matthew, 17));
+		assertEquals(expectedBible.getReferencesContaining("world"), testBible.getReferencesContaining("world"));
+	}
+
+	@Test(timeout = 500)
+	public void testPassagesMakeEachVerseOnce() {
+		VerseList chapter = testBible.getChapter(BookOfBible.Matthew, 17);
+		assertSame(chapter.get(3), chapter.get(3));
+		Verse last = chapter.get(chapter.size() - 1);
+		assertEquals(chapter.size() - 1, chapter.indexOf(last));
+		for (Verse verse : chapter) {
+			assertSame(verse, chapter.get(chapter.indexOf(verse)));
+		}
+	}
+
+	@Test(timeout = 500)
+	public void testBadFiles() throws IOException {
+		FileOutputStream out = new FileOutputStream("sample.bbf");
+		out.write("KJV: not a binary Bible".getBytes("ISO-8859-1"));
+		out.close();
+		assertNotMapped(new File("sample.bbf"), BibleFormatException.class);
+		assertNotMapped(new File("idontexist.bbf"), FileNotFoundException.class);
+	}
+
+	@Test(timeout = 500)
+	public void testCorruptFilesAreFoundWhenOpened() throws IOException {
+		byte[] good = Files.readAllBytes(new File("sample.bbf").toPath());
+		// Where the offset index starts: the header, the two strings and the ids.
+		int offsets = 12 + 4 + "ESV".getBytes("UTF-8").length + 4 + sampleVerses.getDescription().getBytes("UTF-8").length
+				+ 4 * expectedBible.getNumberOfVerses();
+		assertOpens(good);
+
+		// Cut off part of the text.
+		assertCorrupt(Arrays.copyOf(good, good.length - 3));
+		// An offset that goes back.
+		byte[] bad = good.clone();
+		ByteBuffer.wrap(bad).putInt(offsets + 8, 0);
+		assertCorrupt(bad);
+		// An offset past the end of the text.
+		bad = good.clone();
+		ByteBuffer.wrap(bad).putInt(offsets + 4, good.length);
+		assertCorrupt(bad);
+		// A negative first offset.
+		bad = good.clone();
+		ByteBuffer.wrap(bad).putInt(offsets, -1);
+		assertCorrupt(bad);
+		// Too many verses for the file.
+		bad = good.clone();
+		ByteBuffer.wrap(bad).putInt(8, Integer.MAX_VALUE);
+		assertCorrupt(bad);
+		// A string longer than the file.
+		bad = good.clone();
+		ByteBuffer.wrap(bad).putInt(12, 1 << 20);
+		assertCorrupt(bad);
+	}
+
+	@Test(timeout = 500)
+	public void testEmptyBible() throws IOException {
+		BibleIO.writeBibleBinary(new File("sample.bbf"), new TreeMapBible(new VerseList("TST", "Nothing")));
+		Bible empty = BibleIO.mapBible(new File("sample.bbf"));
+		assertEquals(0, empty.getNumberOfVerses());
+		assertEquals("Nothing", empty.getTitle());
+	}
+
+	@Test(timeout = 2000)
+	public void testReadingFromManyThreads() throws Exception {
+		final VerseList expected = expectedBible.getAllVerses();
+		final boolean[] same = new boolean[4];
+		Thread[] threads = new Thread[same.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					boolean allSame = true;
+					for (int i = 0; i < 200; i++) {
+						allSame &= expected.equals(new ArrayList<Verse>(testBible.getAllVerses()));
+					}
+					same[thread] = allSame;
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+			assertTrue(same[t]);
+		}
+	}
+
+	private static void assertOpens(byte[] bytes) throws BibleFormatException {
+		assertEquals(30, new MappedBible(ByteBuffer.wrap(bytes)).getNumberOfVerses());
+	}
+
+	private static void assertCorrupt(byte[] bytes) throws IOException {
+		try {
+			new MappedBible(ByteBuffer.wrap(bytes));
+			fail("Expected a BibleFormatException");
+		} catch (BibleFormatException e) {
+			// This is what should happen.
+		}
+		FileOutputStream out = new FileOutputStream("sample.bbf");
+		out.write(bytes);
+		out.close();
+		assertNotMapped(new File("sample.bbf"), BibleFormatException.class);
+	}
+
+	private static void assertNotMapped(File file, Class<? extends IOException> expected) {
+		try {
+			BibleIO.mapBible(file);
+			fail("Expected a " + expected.getSimpleName());
+		} catch (IOException e) {
+			assertEquals(expected, e.getClass());
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sampleVerses = new VerseList("ESV", "The Holy Bible, copyright \u00A9 2001");
+		// Out of order on purpose: the binary format stores them in order.
+		sampleVerses.add(new Verse(BookOfBible.John, 3, 16, "For God so loved the world\u2019s people"));
+		sampleVerses.add(new Verse(BookOfBible.Genesis, 1, 1, "In the beginning, God created the heavens and the earth."));
+		sampleVerses.add(new Verse(BookOfBible.Genesis, 1, 2, "The earth was without form and void"));
+		sampleVerses.add(new Verse(BookOfBible.Genesis, 1, 3, ""));
+		for (int verse = 1; verse <= 27; verse++) {
+			if (verse != 21) {
+				sampleVerses.add(new Verse(BookOfBible.Matthew, 17, verse, "Matthew 17:" + verse + " world"));
+			}
+		}
+		expectedBible = new TreeMapBible(sampleVerses);
+		BibleIO.writeBibleBinary(new File("sample.bbf"), expectedBible);
+		testBible = BibleIO.mapBible(new File("sample.bbf"));
+	}
+
+	@After
+	public void deleteSampleFile() {
+		new File("sample.bbf").delete();
+	}
+}
@@ -0,0 +1,214 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests the Concordance against a plain scan of the verses.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_4ConcordanceTest {
+	private static final String[] WORDS = { "the", "lord", "and", "light", "darkness", "water", "God's", "earth",
+			"<sup>a</sup>", "LORD", "The" };
+
+	private Bible bible;
+	private Concordance concordance;
+
+	@Before
+	public void setUp() throws Exception {
+		VerseList verses = new VerseList("TST", "Test");
+		// Made up verses, added backwards so that the Bible isn't in order.
+		for (int book = 5; book >= 0; book--) {
+			for (int chapter = 3; chapter >= 1; chapter--) {
+				for (int verse = 12; verse >= 1; verse--) {
+					StringBuffer text = new StringBuffer();
+					for (int i = 0; i < 2 + (book + chapter + verse) % 7; i++) {
+						text.append(WORDS[(book * 31 + chapter * 7 + verse * 3 + i * i) % WORDS.length]).append(' ');
+					}
+					verses.add(new Verse(BookOfBible.values()[book], chapter, verse, text.toString()));
+				}
+			}
+		}
+		bible = new ArrayListBible(verses);
+		concordance = new Concordance(bible);
+	}
+
+	@Test(timeout = 1000)
+	public void testSingleWords() {
+		for (String word : new String[] { "the", "LORD", "light", "god", "earth", "water", "sup", "missing" }) {
+			ReferenceList expected = scan(Arrays.asList(word));
+			assertEquals(word, expected, concordance.getReferencesContaining(word));
+		}
+		assertTrue(concordance.getReferencesContaining("the").size() > 0);
+	}
+
+	@Test(timeout = 1000)
+	public void testAllWords() {
+		String[][] queries = { { "the", "lord" }, { "light", "darkness", "the" }, { "water", "earth" },
+				{ "the", "missing" }, { "god" }, {} };
+		for (String[] query : queries) {
+			ArrayList<String> words = new ArrayList<String>(Arrays.asList(query));
+			assertEquals(words.toString(), scan(words), concordance.getReferencesContainingAll(words));
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testAllPairsAndTriples() {
+		String[] words = { "the", "lord", "and", "light", "darkness", "water", "god", "earth", "sup", "a" };
+		for (String first : words) {
+			for (String second : words) {
+				ArrayList<String> pair = new ArrayList<String>(Arrays.asList(first, second));
+				assertEquals(pair.toString(), scan(pair), concordance.getReferencesContainingAll(pair));
+				for (String third : words) {
+					ArrayList<String> triple = new ArrayList<String>(Arrays.asList(first, second, third));
+					assertEquals(triple.toString(), scan(triple), concordance.getReferencesContainingAll(triple));
+				}
+			}
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testPhrases() {
+		Concordance withPositions = new Concordance(bible, true);
+		Concordance withoutPositions = new Concordance(bible, false);
+		String[] words = { "the", "lord", "and", "light", "god", "earth", "sup", "a" };
+		for (String first : words) {
+			for (String second : words) {
+				checkPhrase(withPositions, withoutPositions, first + " " + second);
+				for (String third : words) {
+					checkPhrase(withPositions, withoutPositions, first + " " + second + " " + third);
+				}
+			}
+		}
+		checkPhrase(withPositions, withoutPositions, "The LORD, God's");
+		checkPhrase(withPositions, withoutPositions, "light");
+		assertEquals(new ReferenceList(), concordance.getReferencesContainingPhrase(""));
+		assertEquals(new ReferenceList(), concordance.getReferencesContainingPhrase("missing the"));
+	}
+
+	@Test(timeout = 1000)
+	public void testAllPhrases() {
+		ReferenceList expected = new ReferenceList(concordance.getReferencesContainingPhrase("the lord"));
+		expected.retainAll(concordance.getReferencesContainingPhrase("and light"));
+		assertEquals(expected, concordance.getReferencesContainingAllPhrases(Arrays.asList("the lord", "and light")));
+		assertEquals(new ReferenceList(), concordance.getReferencesContainingAllPhrases(new ArrayList<String>()));
+	}
+
+	@Test(timeout = 1000)
+	public void testPhrasesAreLookedForAsTheyAre() {
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(BookOfBible.Psalms, 23, 6, "I will dwell in the house of the LORD's for ever."));
+		verses.add(new Verse(BookOfBible.Psalms, 24, 1, "The earth is the LORD's, and the fulness thereof"));
+		verses.add(new Verse(BookOfBible.Psalms, 27, 1, "The LORD is my light"));
+		verses.add(new Verse(BookOfBible.Psalms, 27, 2, "w5 w6 and w7"));
+		verses.add(new Verse(BookOfBible.Psalms, 27, 3, "w w w"));
+		verses.add(new Verse(BookOfBible.Psalms, 27, 4, "the lords of the earth"));
+		Bible phrases = new ArrayListBible(verses);
+		for (Concordance each : new Concordance[] { new Concordance(phrases), new Concordance(phrases, true),
+				new Concordance(phrases, false) }) {
+			ReferenceList lords = each.getReferencesContainingPhrase("lord's");
+			assertEquals(Arrays.asList(verses.get(0).getReference(), verses.get(1).getReference()), lords);
+			assertEquals(Arrays.asList(verses.get(1).getReference()), each.getReferencesContainingPhrase("THE lord's,"));
+			assertEquals(Arrays.asList(verses.get(3).getReference()), each.getReferencesContainingPhrase("w5 w6"));
+			assertEquals(Arrays.asList(verses.get(4).getReference()), each.getReferencesContainingPhrase("w w"));
+			// Not as part of a longer word, but an apostrophe ends a word.
+			assertEquals(Arrays.asList(verses.get(0).getReference(), verses.get(1).getReference(),
+					verses.get(2).getReference()), each.getReferencesContainingPhrase("the lord"));
+			assertEquals(0, each.getReferencesContainingPhrase("the eart").size());
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testPositionsBuiltFromManyThreads() throws InterruptedException {
+		final Concordance lazy = new Concordance(bible);
+		final String[] phrases = { "the lord", "and light", "god the earth", "a sup" };
+		final ReferenceList[] expected = new ReferenceList[phrases.length];
+		for (int i = 0; i < phrases.length; i++) {
+			expected[i] = concordance.getReferencesContainingPhrase(phrases[i]);
+		}
+		final java.util.concurrent.atomic.AtomicInteger wrong = new java.util.concurrent.atomic.AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < phrases.length; i++) {
+						int p = (first + i) % phrases.length;
+						if (!expected[p].equals(lazy.getReferencesContainingPhrase(phrases[p]))) {
+							wrong.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, wrong.get());
+	}
+
+	private void checkPhrase(Concordance withPositions, Concordance withoutPositions, String phrase) {
+		// What the model did before there was a concordance for phrases: the
+		// verses with all of the words, and the phrase as it is.
+		ArrayList<String> phraseWords = Concordance.extractWords(phrase);
+		ReferenceList expected = new ReferenceList();
+		for (Verse verse : bible.getAllVerses()) {
+			if (Concordance.extractWords(verse.getText()).containsAll(phraseWords) && verse.getText()
+					.matches("(?i).*(?<!\\w)" + java.util.regex.Pattern.quote(phrase) + "(?!\\w).*")) {
+				expected.add(verse.getReference());
+			}
+		}
+		java.util.Collections.sort(expected);
+		assertEquals(phrase, expected, concordance.getReferencesContainingPhrase(phrase));
+		assertEquals(phrase, expected, withPositions.getReferencesContainingPhrase(phrase));
+		assertEquals(phrase, expected, withoutPositions.getReferencesContainingPhrase(phrase));
+	}
+
+	/*
+	 * The sorted references of the verses containing all of the words.
+	 */
+	private ReferenceList scan(java.util.List<String> words) {
+		ReferenceList refs = new ReferenceList();
+		if (words.isEmpty()) {
+			return refs;
+		}
+		for (Verse verse : bible.getAllVerses()) {
+			ArrayList<String> verseWords = Concordance.extractWords(verse.getText());
+			boolean all = true;
+			for (String word : words) {
+				all = all && verseWords.contains(word.toLowerCase());
+			}
+			if (all) {
+				refs.add(verse.getReference());
+			}
+		}
+		java.util.Collections.sort(refs);
+		return refs;
+	}
+
+	@Test(timeout = 1000)
+	public void testReferencesAreUsable() {
+		ReferenceList refs = concordance.getReferencesContaining("light");
+		for (Reference ref : refs) {
+			assertTrue(bible.getVerseText(ref).toLowerCase().contains("light"));
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bibleReader.model.Concordance;
+import bibleReader.model.WordTokenizer;
+
+/**
+ * Tests that the WordTokenizer gives the same words as the regular expressions
+ * that Concordance.extractWords used to use.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_5WordTokenizerTest {
+
+	/*
+	 * The original version of Concordance.extractWords.
+	 */
+	private static ArrayList<String> regexExtractWords(String text) {
+		text = text.toLowerCase();
+		text = text.replaceAll("(<sup>[,\\w]*?</sup>|'s|\u2019s|&#\\w*;|\\d+)", " ");
+		text = text.replaceAll(",", "");
+		String[] words = text.split("\\W+");
+		ArrayList<String> toRet = new ArrayList<String>(Arrays.asList(words));
+		toRet.remove("");
+		return toRet;
+	}
+
+	private static void assertSameWords(String text) {
+		assertEquals(text, regexExtractWords(text), WordTokenizer.extractWords(text));
+	}
+
+	@Test(timeout = 500)
+	public void testExamples() {
+		assertSameWords("");
+		assertSameWords("   ");
+		assertSameWords("In the beginning God created the heaven and the earth.");
+		assertSameWords("And God said, Let there be light: and there was light.");
+		assertSameWords("the LORD's anointed, the Lord\u2019s house, GOD'S word");
+		assertSameWords("so<sup>a</sup> loved<sup>b,c</sup>the world<SUP>x</SUP>!");
+		assertSameWords("<sup>a b</sup> <sup></sup> <sup>a</sup <sup>");
+		assertSameWords("a&#8212;b &#x; &#; &amp; &#12 x&#");
+		assertSameWords("12 tribes, 1,000 men and 3:16 in v2x");
+		assertSameWords("one,two ,three, four,,five");
+		assertSameWords("under_score caf\u00E9 na\u00EFve Kelvin \u0130stanbul a\u0130b &#\u0130; <sup>\u0130</sup>");
+		assertSameWords("'s 's's ' s '\u2019s s'");
+		assertSameWords("trailing'");
+	}
+
+	@Test(timeout = 5000)
+	public void testRandomText() {
+		String[] pieces = { "a", "B", "s", "S", "z", "_", "1", "42", ",", " ", ".", "'", "\u2019", "<sup>", "</sup>",
+				"<SUP>", "</Sup>", "<", ">", "&", "#", ";", "&#", "\u00E9", "\u0130", "K", "-" };
+		Random random = new Random(2018);
+		for (int i = 0; i < 20000; i++) {
+			StringBuffer text = new StringBuffer();
+			int length = random.nextInt(12);
+			for (int j = 0; j < length; j++) {
+				text.append(pieces[random.nextInt(pieces.length)]);
+			}
+			assertSameWords(text.toString());
+		}
+	}
+
+	@Test(timeout = 500)
+	public void testConcordanceUsesTokenizer() {
+		String text = "For God so loved<sup>a</sup> the world, that he gave his only begotten Son";
+		assertEquals(WordTokenizer.extractWords(text), Concordance.extractWords(text));
+	}
+
+	@Test(timeout = 500)
+	public void testReuse() {
+		WordTokenizer tokenizer = new WordTokenizer();
+		ArrayList<String> words = new ArrayList<String>();
+		tokenizer.tokenize("Jesus wept", words);
+		tokenizer.tokenize("a rather long word like supercalifragilisticexpialidociousnessesses", words);
+		tokenizer.tokenize("", words);
+		assertEquals(Arrays.asList("jesus", "wept", "a", "rather", "long", "word", "like",
+				"supercalifragilisticexpialidociousnessesses"), words);
+	}
+}
@@ -0,0 +1,105 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.BookOfBible;
+import bibleReader.model.PackedArrayBible;
+import bibleReader.model.SubstringIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that searching with a SubstringIndex gives the same answers as checking
+ * every verse.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_6SubstringIndexTest {
+	private static final String[] PIECES = { "the ", "LORD", "Lord", " and ", "light", "<sup>a</sup>", ", ", "'s",
+			"\u2019s", "God", "\u0130", "\u00C9den", "aaa", "a", " " };
+
+	private ArrayList<String> texts;
+	private SubstringIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(7);
+		texts = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			texts.add(randomText(random, random.nextInt(20)));
+		}
+		index = new SubstringIndex(texts);
+	}
+
+	private static String randomText(Random random, int pieces) {
+		StringBuffer text = new StringBuffer();
+		for (int i = 0; i < pieces; i++) {
+			text.append(PIECES[random.nextInt(PIECES.length)]);
+		}
+		return text.toString();
+	}
+
+	private int[] scan(String phrase) {
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		String lower = phrase.toLowerCase();
+		if (!lower.isEmpty()) {
+			for (int i = 0; i < texts.size(); i++) {
+				if (texts.get(i).toLowerCase().contains(lower)) {
+					found.add(i);
+				}
+			}
+		}
+		int[] result = new int[found.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = found.get(i);
+		}
+		return result;
+	}
+
+	@Test(timeout = 1000)
+	public void testExamples() {
+		for (String phrase : new String[] { "", "a", "aa", "aaaa", "the lord", "THE LORD", "lord and", "d an", "'s",
+				"<sup>", "sup>a</", "\u0130", "i\u0307", "\u00E9den", "missing", "LORD, God" }) {
+			assertEquals(phrase, Arrays.toString(scan(phrase)), Arrays.toString(index.indexesContaining(phrase)));
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testRandomPhrases() {
+		Random random = new Random(8);
+		for (int i = 0; i < 2000; i++) {
+			// Usually part of one of the texts, so that there are matches.
+			String phrase;
+			String text = texts.get(random.nextInt(texts.size()));
+			if (random.nextBoolean() && text.length() > 0) {
+				int start = random.nextInt(text.length());
+				phrase = text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(12)));
+			} else {
+				phrase = randomText(random, 1 + random.nextInt(2));
+			}
+			assertEquals(phrase, Arrays.toString(scan(phrase)), Arrays.toString(index.indexesContaining(phrase)));
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testBibleSearchesMatchTreeMapBible() {
+		VerseList verses = new VerseList("TST", "Test");
+		for (int i = 0; i < texts.size(); i++) {
+			verses.add(new Verse(BookOfBible.values()[i / 100], 1 + (i / 10) % 10, 1 + i % 10, texts.get(i)));
+		}
+		TreeMapBible expected = new TreeMapBible(verses);
+		PackedArrayBible packed = new PackedArrayBible(verses);
+		for (String phrase : new String[] { "", "a", "the lord", "LORD and", "light<sup>", "missing" }) {
+			assertEquals(phrase, expected.getReferencesContaining(phrase), packed.getReferencesContaining(phrase));
+			assertEquals(phrase, expected.getVersesContaining(phrase), packed.getVersesContaining(phrase));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.LowerCaseText;
+import bibleReader.model.ParallelSearch;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that searching the lower case copies of texts gives the same answers as
+ * lower casing every text, whether or not the copies fit in the budget and
+ * whether or not the search is done in parallel.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_7LowerCaseTextTest {
+	private static final String[] PIECES = { "the ", "LORD", "Lord", " and ", "light", "<sup>a</sup>", ", ", "'s",
+			"\u2019s", "God", "\u0130", "\u00C9den", "\u03A3\u03C3", "aaa", "a", " " };
+	private static final String[] PHRASES = { "", "a", "aa", "the lord", "THE LORD", "d an", "'s", "\u2019s",
+			"\u0130", "i\u0307", "\u00E9den", "\u00C9DEN", "\u03C3", "missing", "LORD, God" };
+
+	private long budget;
+	private ArrayList<String> texts;
+
+	@Before
+	public void setUp() throws Exception {
+		budget = LowerCaseText.getMemoryBudget();
+		Random random = new Random(9);
+		texts = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			StringBuffer text = new StringBuffer();
+			for (int j = random.nextInt(20); j > 0; j--) {
+				text.append(PIECES[random.nextInt(PIECES.length)]);
+			}
+			texts.add(text.toString());
+		}
+	}
+
+	@After
+	public void tearDown() {
+		LowerCaseText.setMemoryBudget(budget);
+	}
+
+	private int[] scan(String phrase, int[] candidates) {
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		String lower = phrase.toLowerCase();
+		if (!lower.isEmpty()) {
+			for (int i : candidates) {
+				if (texts.get(i).toLowerCase().contains(lower)) {
+					found.add(i);
+				}
+			}
+		}
+		int[] result = new int[found.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = found.get(i);
+		}
+		return result;
+	}
+
+	private void checkPhrases(LowerCaseText lowerCaseText) {
+		int[] all = range(texts.size());
+		int[] odd = new int[texts.size() / 2];
+		for (int i = 0; i < odd.length; i++) {
+			odd[i] = 2 * i + 1;
+		}
+		for (String phrase : PHRASES) {
+			assertEquals(phrase, Arrays.toString(scan(phrase, all)),
+					Arrays.toString(lowerCaseText.indexesContaining(phrase)));
+			assertEquals(phrase, Arrays.toString(scan(phrase, odd)),
+					Arrays.toString(lowerCaseText.indexesContaining(phrase, odd)));
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testCopies() {
+		LowerCaseText lowerCaseText = new LowerCaseText(texts);
+		assertFalse(lowerCaseText.isCached());
+		checkPhrases(lowerCaseText);
+		assertTrue(lowerCaseText.isCached());
+	}
+
+	@Test(timeout = 1000)
+	public void testOverBudget() {
+		LowerCaseText.setMemoryBudget(0);
+		LowerCaseText lowerCaseText = new LowerCaseText(texts);
+		checkPhrases(lowerCaseText);
+		assertFalse(lowerCaseText.isCached());
+	}
+
+	@Test(timeout = 1000)
+	public void testBibleSearches() {
+		VerseList verses = new VerseList("TST", "Test");
+		for (int i = 0; i < texts.size(); i++) {
+			verses.add(new Verse(BookOfBible.values()[i / 100], 1 + (i / 10) % 10, 1 + i % 10, texts.get(i)));
+		}
+		for (long memoryBudget : new long[] { budget, 0 }) {
+			LowerCaseText.setMemoryBudget(memoryBudget);
+			ArrayListBible arrayListBible = new ArrayListBible(verses);
+			TreeMapBible treeMapBible = new TreeMapBible(verses);
+			for (String phrase : PHRASES) {
+				VerseList expected = new VerseList("TST", phrase);
+				ReferenceList expectedRefs = new ReferenceList();
+				for (int i : scan(phrase, range(texts.size()))) {
+					expected.add(verses.get(i));
+					expectedRefs.add(verses.get(i).getReference());
+				}
+				assertEquals(phrase, expected, arrayListBible.getVersesContaining(phrase));
+				assertEquals(phrase, expected, treeMapBible.getVersesContaining(phrase));
+				assertEquals(phrase, expectedRefs, arrayListBible.getReferencesContaining(phrase));
+				assertEquals(phrase, expectedRefs, treeMapBible.getReferencesContaining(phrase));
+			}
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testParallelSearches() {
+		// Enough texts to be split up, in parts of different sizes.
+		Random random = new Random(10);
+		ArrayList<String> moreTexts = new ArrayList<String>();
+		int[] partitions = new int[10];
+		for (int p = 0; p < partitions.length; p++) {
+			partitions[p] = moreTexts.size();
+			for (int i = random.nextInt(2000); i >= 0; i--) {
+				moreTexts.add(texts.get(random.nextInt(texts.size())));
+			}
+		}
+		texts = moreTexts;
+		int[] even = new int[texts.size() / 2];
+		for (int i = 0; i < even.length; i++) {
+			even[i] = 2 * i;
+		}
+		boolean parallel = ParallelSearch.isEnabled();
+		try {
+			ParallelSearch.setEnabled(true);
+			for (long memoryBudget : new long[] { budget, 0 }) {
+				LowerCaseText.setMemoryBudget(memoryBudget);
+				LowerCaseText lowerCaseText = new LowerCaseText(texts, partitions);
+				for (String phrase : PHRASES) {
+					assertEquals(phrase, Arrays.toString(scan(phrase, range(texts.size()))),
+							Arrays.toString(lowerCaseText.indexesContaining(phrase)));
+					assertEquals(phrase, Arrays.toString(scan(phrase, even)),
+							Arrays.toString(lowerCaseText.indexesContaining(phrase, even)));
+				}
+			}
+		} finally {
+			ParallelSearch.setEnabled(parallel);
+		}
+	}
+
+	private static int[] range(int size) {
+		int[] result = new int[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+}
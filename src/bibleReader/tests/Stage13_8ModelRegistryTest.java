@@ -0,0 +1,169 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests finding, removing and replacing the Bibles in a model by version, with
+ * small made up Bibles so that no data files are needed.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_8ModelRegistryTest {
+	private BibleReaderModel model;
+	private Bible kjv;
+	private Bible asv;
+	private Bible esv;
+
+	@Before
+	public void setUp() throws Exception {
+		kjv = new ArrayListBible(makeVerses("KJV", "In the beginning God created"));
+		asv = new TreeMapBible(makeVerses("ASV", "In the beginning God created"));
+		esv = new ArrayListBible(makeVerses("ESV", "In the beginning, God created"));
+		model = new BibleReaderModel();
+		model.addBible(kjv);
+		model.addBible(esv);
+		model.addBible(asv);
+	}
+
+	private static VerseList makeVerses(String version, String text) {
+		VerseList verses = new VerseList(version, version + " Bible");
+		for (int verse = 1; verse <= 5; verse++) {
+			verses.add(new Verse(BookOfBible.Genesis, 1, verse, text + " " + version + " " + verse));
+		}
+		if (!version.equals("ESV")) {
+			verses.add(new Verse(BookOfBible.John, 3, 16, "For God so loved the world"));
+		}
+		return verses;
+	}
+
+	@Test(timeout = 1000)
+	public void testVersions() {
+		assertArrayEquals(new String[] { "ASV", "ESV", "KJV" }, model.getVersions());
+		assertEquals(3, model.getNumberOfVersions());
+		// Changing the array doesn't change the model.
+		model.getVersions()[0] = "XXX";
+		assertArrayEquals(new String[] { "ASV", "ESV", "KJV" }, model.getVersions());
+		assertArrayEquals(new String[0], new BibleReaderModel().getVersions());
+	}
+
+	@Test(timeout = 1000)
+	public void testGetBible() {
+		assertSame(kjv, model.getBible("KJV"));
+		assertSame(asv, model.getBible("ASV"));
+		assertSame(esv, model.getBible("ESV"));
+		assertNull(model.getBible("NIV"));
+		assertNull(model.getBible(null));
+	}
+
+	@Test(timeout = 1000)
+	public void testGetText() {
+		Reference john316 = new Reference(BookOfBible.John, 3, 16);
+		assertEquals("For God so loved the world", model.getText("KJV", john316));
+		assertEquals("", model.getText("ESV", john316));
+		assertEquals("", model.getText("NIV", john316));
+		assertEquals("In the beginning, God created ESV 2",
+				model.getText("ESV", new Reference(BookOfBible.Genesis, 1, 2)));
+	}
+
+	@Test(timeout = 1000)
+	public void testGetVerses() {
+		ReferenceList refs = new ReferenceList();
+		refs.add(new Reference(BookOfBible.Genesis, 1, 3));
+		refs.add(new Reference(BookOfBible.John, 3, 16));
+		assertEquals(asv.getVerses(refs), model.getVerses("ASV", refs));
+		assertNull(model.getVerses("NIV", refs));
+	}
+
+	@Test(timeout = 1000)
+	public void testSearchesUseEveryVersion() {
+		assertEquals(6, model.getReferencesContaining("God").size());
+		assertEquals(5, model.getReferencesContaining("beginning, God").size());
+		assertEquals(1, model.getReferencesContainingWord("loved").size());
+	}
+
+	@Test(timeout = 1000)
+	public void testSameVersionTwice() {
+		Bible other = new TreeMapBible(makeVerses("KJV", "Something else"));
+		model.addBible(other);
+		assertArrayEquals(new String[] { "ASV", "ESV", "KJV", "KJV" }, model.getVersions());
+		// The first one is found by version, but both are searched.
+		assertSame(kjv, model.getBible("KJV"));
+		assertEquals(5, model.getReferencesContaining("something").size());
+	}
+
+	@Test(timeout = 1000)
+	public void testRemoveBible() {
+		assertSame(esv, model.removeBible("ESV"));
+		assertArrayEquals(new String[] { "ASV", "KJV" }, model.getVersions());
+		assertNull(model.getBible("ESV"));
+		assertEquals(0, model.getReferencesContaining("beginning, God").size());
+		assertNull(model.removeBible("ESV"));
+		assertNull(model.removeBible("NIV"));
+	}
+
+	@Test(timeout = 1000)
+	public void testReplaceBible() {
+		Bible newEsv = new TreeMapBible(makeVerses("ESV", "Something else"));
+		assertSame(esv, model.replaceBible(newEsv));
+		assertArrayEquals(new String[] { "ASV", "ESV", "KJV" }, model.getVersions());
+		assertSame(newEsv, model.getBible("ESV"));
+		assertEquals(0, model.getReferencesContaining("beginning, God").size());
+		assertEquals(5, model.getReferencesContaining("something").size());
+
+		Bible niv = new TreeMapBible(makeVerses("NIV", "In the beginning"));
+		assertNull(model.replaceBible(niv));
+		assertArrayEquals(new String[] { "ASV", "ESV", "KJV", "NIV" }, model.getVersions());
+	}
+
+	@Test(timeout = 10000)
+	public void testQueriesWhileReplacing() throws Exception {
+		final Bible[] esvs = { esv, new TreeMapBible(makeVerses("ESV", "In the beginning, God created")) };
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread() {
+				public void run() {
+					while (!done.get()) {
+						// Whichever ESV is in the model, the answers are the same.
+						int found = model.getReferencesContaining("beginning, God").size();
+						String[] versions = model.getVersions();
+						if (found != 5 || versions.length != 3) {
+							failure.set(found + " " + Arrays.toString(versions));
+						}
+					}
+				}
+			};
+			readers[i].start();
+		}
+		for (int i = 0; i < 2000; i++) {
+			model.replaceBible(esvs[i % 2]);
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertNull(failure.get());
+		assertSame(esvs[1], model.getBible("ESV"));
+	}
+}
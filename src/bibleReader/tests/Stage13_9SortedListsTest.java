@@ -0,0 +1,89 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.SortedLists;
+
+/**
+ * Tests that the unions and intersections of SortedLists are the same as with
+ * a TreeSet.
+ *
+ * @author Jonathan Chaffer
+ */
+public class Stage13_9SortedListsTest {
+
+	private static List<Integer> randomList(Random random, boolean sorted) {
+		List<Integer> list = random.nextInt(4) == 0 ? new LinkedList<Integer>() : new ArrayList<Integer>();
+		for (int i = random.nextInt(30); i > 0; i--) {
+			list.add(random.nextInt(50));
+		}
+		if (sorted) {
+			Collections.sort(list);
+		}
+		return list;
+	}
+
+	@Test(timeout = 5000)
+	public void testUnion() {
+		Random random = new Random(11);
+		for (int trial = 0; trial < 1000; trial++) {
+			ArrayList<List<Integer>> lists = new ArrayList<List<Integer>>();
+			TreeSet<Integer> expected = new TreeSet<Integer>();
+			for (int i = random.nextInt(6); i > 0; i--) {
+				// Mostly sorted, like the lists Bibles return.
+				List<Integer> list = randomList(random, random.nextInt(5) != 0);
+				lists.add(list);
+				expected.addAll(list);
+			}
+			ArrayList<Integer> union = new ArrayList<Integer>(SortedLists.totalSize(lists));
+			SortedLists.union(lists, union);
+			assertEquals(new ArrayList<Integer>(expected), union);
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testIntersection() {
+		Random random = new Random(12);
+		for (int trial = 0; trial < 1000; trial++) {
+			List<Integer> first = randomList(random, random.nextInt(5) != 0);
+			List<Integer> second = randomList(random, random.nextInt(5) != 0);
+			TreeSet<Integer> expected = new TreeSet<Integer>(first);
+			expected.retainAll(second);
+			ArrayList<Integer> intersection = new ArrayList<Integer>();
+			SortedLists.intersection(first, second, intersection);
+			assertEquals(new ArrayList<Integer>(expected), intersection);
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testReferences() {
+		ReferenceList kjv = new ReferenceList();
+		ReferenceList esv = new ReferenceList();
+		for (int verse = 1; verse <= 10; verse++) {
+			kjv.add(new Reference(BookOfBible.Genesis, 1, verse));
+			esv.add(new Reference(BookOfBible.Genesis, 1, verse + 5));
+		}
+		esv.add(new Reference(BookOfBible.Exodus, 1, 1));
+		ArrayList<ReferenceList> lists = new ArrayList<ReferenceList>();
+		lists.add(kjv);
+		lists.add(esv);
+		ReferenceList union = new ReferenceList();
+		SortedLists.union(lists, union);
+		assertEquals(16, union.size());
+		assertEquals(new Reference(BookOfBible.Genesis, 1, 1), union.get(0));
+		assertEquals(new Reference(BookOfBible.Genesis, 1, 15), union.get(14));
+		assertEquals(new Reference(BookOfBible.Exodus, 1, 1), union.get(15));
+	}
+}